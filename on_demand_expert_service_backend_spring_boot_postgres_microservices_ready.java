@@ -7,25 +7,80 @@ backend/
 │  ├─ main/
 │  │  ├─ java/com/odx/experts/
 │  │  │  ├─ Application.java
-│  │  │  ├─ config/GlobalExceptionHandler.java
-│  │  │  ├─ common/{ClockConfig.java, Constants.java, ApiError.java}
-│  │  │  ├─ auth/{Role.java, User.java, UserRepository.java, AuthController.java}
+│  │  │  ├─ config/{GlobalExceptionHandler.java, LazyAdminConfig.java, MigrationConfig.java}
+│  │  │  ├─ common/{ClockConfig.java, Constants.java, ApiError.java, UuidV7.java, UuidV7Id.java, UuidV7Generator.java,
+│  │  │  │           ConditionalGet.java}
+│  │  │  ├─ auth/{Role.java, User.java, UserRepository.java, AuthController.java, AuthProperties.java, AuthConfig.java,
+│  │  │  │        AuthInterceptor.java, Principal.java, Caller.java, ForbiddenException.java, PasswordHasher.java,
+│  │  │  │        TokenService.java}
 │  │  │  ├─ expert/{Domain.java, Expert.java, ExpertRepository.java, AvailabilityOverride.java, AvailabilityWindow.java,
-│  │  │  │           AvailabilityOverrideRepository.java, AvailabilityWindowRepository.java, ExpertController.java, SlotService.java}
+│  │  │  │           AvailabilityOverrideRepository.java, AvailabilityWindowRepository.java, ExpertController.java, SlotService.java,
+│  │  │  │           SlotBitmap.java, VersionCounters.java, NextSlotIndex.java, AvailabilityService.java, SlotFlights.java}
 │  │  │  ├─ purchase/{Purchase.java, PurchaseRepository.java, PurchaseController.java}
-│  │  │  ├─ session/{SessionStatus.java, Session.java, SessionRepository.java, BookingService.java, SessionController.java}
+│  │  │  ├─ session/{SessionStatus.java, Session.java, SessionRepository.java, BookingService.java, SessionController.java,
+│  │  │  │           SessionCompletionJob.java, SlotsFreedEvent.java, SessionsBookedEvent.java}
 │  │  │  ├─ feedback/{Feedback.java, FeedbackRepository.java, FeedbackController.java}
-│  │  │  ├─ billing/{Payout.java, PayoutRepository.java, ClientPayment.java, ClientPaymentRepository.java, AdminController.java}
+│  │  │  ├─ billing/{Payout.java, PayoutRepository.java, ClientPayment.java, ClientPaymentRepository.java, AdminController.java,
+│  │  │  │           SettlementService.java, ClientStatementService.java}
+│  │  │  ├─ observability/{SlotComputationEvent.java, BookingEvent.java, AdminAggregationEvent.java, QueryCounter.java,
+│  │  │  │                 BackgroundFailureEvent.java, BackgroundFailures.java, FlightRecorderService.java,
+│  │  │  │                 FlightRecorderController.java}
+│  │  │  ├─ admission/{TokenBucket.java, AdmissionProperties.java, AdmissionInterceptor.java, AdmissionConfig.java,
+│  │  │  │             AdmissionController.java}
+│  │  │  ├─ idempotency/{IdempotencyProperties.java, IdempotencyStore.java, IdempotencyFilter.java, IdempotencyConfig.java}
+│  │  │  ├─ reporting/{RollupService.java, RollupController.java}
+│  │  │  ├─ schedule/{ScheduleService.java, ScheduleController.java}
+│  │  │  ├─ meeting/{MeetingProperties.java, MeetingProvider.java, StubMeetingProvider.java, MeetingLinkWorker.java,
+│  │  │  │           MeetingConfig.java}
+│  │  │  ├─ reminder/{ReminderProperties.java, TimingWheel.java, ReminderNotifier.java, StubReminderNotifier.java,
+│  │  │  │            ReminderScheduler.java, ReminderConfig.java}
+│  │  │  ├─ waitlist/{WaitlistState.java, WaitlistEntry.java, WaitlistRepository.java, WaitlistIndex.java, WaitlistService.java,
+│  │  │  │            WaitlistController.java}
+│  │  │  ├─ shard/{ShardProperties.java, ConsistentHashRing.java, ShardRoutingDataSource.java, ShardUnavailableException.java,
+│  │  │  │         ShardDirectory.java, ShardRouter.java, ShardRoutingInterceptor.java, ShardConfig.java, ShardMigrator.java,
+│  │  │  │         ShardController.java}
 │  │  │  ├─ dto/{BookingDtos.java, CancelDto.java, FeedbackDto.java}
 │  │  │  └─ util/{TimeUtil.java, ValidationUtil.java}
 │  │  └─ resources/
 │  │     ├─ application.yml
-│  │     └─ db/migration/V1__init.sql
+│  │     └─ db/migration/{V1__init.sql, V2__uuid_v7_defaults.sql, V3__version_counters.sql,
+│  │                    V4__expert_next_slot.sql, V5__expert_search.sql, V6__settlements.sql,
+│  │                    V7__client_balance.sql, V8__rollups.sql, V9__shard_directory.sql,
+│  │                    V10__token_revocation.sql, V11__schedule.sql, V12__idempotency.sql,
+│  │                    V13__waitlist.sql, V14__meeting_links.sql, V15__reminders.sql,
+│  │                    V16__expert_updated_at.sql, V17__shard_cleanup.sql, V18__idle_transaction_timeout.sql}
 │  └─ test/java/com/odx/experts/
+│     ├─ common/UuidV7Test.java
+│     ├─ admission/TokenBucketTest.java
+│     ├─ admission/AdmissionInterceptorTest.java
+│     ├─ auth/PasswordHasherTest.java
+│     ├─ auth/TokenServiceTest.java
+│     ├─ idempotency/IdempotencyStoreTest.java
+│     ├─ shard/ConsistentHashRingTest.java
+│     ├─ shard/ShardMigratorTest.java
+│     ├─ billing/SettlementServiceTest.java
+│     ├─ billing/ClientStatementServiceTest.java
+│     ├─ reporting/RollupServiceTest.java
+│     ├─ schedule/ScheduleServiceTest.java
+│     ├─ waitlist/WaitlistIndexTest.java
+│     ├─ meeting/MeetingLinkWorkerTest.java
+│     ├─ reminder/TimingWheelTest.java
 │     ├─ session/BookingServiceTest.java
 │     ├─ session/SessionCancellationTest.java
 │     ├─ feedback/FeedbackServiceTest.java
-│     └─ expert/SlotServiceTest.java
+│     ├─ expert/SlotServiceTest.java
+│     ├─ expert/SlotBitmapTest.java
+│     ├─ expert/AvailabilityServiceTest.java
+│     ├─ expert/SlotFlightsTest.java
+│     └─ expert/NextSlotIndexTest.java
+└─ bench/{uuid_v7_insert.sql, startup.sh}
+
+loadtest/                      (standalone; drives a running backend over HTTP)
+├─ pom.xml
+├─ docker-compose.yml
+├─ seed.sql
+└─ src/main/java/com/odx/loadtest/{LoadTest.java, Config.java, Api.java, Json.java, Journeys.java, AuthBench.java, Stats.java,
+                                   LatencyHistogram.java}
 ```
 
 ---
@@ -41,6 +96,7 @@ backend/
   <properties>
     <java.version>21</java.version>
     <spring.boot.version>3.3.3</spring.boot.version>
+    <bench.excluded>bench</bench.excluded> <!-- @Tag("bench") timing tests run only with -Pbench -->
   </properties>
 
   <dependencyManagement>
@@ -115,8 +171,96 @@ backend/
           </compilerArgs>
         </configuration>
       </plugin>
+      <plugin>
+        <groupId>org.apache.maven.plugins</groupId>
+        <artifactId>maven-surefire-plugin</artifactId>
+        <configuration>
+          <excludedGroups>${bench.excluded}</excludedGroups>
+        </configuration>
+      </plugin>
     </plugins>
   </build>
+
+  <profiles>
+    <!-- Timing benchmarks kept out of the unit run: mvn -Pbench test runs only the @Tag("bench") tests and prints their numbers. -->
+    <profile>
+      <id>bench</id>
+      <properties>
+        <bench.excluded></bench.excluded>
+        <groups>bench</groups>
+      </properties>
+    </profile>
+    <!--
+      Faster cold starts for horizontally scaled pods: mvn -Pstartup package
+      1) Spring AOT (bean definitions generated at build time instead of scanned at runtime),
+      2) boot jar extracted to target/app (CDS needs classes on the plain class path),
+      3) training run with the replica profile that dumps target/app/app.jsa; it points at a closed port and skips
+         migrations (odx.migrate=false), so the package fails if anything touches the database during refresh.
+      AOT evaluates conditions once, at build time, with the profiles below: the result is a replica image (no Flyway,
+      no schema validation), and sharding is fixed per build (ShardConfig.dataSource); add <profile>sharded</profile>
+      to process-aot and the training run for a sharded image. The migrating deployment runs the plain jar.
+      Run:  cd target/app && java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=replica -jar experts-backend-1.0.0.jar
+      Measure with bench/startup.sh.
+    -->
+    <profile>
+      <id>startup</id>
+      <build>
+        <plugins>
+          <plugin>
+            <groupId>org.springframework.boot</groupId>
+            <artifactId>spring-boot-maven-plugin</artifactId>
+            <executions>
+              <execution>
+                <id>process-aot</id>
+                <goals><goal>process-aot</goal></goals>
+                <configuration><profiles><profile>replica</profile></profiles></configuration>
+              </execution>
+              <execution><id>repackage</id><goals><goal>repackage</goal></goals></execution>
+            </executions>
+          </plugin>
+          <plugin>
+            <groupId>org.codehaus.mojo</groupId>
+            <artifactId>exec-maven-plugin</artifactId>
+            <version>3.4.1</version>
+            <executions>
+              <execution>
+                <id>extract</id>
+                <phase>package</phase>
+                <goals><goal>exec</goal></goals>
+                <configuration>
+                  <executable>java</executable>
+                  <arguments>
+                    <argument>-Djarmode=tools</argument>
+                    <argument>-jar</argument><argument>${project.build.directory}/${project.build.finalName}.jar</argument>
+                    <argument>extract</argument><argument>--force</argument>
+                    <argument>--destination</argument><argument>${project.build.directory}/app</argument>
+                  </arguments>
+                </configuration>
+              </execution>
+              <execution>
+                <id>cds-training-run</id>
+                <phase>package</phase>
+                <goals><goal>exec</goal></goals>
+                <configuration>
+                  <executable>java</executable>
+                  <workingDirectory>${project.build.directory}/app</workingDirectory>
+                  <arguments>
+                    <argument>-XX:ArchiveClassesAtExit=app.jsa</argument>
+                    <argument>-Dspring.aot.enabled=true</argument>
+                    <argument>-Dspring.context.exit=onRefresh</argument>
+                    <argument>-Dspring.profiles.active=replica</argument>
+                    <argument>-Dodx.migrate=false</argument>
+                    <argument>-Dspring.datasource.url=jdbc:postgresql://127.0.0.1:1/no-db</argument>
+                    <argument>-jar</argument><argument>${project.build.finalName}.jar</argument>
+                  </arguments>
+                </configuration>
+              </execution>
+            </executions>
+          </plugin>
+        </plugins>
+      </build>
+    </profile>
+  </profiles>
 </project>
 ```
 
@@ -128,8 +272,9 @@ package com.odx.experts;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+@SpringBootApplication @EnableScheduling
 public class Application {
   public static void main(String[] args) { SpringApplication.run(Application.class, args); }
 }
@@ -144,16 +289,135 @@ spring:
     url: jdbc:postgresql://localhost:5432/experts
     username: postgres
     password: postgres
+    hikari:
+      maximum-pool-size: 20 # per pod; also each shard's pool unless its node sets pool-size, and the admission limit
   jpa:
+    # connections are taken from the request's shard when work starts; an open-in-view EntityManager would pin one early
+    open-in-view: false
     hibernate:
       ddl-auto: validate
     properties:
       hibernate.jdbc.time_zone: UTC
+      # ids come from UuidV7 before insert, so multi-row saves go out as JDBC batches
+      hibernate.jdbc.batch_size: 100
+      hibernate.order_inserts: true
+      # per-thread SQL statement count carried by the JFR events (observability/QueryCounter)
+      hibernate.session_factory.statement_inspector: com.odx.experts.observability.QueryCounter
   flyway:
     enabled: true
     locations: classpath:db/migration
+  transaction:
+    default-timeout: 60s # bounds how late a commit can land behind its stamps (common/Constants.POLL_OVERLAP)
+  task:
+    scheduling:
+      # one thread by default: a long task (the nightly rollup, a catalogue reload) would hold up the token revocation
+      # and shard directory polls behind it
+      pool:
+        size: 8
 server:
   port: 8080
+  # client address from the load balancer's X-Forwarded-For (admission keys anonymous callers by it). Tomcat takes it
+  # only from server.tomcat.remoteip.internal-proxies (private ranges by default), so a client cannot pick its own.
+  forward-headers-strategy: native
+  compression:
+    # catalogue and multi-day slot payloads; small bodies are not worth the CPU.
+    # Tomcat may weaken our strong ETags on compressed bodies; ConditionalGet compares weakly, so 304s still work.
+    enabled: true
+    mime-types: application/json,application/vnd.odx.slot-bitmap+json
+    min-response-size: 2KB
+odx:
+  next-slot:
+    poll-ms: 5000      # pick up availability_version bumps (bookings, cancels, windows, overrides)
+    expire-ms: 60000   # re-resolve experts whose next slot has started
+    persist-ms: 60000  # flush changed entries to expert_next_slot
+  jfr:
+    start-on-boot: false   # or POST /api/admin/jfr/start at runtime
+    max-age: 30m           # rolling window kept on disk by the JVM
+    max-size: 200MB
+    dump-dir: /tmp
+  shards:
+    nodes: []              # one Postgres per shard, first = primary (users, client payments, directory); empty = spring.datasource only
+    vnodes: 512            # points per shard on the consistent-hash ring (about ±3% load spread)
+    directory-poll-ms: 2000
+    move-grace: 5s         # ShardMigrator: wait after flagging experts as moving (> directory poll + longest request)
+  auth:
+    enabled: true          # bearer tokens on /api/** except login and catalogue/slot GETs (auth/AuthInterceptor)
+    secret: ${ODX_AUTH_SECRET:dev-only-token-secret-change-me-0123456789} # HMAC key, >= 32 bytes, same on every pod
+    token-ttl: 12h
+    hash-iterations: 600000 # PBKDF2-HMAC-SHA256; raising it rehashes each user on their next login
+    hash-threads: 0        # password hashing pool; 0 = half the cores, so a login burst leaves the rest to requests
+    hash-queue: 256        # logins waiting beyond this get 503
+    revocation-poll-ms: 2000
+  schedule:
+    auto-complete: false   # mark ended sessions COMPLETED (session/SessionCompletionJob); this makes them billable
+    complete-poll-ms: 60000
+  meetings:
+    poll-ms: 1000          # provision links for new sessions (meeting/MeetingLinkWorker); booking does not wait for it
+    batch-size: 50         # sessions per provider call
+    lease: 1m              # claimed sessions are skipped by other pods this long
+    backoff-base: 5s       # retry delay doubles per failure, with jitter
+    backoff-max: 10m
+  reminders:
+    leads: 24h,15m         # reminders go out this long before each session (reminder/ReminderScheduler)
+    window: 1h             # how far ahead the timing wheel is loaded
+    tick-ms: 1000          # wheel tick; due reminders are dispatched each tick
+    load-ms: 5000          # extend the window, pick up other pods' bookings, retry unsent claims
+    batch-size: 200        # notices per notifier call
+    lease: 1m              # a claimed reminder not marked sent by then is retried
+  waitlist:
+    poll-ms: 2000          # follow waitlist rows written on other pods (waitlist/WaitlistIndex)
+    hold: 15m              # how long a matched slot stays held for a non-auto-book entry
+    expire-poll-ms: 15000  # release expired holds to the next entry
+  rollup:
+    cron: "0 30 2 * * *"   # nightly reconcile + compaction (reporting/RollupService); one pod runs it
+    reconcile-days: 7      # day rows recomputed from raw tables each night
+    day-retention-days: 400 # older day rows are dropped; week/month rows keep the history
+  admission:
+    enabled: true
+    max-concurrent: 0      # in-flight guarded requests per pod, excess shed with 429; 0 = the smallest DB pool's size
+    slots:                 # GET /api/experts/{id}/slots/**
+      per-user-rps: 5
+      per-user-burst: 20
+      per-expert-rps: 200
+      per-expert-burst: 400
+    booking:               # POST /api/sessions/batch-book/{userId}
+      per-user-rps: 1
+      per-user-burst: 5
+      per-expert-rps: 0    # 0 = no per-expert budget (expert is only known after loading the purchase)
+      per-expert-burst: 0
+  idempotency:
+    enabled: true          # POSTs below with an Idempotency-Key header run once; retries replay the stored response
+    paths: [/api/sessions/batch-book/*, /api/purchases, /api/admin/payouts]
+    ttl: 24h               # how long a key and its response are kept
+    lease: 2m              # a claim older than this lost its pod; the next retry takes it over
+    wait-for: 10s          # a duplicate waits this long for the original before 409
+    cache-size: 10000      # finished responses kept in memory per pod
+---
+# Non-migrating replicas (SPRING_PROFILES_ACTIVE=replica): the migrating deployment owns the schema, so skip Flyway
+# (and its validate scan) and Hibernate's schema validation; no JDBC metadata round-trips before the context is up.
+spring:
+  config.activate.on-profile: replica
+  flyway.enabled: false
+  jpa:
+    hibernate.ddl-auto: none
+    properties:
+      hibernate.boot.allow_jdbc_metadata_access: false
+      hibernate.dialect: org.hibernate.dialect.PostgreSQLDialect
+---
+# Three local shards (docker compose -f loadtest/docker-compose.yml --profile shards up -d): SPRING_PROFILES_ACTIVE=sharded
+spring:
+  config.activate.on-profile: sharded
+odx:
+  shards:
+    nodes:
+      - { name: s0, url: "jdbc:postgresql://localhost:5432/experts", username: postgres, password: postgres }
+      - { name: s1, url: "jdbc:postgresql://localhost:5433/experts", username: postgres, password: postgres }
+      - { name: s2, url: "jdbc:postgresql://localhost:5434/experts", username: postgres, password: postgres }
+---
+# Admin-only beans (billing package) are created on the first /api/admin request; see config/LazyAdminConfig.
+spring:
+  config.activate.on-profile: lazy-admin
+  main.lazy-initialization: true
 ```
 
 ---
@@ -167,19 +431,55 @@ import org.springframework.http.HttpStatus;
 public record ApiError(HttpStatus status, String message) {}
 ```
 
+## common/ConditionalGet.java
+```java
+package com.odx.experts.common;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/** If-None-Match handling done before the body is built (Spring's own check only runs after the handler returned). */
+public class ConditionalGet {
+  public static String etag(String tag) { return "\"" + tag + "\""; }
+
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) return false;
+    for (var candidate : ifNoneMatch.split(",")) {
+      var c = candidate.trim();
+      if (c.startsWith("W/")) c = c.substring(2); // weak comparison per RFC 9110 for If-None-Match
+      if (c.equals("*") || c.equals(etag)) return true;
+    }
+    return false;
+  }
+
+  public static <T> ResponseEntity<T> notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+  }
+
+  public static ResponseEntity.BodyBuilder ok(String etag) {
+    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache());
+  }
+}
+```
+
 ## config/GlobalExceptionHandler.java
 ```java
 package com.odx.experts.config;
 
+import com.odx.experts.auth.ForbiddenException;
 import com.odx.experts.common.ApiError;
+import com.odx.experts.shard.ShardUnavailableException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.DateTimeException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -187,6 +487,21 @@ public class GlobalExceptionHandler {
   public ResponseEntity<ApiError> badRequest(Exception ex) {
     return ResponseEntity.badRequest().body(new ApiError(org.springframework.http.HttpStatus.BAD_REQUEST, ex.getMessage()));
   }
+  @ExceptionHandler(ShardUnavailableException.class)
+  public ResponseEntity<ApiError> shardUnavailable(ShardUnavailableException ex) {
+    return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "2")
+      .body(new ApiError(org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage()));
+  }
+  // a bounded pool (password hashing) is full
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<ApiError> busy(RejectedExecutionException ex) {
+    return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "1")
+      .body(new ApiError(org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE, "Server busy"));
+  }
+  @ExceptionHandler(ForbiddenException.class)
+  public ResponseEntity<ApiError> forbidden(ForbiddenException ex) {
+    return ResponseEntity.status(403).body(new ApiError(org.springframework.http.HttpStatus.FORBIDDEN, ex.getMessage()));
+  }
   @ExceptionHandler(EntityNotFoundException.class)
   public ResponseEntity<ApiError> notFound(EntityNotFoundException ex) {
     return ResponseEntity.status(404).body(new ApiError(org.springframework.http.HttpStatus.NOT_FOUND, ex.getMessage()));
@@ -198,6 +513,50 @@ public class GlobalExceptionHandler {
 }
 ```
 
+## config/MigrationConfig.java
+```java
+package com.odx.experts.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * odx.migrate=false leaves Flyway's beans in place but skips the migration: an AOT build decides at build time whether
+ * Flyway is there at all, so this is the runtime switch (the CDS training run uses it to start without a database).
+ */
+@Configuration
+public class MigrationConfig {
+  @Bean
+  FlywayMigrationStrategy migrationStrategy(@Value("${odx.migrate:true}") boolean migrate) {
+    return flyway -> { if (migrate) flyway.migrate(); };
+  }
+}
+```
+
+## config/LazyAdminConfig.java
+```java
+package com.odx.experts.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Only consulted when spring.main.lazy-initialization is on (the lazy-admin profile): everything stays eager except
+ * the billing/admin beans, so the booking path is warm at readiness and admin code loads on first use.
+ * Unconditional on purpose: @Profile would be frozen at build time under Spring AOT.
+ */
+@Configuration(proxyBeanMethods = false)
+public class LazyAdminConfig {
+  @Bean
+  static LazyInitializationExcludeFilter eagerExceptAdmin() {
+    return (name, definition, type) -> type == null || !type.getPackageName().startsWith("com.odx.experts.billing");
+  }
+}
+```
+
 ## common/ClockConfig.java
 ```java
 package com.odx.experts.common;
@@ -217,8 +576,96 @@ public class ClockConfig {
 ```java
 package com.odx.experts.common;
 
+import java.time.Duration;
+
 public class Constants {
   public static final int SLOT_MIN = 30; // 30-minute slots
+  public static final int MAX_BULK_CANCEL_DAYS = 31; // widest range one bulk cancel may span
+
+  /**
+   * How far behind its watermark a poller following updated_at/created_at re-reads. Those stamps are taken before the
+   * writing transaction commits (now() is transaction start; sessions.created_at is the booking's clock), so a row
+   * can become visible after the poller has moved past its stamp. That gap is bounded by the transaction length:
+   * spring.transaction.default-timeout (60s) fails statements past it, and V18 ends a transaction that sits idle for
+   * 60s. Three minutes covers both with room for a final statement and the commit.
+   */
+  public static final Duration POLL_OVERLAP = Duration.ofMinutes(3);
+}
+```
+
+## common/UuidV7.java
+```java
+package com.odx.experts.common;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUID version 7 (RFC 9562): 48-bit unix millis | ver 7 | 12-bit counter | variant | 62 random bits.
+ * Keys generated by one JVM are strictly increasing, so inserts land on the right edge of the PK B-tree.
+ */
+public final class UuidV7 {
+  private static final AtomicLong LAST = new AtomicLong(); // (millis << 12) | counter of the last issued id
+  private UuidV7() {}
+
+  public static UUID next() { return next(System.currentTimeMillis()); }
+
+  static UUID next(long nowMillis) {
+    long stamp;
+    for (;;) {
+      long prev = LAST.get();
+      long candidate = nowMillis << 12;
+      stamp = candidate > prev ? candidate : prev + 1; // same ms or clock went back: bump the counter (may carry into ms)
+      if (LAST.compareAndSet(prev, stamp)) break;
+    }
+    long msb = ((stamp >>> 12) << 16) | 0x7000L | (stamp & 0xFFFL);
+    long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  /** Unix millis embedded in a v7 id; -1 for other versions (e.g. legacy v4 rows). */
+  public static long timestampOf(UUID id) { return id.version() == 7 ? id.getMostSignificantBits() >>> 16 : -1; }
+}
+```
+
+## common/UuidV7Id.java
+```java
+package com.odx.experts.common;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/** Marks an entity id as assigned from {@link UuidV7} before insert (replaces random {@code @GeneratedValue}). */
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RUNTIME) @Target({FIELD, METHOD})
+public @interface UuidV7Id {}
+```
+
+## common/UuidV7Generator.java
+```java
+package com.odx.experts.common;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import java.util.EnumSet;
+
+public class UuidV7Generator implements BeforeExecutionGenerator {
+  @Override
+  public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+    return currentValue != null ? currentValue : UuidV7.next(); // keep explicitly assigned ids (imports, legacy v4)
+  }
+  // without this Hibernate never passes an assigned id in: it treats a set id as detached instead of calling generate
+  @Override public boolean allowAssignedIdentifiers() { return true; }
+  @Override public EnumSet<EventType> getEventTypes() { return EnumSet.of(EventType.INSERT); }
 }
 ```
 
@@ -235,6 +682,7 @@ public enum Role { CLIENT, EXPERT, ADMIN }
 ```java
 package com.odx.experts.auth;
 
+import com.odx.experts.common.UuidV7Id;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -243,9 +691,9 @@ import java.util.UUID;
 @Entity @Table(name = "users")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class User {
-  @Id @GeneratedValue private UUID id;
+  @Id @UuidV7Id private UUID id;
   @Column(unique = true, nullable = false) private String username;
-  @Column(nullable = false) private String password; // NOTE: demo only (plain). Hash in prod.
+  @Column(nullable = false) private String password; // PasswordHasher format; legacy plaintext rows are rehashed on login
   @Column(nullable = false) private String name;
   @Column(nullable = false) private String email;
   @Enumerated(EnumType.STRING) @Column(nullable = false) private Role role;
@@ -259,13 +707,431 @@ public class User {
 ```java
 package com.odx.experts.auth;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
-  Optional<User> findByUsernameAndPasswordAndActiveTrue(String username, String password);
+  Optional<User> findByUsernameAndActiveTrue(String username);
+
+  // compare-and-set on the old value, so a concurrent password change is never overwritten by a login's rehash
+  @Modifying @Transactional
+  @Query("update User u set u.password = :hash where u.id = :id and u.password = :old")
+  int upgradePassword(@Param("id") UUID id, @Param("old") String old, @Param("hash") String hash);
+}
+```
+
+## auth/AuthProperties.java
+```java
+package com.odx.experts.auth;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** odx.auth: token signing and the password hashing pool. The secret must be the same on every pod. */
+@ConfigurationProperties("odx.auth")
+public record AuthProperties(Boolean enabled, String secret, Duration tokenTtl, Integer hashIterations, Integer hashThreads,
+                             Integer hashQueue) {
+  public AuthProperties {
+    if (enabled == null) enabled = true;
+    if (tokenTtl == null) tokenTtl = Duration.ofHours(12);
+    if (hashIterations == null) hashIterations = 600_000; // OWASP guidance for PBKDF2-HMAC-SHA256
+    if (hashThreads == null || hashThreads <= 0) hashThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    if (hashQueue == null) hashQueue = 256;
+  }
+}
+```
+
+## auth/Principal.java
+```java
+package com.odx.experts.auth;
+
+import java.util.UUID;
+
+/** The caller as carried by a verified token; expertId is null unless the user is an expert. */
+public record Principal(UUID userId, Role role, UUID expertId, long tokenId, long expiresAt) {
+  public boolean admin() { return role == Role.ADMIN; }
+}
+```
+
+## auth/ForbiddenException.java
+```java
+package com.odx.experts.auth;
+
+/** Authenticated, but acting for another user or expert; mapped to 403. */
+public class ForbiddenException extends RuntimeException {
+  public ForbiddenException(String message) { super(message); }
+}
+```
+
+## auth/Caller.java
+```java
+package com.odx.experts.auth;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The authenticated caller of the current request, set by {@link AuthInterceptor}. Controllers check ids that arrive
+ * in request bodies here (path ids are checked by the interceptor). With no principal (auth disabled, or code running
+ * outside a request as in unit tests) the checks pass.
+ */
+public final class Caller {
+  static final String ATTRIBUTE = Caller.class.getName();
+
+  private Caller() {}
+
+  public static Optional<Principal> current() {
+    var attrs = RequestContextHolder.getRequestAttributes();
+    return attrs == null ? Optional.empty() : Optional.ofNullable((Principal) attrs.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+  }
+
+  /** Admins may act for anyone. */
+  public static void checkUser(UUID userId) {
+    var p = current().orElse(null);
+    if (p != null && !p.admin() && !p.userId().equals(userId)) throw new ForbiddenException("Not allowed to act for another user");
+  }
+
+  public static void checkExpert(UUID expertId) {
+    var p = current().orElse(null);
+    if (p != null && !p.admin() && (p.expertId() == null || !Objects.equals(p.expertId(), expertId)))
+      throw new ForbiddenException("Not allowed to act for another expert");
+  }
+}
+```
+
+## auth/PasswordHasher.java
+```java
+package com.odx.experts.auth;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * PBKDF2-HMAC-SHA256 on a small dedicated pool with a bounded queue: a login burst waits here, and is refused with
+ * RejectedExecutionException (503) once the queue is full, instead of holding request threads for ~0.1-0.3 s of CPU
+ * each. Stored form is pbkdf2-sha256$iterations$salt$hash (base64); anything else is a legacy plaintext row, which
+ * matches once by constant-time compare and {@link #needsUpgrade} says to rewrite it.
+ */
+@Component
+public class PasswordHasher {
+  static final String PREFIX = "pbkdf2-sha256$";
+  private static final int SALT_BYTES = 16, KEY_BITS = 256;
+
+  private final int iterations;
+  private final ThreadPoolExecutor pool;
+  private final SecureRandom random = new SecureRandom();
+  private volatile String dummy; // verified for unknown usernames, so they cost the same as a wrong password
+
+  @Autowired
+  public PasswordHasher(AuthProperties props) { this(props.hashIterations(), props.hashThreads(), props.hashQueue()); }
+
+  PasswordHasher(int iterations, int threads, int queue) {
+    this.iterations = iterations;
+    var n = new AtomicInteger();
+    this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue), r -> {
+      var t = new Thread(r, "password-hash-" + n.incrementAndGet()); t.setDaemon(true); return t;
+    }, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /** Completes on the hashing pool; throws RejectedExecutionException when the queue is full. */
+  public CompletableFuture<String> hash(String raw) { return CompletableFuture.supplyAsync(() -> hashNow(raw), pool); }
+
+  /** Completes on the hashing pool; a null stored value (no such user) still costs one hash and never matches. */
+  public CompletableFuture<Boolean> matches(String raw, String stored) {
+    return CompletableFuture.supplyAsync(() -> check(raw, stored == null ? dummy() : stored) && stored != null, pool);
+  }
+
+  /** Hashes on the calling thread: for code already running on the pool (a login's rehash). */
+  public String hashNow(String raw) {
+    var salt = new byte[SALT_BYTES]; random.nextBytes(salt);
+    return encode(raw, salt, iterations);
+  }
+
+  /** Legacy plaintext, or hashed with fewer iterations than configured now. */
+  public boolean needsUpgrade(String stored) {
+    if (stored == null || !stored.startsWith(PREFIX)) return true;
+    int end = stored.indexOf('$', PREFIX.length());
+    return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+  }
+
+  static String encode(String raw, byte[] salt, int iterations) {
+    var b64 = Base64.getEncoder().withoutPadding();
+    return PREFIX + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(derive(raw, salt, iterations, KEY_BITS));
+  }
+
+  static boolean check(String raw, String stored) {
+    if (raw == null || stored == null) return false;
+    if (!stored.startsWith(PREFIX)) return MessageDigest.isEqual(raw.getBytes(UTF_8), stored.getBytes(UTF_8));
+    var parts = stored.split("\\$");
+    if (parts.length != 4) return false;
+    var b64 = Base64.getDecoder();
+    var expected = b64.decode(parts[3]);
+    return MessageDigest.isEqual(derive(raw, b64.decode(parts[2]), Integer.parseInt(parts[1]), expected.length * 8), expected);
+  }
+
+  private static byte[] derive(String raw, byte[] salt, int iterations, int bits) {
+    var spec = new PBEKeySpec(raw.toCharArray(), salt, iterations, bits);
+    try {
+      return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+
+  private String dummy() {
+    var d = dummy;
+    if (d == null) dummy = d = hashNow("dummy");
+    return d;
+  }
+
+  @PreDestroy
+  void shutdown() { pool.shutdownNow(); }
+}
+```
+
+## auth/TokenService.java
+```java
+package com.odx.experts.auth;
+
+import com.odx.experts.common.Constants;
+import com.odx.experts.observability.BackgroundFailures;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact signed bearer tokens: base64url of a 58-byte payload (version, user id, role, expert id, issued-at, expiry,
+ * random token id) followed by its HMAC-SHA256, 120 characters in all. Verifying is one MAC and one map lookup, with
+ * no DB. Logout revokes by token id: the row goes to token_revocation (V10, primary) and into this pod's set at once;
+ * other pods pick it up within odx.auth.revocation-poll-ms. Entries leave the set when the token would have expired.
+ * Nothing is read while the context starts (a pod comes up with the primary unreachable, the CDS training run needs
+ * no DB). The set is loaded right after, before the pod reports ready ({@link #run}; the training run exits at refresh
+ * and never gets there); if the primary is down then, the scheduled refresh keeps trying. Until a load succeeds,
+ * verify fails closed.
+ */
+@Component
+public class TokenService implements ApplicationRunner {
+  private static final byte VERSION = 1;
+  private static final int PAYLOAD = 1 + 16 + 1 + 16 + 8 + 8 + 8, MAC_BYTES = 32, TOKEN_CHARS = (PAYLOAD + MAC_BYTES) * 4 / 3;
+  private static final Role[] ROLES = Role.values();
+
+  public record Issued(String token, Instant expiresAt) {}
+
+  private final ThreadLocal<Mac> macs;
+  private final Duration ttl;
+  private final JdbcTemplate jdbc;
+  private final Clock clock;
+  private final SecureRandom random = new SecureRandom();
+  private final Map<Long, Long> revoked = new ConcurrentHashMap<>(); // token id -> expiry, epoch seconds
+  private Instant watermark = Instant.EPOCH;
+  private volatile boolean loaded;
+
+  public TokenService(AuthProperties props, JdbcTemplate jdbc, Clock clock) {
+    var secret = props.secret() == null ? new byte[0] : props.secret().getBytes(UTF_8);
+    if (secret.length < 32) throw new IllegalArgumentException("odx.auth.secret must be at least 32 bytes");
+    var key = new SecretKeySpec(secret, "HmacSHA256");
+    this.macs = ThreadLocal.withInitial(() -> {
+      try { var m = Mac.getInstance("HmacSHA256"); m.init(key); return m; }
+      catch (GeneralSecurityException e) { throw new IllegalStateException(e); }
+    });
+    this.ttl = props.tokenTtl(); this.jdbc = jdbc; this.clock = clock;
+  }
+
+  public Issued issue(User u) {
+    long now = clock.instant().getEpochSecond(), exp = now + ttl.toSeconds();
+    var buf = ByteBuffer.allocate(PAYLOAD + MAC_BYTES);
+    buf.put(VERSION); putUuid(buf, u.getId()); buf.put((byte) u.getRole().ordinal()); putUuid(buf, u.getExpertId());
+    buf.putLong(now).putLong(exp).putLong(random.nextLong());
+    var mac = macs.get(); mac.update(buf.array(), 0, PAYLOAD);
+    buf.put(mac.doFinal());
+    return new Issued(Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array()), Instant.ofEpochSecond(exp));
+  }
+
+  /** Null when malformed, forged, expired or revoked. */
+  public Principal verify(String token) {
+    if (!loaded || token == null || token.length() != TOKEN_CHARS) return null;
+    byte[] raw;
+    try { raw = Base64.getUrlDecoder().decode(token); } catch (IllegalArgumentException e) { return null; }
+    if (raw.length != PAYLOAD + MAC_BYTES || raw[0] != VERSION) return null;
+    var mac = macs.get(); mac.update(raw, 0, PAYLOAD);
+    var expected = mac.doFinal();
+    int diff = 0;
+    for (int i = 0; i < MAC_BYTES; i++) diff |= expected[i] ^ raw[PAYLOAD + i]; // constant time
+    if (diff != 0) return null;
+    var buf = ByteBuffer.wrap(raw, 1, PAYLOAD - 1);
+    var userId = getUuid(buf); int role = buf.get(); var expertId = getUuid(buf);
+    buf.getLong(); // issued-at
+    long exp = buf.getLong(), id = buf.getLong();
+    if (exp <= clock.instant().getEpochSecond() || role < 0 || role >= ROLES.length || revoked.containsKey(id)) return null;
+    return new Principal(userId, ROLES[role], expertId, id, exp);
+  }
+
+  public void revoke(Principal p) {
+    jdbc.update("insert into token_revocation(token_id, user_id, expires_at) values (?, ?, ?) on conflict do nothing",
+      p.tokenId(), p.userId(), Timestamp.from(Instant.ofEpochSecond(p.expiresAt())));
+    revoked.put(p.tokenId(), p.expiresAt());
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    try { refresh(); }
+    catch (DataAccessException e) { BackgroundFailures.record("auth.revocations", null, 0, e); } // start anyway, closed
+  }
+
+  // runs on the primary (no shard selected on this thread); the first successful run opens verify
+  @Scheduled(fixedDelayString = "${odx.auth.revocation-poll-ms:2000}")
+  synchronized void refresh() {
+    long now = clock.instant().getEpochSecond();
+    revoked.values().removeIf(exp -> exp <= now);
+    jdbc.query("select token_id, expires_at, created_at from token_revocation where created_at > ? and expires_at > now()", rs -> {
+      var at = rs.getTimestamp("created_at").toInstant();
+      if (at.isAfter(watermark)) watermark = at;
+      revoked.put(rs.getLong("token_id"), rs.getTimestamp("expires_at").toInstant().getEpochSecond());
+    }, Timestamp.from(watermark.minus(Constants.POLL_OVERLAP)));
+    loaded = true;
+  }
+
+  @Scheduled(fixedDelay = 3_600_000)
+  void purge() { jdbc.update("delete from token_revocation where expires_at < now() - interval '1 day'"); }
+
+  private static void putUuid(ByteBuffer buf, UUID id) {
+    buf.putLong(id == null ? 0 : id.getMostSignificantBits()).putLong(id == null ? 0 : id.getLeastSignificantBits());
+  }
+
+  private static UUID getUuid(ByteBuffer buf) {
+    long msb = buf.getLong(), lsb = buf.getLong();
+    return msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+  }
+}
+```
+
+## auth/AuthInterceptor.java
+```java
+package com.odx.experts.auth;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Bearer tokens on /api/** (login excluded), verified in memory. Ids in the path are checked here: {userId} must be
+ * the caller, writes under /api/experts/{id} must come from that expert, /api/admin/** needs ADMIN; body ids are
+ * checked by the controllers through {@link Caller}. Catalogue and slot reads (GET /api/experts/**) stay open to
+ * anonymous callers.
+ */
+class AuthInterceptor implements HandlerInterceptor {
+  private final TokenService tokens;
+
+  AuthInterceptor(TokenService tokens) { this.tokens = tokens; }
+
+  @Override
+  public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) throws Exception {
+    var pattern = String.valueOf(req.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+    var header = req.getHeader(HttpHeaders.AUTHORIZATION);
+    if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+      return "GET".equals(req.getMethod()) && pattern.startsWith("/api/experts")
+        || reject(res, HttpStatus.UNAUTHORIZED, "Authentication required");
+    }
+    var p = tokens.verify(header.substring(7).trim());
+    if (p == null) return reject(res, HttpStatus.UNAUTHORIZED, "Invalid, expired or revoked token");
+    req.setAttribute(Caller.ATTRIBUTE, p);
+    if (p.admin()) return true;
+    if (pattern.startsWith("/api/admin")) return reject(res, HttpStatus.FORBIDDEN, "Admin only");
+
+    @SuppressWarnings("unchecked")
+    var vars = (Map<String, String>) req.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+    if (vars == null) return true;
+    var userId = vars.get("userId");
+    if (userId != null && !userId.equalsIgnoreCase(p.userId().toString()))
+      return reject(res, HttpStatus.FORBIDDEN, "Not allowed to act for another user");
+    var expertId = pattern.startsWith("/api/experts/{id}") && !"GET".equals(req.getMethod()) ? vars.get("id") : null;
+    if (expertId != null && (p.expertId() == null || !expertId.equalsIgnoreCase(p.expertId().toString())))
+      return reject(res, HttpStatus.FORBIDDEN, "Not allowed to act for another expert");
+    return true;
+  }
+
+  private static boolean reject(HttpServletResponse res, HttpStatus status, String message) throws Exception {
+    res.setStatus(status.value());
+    if (status == HttpStatus.UNAUTHORIZED) res.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+    res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    res.getWriter().write("{\"status\":\"" + status.name() + "\",\"message\":\"" + message + "\"}");
+    return false;
+  }
+}
+```
+
+## auth/AuthConfig.java
+```java
+package com.odx.experts.auth;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration @EnableConfigurationProperties(AuthProperties.class)
+public class AuthConfig implements WebMvcConfigurer {
+  private final AuthProperties props;
+  private final TokenService tokens;
+
+  public AuthConfig(AuthProperties props, TokenService tokens) { this.props = props; this.tokens = tokens; }
+
+  // first in the chain: admission budgets are then keyed by the authenticated user, and anonymous floods stop here
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    if (!props.enabled()) return;
+    registry.addInterceptor(new AuthInterceptor(tokens)).addPathPatterns("/api/**").excludePathPatterns("/api/auth/login")
+      .order(Ordered.HIGHEST_PRECEDENCE);
+  }
 }
 ```
 
@@ -276,22 +1142,51 @@ package com.odx.experts.auth;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
-  private final UserRepository users;
-  public AuthController(UserRepository users) { this.users = users; }
+  private final UserRepository users; private final PasswordHasher hasher; private final TokenService tokens;
+  public AuthController(UserRepository users, PasswordHasher hasher, TokenService tokens) {
+    this.users = users; this.hasher = hasher; this.tokens = tokens;
+  }
 
   public record LoginReq(String username, String password) {}
-  public record LoginRes(String userId, String name, String email, String role, String expertId) {}
+  public record LoginRes(String userId, String name, String email, String role, String expertId, String token, Instant expiresAt) {}
 
+  // async: the request thread is released while PasswordHasher's pool verifies (and, for legacy rows, rehashes)
   @PostMapping("/login")
-  public ResponseEntity<LoginRes> login(@RequestBody LoginReq req) {
-    var u = users.findByUsernameAndPasswordAndActiveTrue(req.username(), req.password())
-      .orElseThrow(() -> new IllegalArgumentException("Wrong username/password or inactive"));
-    return ResponseEntity.ok(new LoginRes(
-      u.getId().toString(), u.getName(), u.getEmail(), u.getRole().name(), u.getExpertId()==null?null:u.getExpertId().toString()
-    ));
+  public CompletableFuture<ResponseEntity<LoginRes>> login(@RequestBody LoginReq req) {
+    var u = req.username() == null ? null : users.findByUsernameAndActiveTrue(req.username()).orElse(null);
+    var stored = u == null ? null : u.getPassword();
+    return hasher.matches(req.password(), stored).thenApply(ok -> {
+      if (!ok) throw new IllegalArgumentException("Wrong username/password or inactive");
+      if (hasher.needsUpgrade(stored)) users.upgradePassword(u.getId(), stored, hasher.hashNow(req.password()));
+      var t = tokens.issue(u);
+      return ResponseEntity.ok(new LoginRes(
+        u.getId().toString(), u.getName(), u.getEmail(), u.getRole().name(), u.getExpertId()==null?null:u.getExpertId().toString(),
+        t.token(), t.expiresAt()
+      ));
+    });
+  }
+
+  // straight from the token, no DB
+  @GetMapping("/me")
+  public Map<String,Object> me() {
+    var p = Caller.current().orElseThrow(() -> new IllegalArgumentException("Not authenticated"));
+    var res = new LinkedHashMap<String,Object>();
+    res.put("userId", p.userId()); res.put("role", p.role()); res.put("expertId", p.expertId()); res.put("expiresAt", Instant.ofEpochSecond(p.expiresAt()));
+    return res;
+  }
+
+  @PostMapping("/logout")
+  public ResponseEntity<?> logout() {
+    tokens.revoke(Caller.current().orElseThrow(() -> new IllegalArgumentException("Not authenticated")));
+    return ResponseEntity.ok().build();
   }
 }
 ```
@@ -309,15 +1204,17 @@ public enum Domain { CYBER, TAX, CORE, PROCURE, REG }
 ```java
 package com.odx.experts.expert;
 
+import com.odx.experts.common.UuidV7Id;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
 import java.util.UUID;
 
 @Entity @Table(name = "experts")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Expert {
-  @Id @GeneratedValue private UUID id;
+  @Id @UuidV7Id private UUID id;
   @Column(nullable = false) private String name;
   @Enumerated(EnumType.STRING) @Column(nullable = false) private Domain domain;
   @Column(length = 1000) private String description;
@@ -325,6 +1222,7 @@ public class Expert {
   private double baseRating; // seed rating; updated via feedback aggregate (read-time)
   private int hourlyRate; // INR per hour
   private String phone; private String email;
+  @Column(insertable = false, updatable = false) private Instant updatedAt; // set by the V16 trigger, incl. new ratings
   @Builder.Default private String dayStart = "09:00";
   @Builder.Default private String dayEnd = "17:00";
   // default workdays (0=Sun...6=Sat) stored as CSV e.g. "1,2,3,4,5"
@@ -336,6 +1234,7 @@ public class Expert {
 ```java
 package com.odx.experts.expert;
 
+import com.odx.experts.common.UuidV7Id;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -345,7 +1244,7 @@ import java.util.UUID;
 @Entity @Table(name = "availability_override")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class AvailabilityOverride {
-  @Id @GeneratedValue private UUID id;
+  @Id @UuidV7Id private UUID id;
   @Column(nullable = false) private UUID expertId;
   @Column(nullable = false) private LocalDate date;
   @Builder.Default private boolean workday = true;
@@ -358,6 +1257,7 @@ public class AvailabilityOverride {
 ```java
 package com.odx.experts.expert;
 
+import com.odx.experts.common.UuidV7Id;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -367,7 +1267,7 @@ import java.util.UUID;
 @Entity @Table(name = "availability_window")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class AvailabilityWindow {
-  @Id @GeneratedValue private UUID id;
+  @Id @UuidV7Id private UUID id;
   @Column(nullable = false) private UUID expertId;
   @Column(nullable = false) private LocalDate date;
   @Column(nullable = false) private int startMin;
@@ -380,10 +1280,38 @@ public class AvailabilityWindow {
 package com.odx.experts.expert;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import java.time.LocalDate;
-import java.util.List; import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import java.time.Instant; import java.time.LocalDate;
+import java.util.Collection; import java.util.List; import java.util.UUID;
+
+public interface ExpertRepository extends JpaRepository<Expert, UUID> {
+  List<Expert> findByUpdatedAtAfter(Instant since); // expert/NextSlotIndex catalogue refresh (experts_updated_at)
+
+  interface SearchHit {
+    UUID getId(); String getName(); String getDomain(); String getDescription(); String getExperience();
+    Integer getHourlyRate(); Double getRating(); Float getRank();
+  }
 
-public interface ExpertRepository extends JpaRepository<Expert, UUID> {}
+  // GIN-indexed match on experts.search (V5), ranked, keyset-paged on (rank desc, id); rating only for the page rows
+  @Query(nativeQuery = true, value = """
+      select p.id, p.name, p.domain, p.description, p.experience, p."hourlyRate", p.rank,
+             coalesce((select avg(f.rating) from feedback f where f.expert_id = p.id), p.base_rating) as rating
+      from (
+        select e.id, e.name, e.domain::text as domain, e.description, e.experience, e.hourly_rate as "hourlyRate",
+               e.base_rating, ts_rank_cd(e.search, q) as rank
+        from experts e, websearch_to_tsquery('english', :q) q
+        where e.search @@ q
+          and (cast(:domain as text) is null or e.domain = cast(cast(:domain as text) as domain))
+          and (cast(:afterRank as real) is null
+               or ts_rank_cd(e.search, q) < cast(:afterRank as real)
+               or (ts_rank_cd(e.search, q) = cast(:afterRank as real) and e.id > cast(:afterId as uuid)))
+        order by rank desc, e.id
+        limit :limit
+      ) p
+      order by p.rank desc, p.id""")
+  List<SearchHit> search(String q, String domain, Float afterRank, UUID afterId, int limit);
+}
 
 public interface AvailabilityOverrideRepository extends JpaRepository<AvailabilityOverride, UUID> {
   List<AvailabilityOverride> findByExpertIdAndDate(UUID expertId, LocalDate date);
@@ -391,6 +1319,9 @@ public interface AvailabilityOverrideRepository extends JpaRepository<Availabili
 
 public interface AvailabilityWindowRepository extends JpaRepository<AvailabilityWindow, UUID> {
   List<AvailabilityWindow> findByExpertIdAndDateOrderByStartMin(UUID expertId, LocalDate date);
+
+  @Modifying @Query("delete from AvailabilityWindow w where w.expertId = :expertId and w.date in :dates")
+  int deleteByExpertIdAndDateIn(UUID expertId, Collection<LocalDate> dates);
 }
 ```
 
@@ -405,24 +1336,27 @@ public enum SessionStatus { UPCOMING, COMPLETED, CANCELLED }
 ```java
 package com.odx.experts.session;
 
+import com.odx.experts.common.UuidV7Id;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
-@Entity @Table(name = "sessions")
+// dynamic update: a cancel saved from an entity loaded before the link arrived must not write the link back to null
+@Entity @Table(name = "sessions") @DynamicUpdate
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Session {
-  @Id @GeneratedValue private UUID id;
+  @Id @UuidV7Id private UUID id;
   @Column(nullable = false) private UUID userId;
   @Column(nullable = false) private UUID expertId;
   @Column(nullable = false) private UUID purchaseId;
   @Column(nullable = false) private LocalDate date;
   @Column(nullable = false) private int startMin;
   @Column(nullable = false) private int endMin;
-  private String link;
+  private String link; // null until the meeting provider has answered
   @Enumerated(EnumType.STRING) @Column(nullable = false) private SessionStatus status;
   private String cancelReason; private UUID cancelledBy; private Instant cancelledAt;
   private Instant createdAt;
@@ -433,14 +1367,38 @@ public class Session {
 ```java
 package com.odx.experts.session;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.time.LocalDate;
-import java.util.List; import java.util.UUID;
+import java.util.Collection; import java.util.List; import java.util.Optional; import java.util.UUID;
 
 public interface SessionRepository extends JpaRepository<Session, UUID> {
-  List<Session> findByExpertIdAndDateAndStatusNot(UUID expertId, LocalDate date, SessionStatus status);
+  // slot computation, one round trip: {kind, start_min, end_min} of the day's live sessions (0) and waitlist holds (1)
+  @Query(nativeQuery = true, value = """
+      select 0 as kind, start_min, end_min from sessions where expert_id = :expertId and date = :date and status <> 'CANCELLED'
+      union all
+      select 1, held_start_min, held_start_min + :slotMin from waitlist where expert_id = :expertId and date = :date and state = 'HELD'""")
+  List<Object[]> findBusy(@Param("expertId") UUID expertId, @Param("date") LocalDate date, @Param("slotMin") int slotMin);
+
   List<Session> findByPurchaseId(UUID purchaseId);
+
+  // single cancel: row-locks the session, so a concurrent bulk cancel of it waits, or has already cancelled it
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<Session> findLockedById(UUID id);
+
+  // bulk cancel: row-locks the range; a single cancel of one of them waits in findLockedById and then sees CANCELLED
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  List<Session> findByExpertIdAndDateBetweenAndStatusOrderByDateAscStartMinAsc(UUID expertId, LocalDate from, LocalDate to, SessionStatus status);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("""
+      update Session s set s.status = com.odx.experts.session.SessionStatus.CANCELLED,
+        s.cancelledBy = :by, s.cancelledAt = :at, s.cancelReason = :reason
+      where s.id in :ids and s.status = com.odx.experts.session.SessionStatus.UPCOMING""")
+  int cancelAll(@Param("ids") Collection<UUID> ids, @Param("by") UUID by, @Param("at") Instant at, @Param("reason") String reason);
 }
 ```
 
@@ -448,6 +1406,7 @@ public interface SessionRepository extends JpaRepository<Session, UUID> {
 ```java
 package com.odx.experts.purchase;
 
+import com.odx.experts.common.UuidV7Id;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -457,7 +1416,7 @@ import java.util.UUID;
 @Entity @Table(name = "purchases")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Purchase {
-  @Id @GeneratedValue private UUID id;
+  @Id @UuidV7Id private UUID id;
   @Column(nullable = false) private UUID userId;
   @Column(nullable = false) private UUID expertId;
   @Column(nullable = false) private int packageHours; // 1,4,10,20
@@ -471,11 +1430,17 @@ public class Purchase {
 ```java
 package com.odx.experts.purchase;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import java.util.List; import java.util.UUID;
 
 public interface PurchaseRepository extends JpaRepository<Purchase, UUID> {
   List<Purchase> findByUserId(UUID userId);
+
+  // credits hours back in place (capped at the package size) without a read-modify-write round trip
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update Purchase p set p.hoursRemaining = least(cast(p.packageHours as double), p.hoursRemaining + :hours) where p.id = :id")
+  int refund(@Param("id") UUID id, @Param("hours") double hours);
 }
 ```
 
@@ -485,13 +1450,13 @@ public interface PurchaseRepository extends JpaRepository<Purchase, UUID> {
 ```java
 package com.odx.experts.billing;
 
-import jakarta.persistence.*; import lombok.*; import java.time.Instant; import java.util.UUID;
+import com.odx.experts.common.UuidV7Id; import jakarta.persistence.*; import lombok.*; import java.time.Instant; import java.util.UUID;
 
 @Entity @Table(name = "payouts") @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
-public class Payout { @Id @GeneratedValue private UUID id; @Column(nullable=false) private UUID expertId; @Column(nullable=false) private int amount; private Instant createdAt; private String note; }
+public class Payout { @Id @UuidV7Id private UUID id; @Column(nullable=false) private UUID expertId; @Column(nullable=false) private int amount; private Instant createdAt; private String note; private String settlementPeriod; }
 
 @Entity @Table(name = "client_payments") @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
-public class ClientPayment { @Id @GeneratedValue private UUID id; @Column(nullable=false) private UUID userId; @Column(nullable=false) private int amount; private Instant createdAt; private String note; }
+public class ClientPayment { @Id @UuidV7Id private UUID id; @Column(nullable=false) private UUID userId; @Column(nullable=false) private int amount; private Instant createdAt; private String note; }
 ```
 
 ```java
@@ -510,12 +1475,12 @@ public interface ClientPaymentRepository extends JpaRepository<ClientPayment, UU
 ```java
 package com.odx.experts.feedback;
 
-import jakarta.persistence.*; import lombok.*; import java.time.Instant; import java.util.UUID;
+import com.odx.experts.common.UuidV7Id; import jakarta.persistence.*; import lombok.*; import java.time.Instant; import java.util.UUID;
 
 @Entity @Table(name = "feedback")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Feedback {
-  @Id @GeneratedValue private UUID id;
+  @Id @UuidV7Id private UUID id;
   @Column(nullable=false) private UUID userId;
   @Column(nullable=false) private UUID expertId;
   @Column(nullable=false) private UUID purchaseId;
@@ -530,511 +1495,5737 @@ public class Feedback {
 package com.odx.experts.feedback;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import java.util.List; import java.util.UUID;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection; import java.util.List; import java.util.UUID;
 
 public interface FeedbackRepository extends JpaRepository<Feedback, UUID> {
   List<Feedback> findByExpertId(UUID expertId);
   boolean existsByPurchaseIdAndUserId(UUID purchaseId, UUID userId);
+
+  interface ExpertRating { UUID getExpertId(); Double getRating(); }
+  @Query("select f.expertId as expertId, avg(f.rating) as rating from Feedback f group by f.expertId")
+  List<ExpertRating> averageRatings();
+  @Query("select f.expertId as expertId, avg(f.rating) as rating from Feedback f where f.expertId in :ids group by f.expertId")
+  List<ExpertRating> averageRatings(@Param("ids") Collection<UUID> ids);
 }
 ```
 
 ---
 
-## dto/BookingDtos.java
+## observability/events
 ```java
-package com.odx.experts.dto;
+package com.odx.experts.observability;
 
-import java.time.LocalDate; import java.util.List; import java.util.UUID;
+import jdk.jfr.*;
 
-public record Slot(int startMin, int endMin) {}
-public record BatchBookReq(UUID purchaseId, LocalDate date, List<Slot> slots) {}
-public record BookedSession(String sessionId, String link) {}
-public record BatchBookRes(List<BookedSession> sessions, double hoursDeducted, double hoursRemaining) {}
+// Custom JFR events. Fields are filled only when shouldCommit() is true, so with no recording running the cost is
+// a begin()/shouldCommit() pair on an object that escape analysis removes.
+
+@Name("com.odx.SlotComputation") @Label("Slot computation") @Category({"ODX", "Booking"}) @StackTrace(false)
+public class SlotComputationEvent extends Event {
+  @Label("Expert") public String expertId;
+  @Label("Date") public String date;
+  @Label("Free slots") public int slotCount;
+  @Label("Booked sessions") public int sessionCount;
+  @Label("SQL statements") public int queryCount;
+  @Label("Outcome") public String outcome;
+}
+
+@Name("com.odx.Booking") @Label("Booking operation") @Category({"ODX", "Booking"}) @StackTrace(false)
+public class BookingEvent extends Event {
+  @Label("Operation") public String operation; // book | cancel
+  @Label("Expert") public String expertId;
+  @Label("Date") public String date;
+  @Label("Requested slots") public int slotCount;
+  @Label("Sessions written") public int sessionCount;
+  @Label("SQL statements") public int queryCount;
+  @Label("Outcome") public String outcome; // OK | REJECTED | exception class
+}
+
+@Name("com.odx.AdminAggregation") @Label("Admin aggregation") @Category({"ODX", "Admin"}) @StackTrace(false)
+public class AdminAggregationEvent extends Event {
+  @Label("Report") public String report;
+  @Label("Rows") public int rowCount;
+  @Label("SQL statements") public int queryCount;
+  @Label("Outcome") public String outcome;
+}
+
+@Name("com.odx.BackgroundFailure") @Label("Background task failure") @Category({"ODX", "Background"}) @StackTrace(false)
+public class BackgroundFailureEvent extends Event {
+  @Label("Task") public String task; // see BackgroundFailures
+  @Label("Expert") public String expertId;
+  @Label("Items") public int itemCount;
+  @Label("Error") public String error; // exception class: message
+}
 ```
 
-## dto/CancelDto.java
+## observability/BackgroundFailures.java
 ```java
-package com.odx.experts.dto;
-
-import java.util.UUID;
+package com.odx.experts.observability;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Failures of work no request waits for (waitlist.match, meetings.provision, reminders.send): a
+ * com.odx.BackgroundFailure event when a recording runs, and a per-task count since start at GET /api/admin/jfr
+ * either way, so a task that keeps failing does not look like one with nothing to do.
+ */
+public final class BackgroundFailures {
+  private static final Map<String, LongAdder> COUNTS = new ConcurrentHashMap<>();
+
+  private BackgroundFailures() {}
+
+  public static void record(String task, Object expertId, int itemCount, Throwable e) {
+    COUNTS.computeIfAbsent(task, k -> new LongAdder()).increment();
+    var ev = new BackgroundFailureEvent();
+    if (ev.shouldCommit()) {
+      ev.task = task; ev.expertId = expertId == null ? null : expertId.toString(); ev.itemCount = itemCount;
+      ev.error = e.getClass().getName() + ": " + e.getMessage();
+      ev.commit();
+    }
+  }
 
-public record CancelDto(UUID byUserId, String reason) {}
+  public static Map<String, Long> counts() {
+    var out = new TreeMap<String, Long>();
+    COUNTS.forEach((task, n) -> out.put(task, n.sum()));
+    return out;
+  }
+}
 ```
 
-## dto/FeedbackDto.java
+## observability/QueryCounter.java
 ```java
-package com.odx.experts.dto;
+package com.odx.experts.observability;
 
-import java.util.UUID;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
 
-public record FeedbackReq(UUID purchaseId, int rating, String text, UUID userId) {}
-```
+/** Counts Hibernate SQL statements per thread; events record the delta across the measured operation. */
+public class QueryCounter implements StatementInspector {
+  private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
 
----
+  @Override public String inspect(String sql) { COUNT.get()[0]++; return sql; }
 
-## util/TimeUtil.java
+  public static int current() { return COUNT.get()[0]; }
+}
+```
+
+## observability/FlightRecorderService.java
 ```java
-package com.odx.experts.util;
+package com.odx.experts.observability;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
-import java.time.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
 
-public class TimeUtil {
-  public static int toMinutes(String hhmm) {
-    var p = hhmm.split(":"); return Integer.parseInt(p[0])*60 + Integer.parseInt(p[1]);
+/** One rolling in-process recording (JDK "default" settings, ~1% overhead) that can be dumped on demand. */
+@Service
+public class FlightRecorderService {
+  private final boolean startOnBoot; private final Duration maxAge; private final DataSize maxSize; private final Path dumpDir;
+  private Recording recording;
+
+  public FlightRecorderService(@Value("${odx.jfr.start-on-boot:false}") boolean startOnBoot,
+                               @Value("${odx.jfr.max-age:30m}") Duration maxAge,
+                               @Value("${odx.jfr.max-size:200MB}") DataSize maxSize,
+                               @Value("${odx.jfr.dump-dir:/tmp}") Path dumpDir) {
+    this.startOnBoot = startOnBoot; this.maxAge = maxAge; this.maxSize = maxSize; this.dumpDir = dumpDir;
   }
-  public static String toHHMM(int minutes) {
-    int h = minutes/60, m = minutes%60; return String.format("%02d:%02d", h, m);
+
+  @EventListener(ApplicationReadyEvent.class)
+  void onReady() throws IOException, ParseException { if (startOnBoot) start(); }
+
+  public synchronized boolean start() throws IOException, ParseException {
+    if (recording != null && recording.getState() == RecordingState.RUNNING) return false;
+    var r = new Recording(Configuration.getConfiguration("default"));
+    r.setName("odx-rolling"); r.setToDisk(true); r.setMaxAge(maxAge); r.setMaxSize(maxSize.toBytes());
+    for (var ev : new String[]{"com.odx.SlotComputation", "com.odx.Booking", "com.odx.AdminAggregation", "com.odx.BackgroundFailure"})
+      r.enable(ev).withoutThreshold();
+    r.start();
+    recording = r;
+    return true;
   }
-  public static boolean overlaps(int aStart, int aEnd, int bStart, int bEnd) {
-    return Math.max(aStart, bStart) < Math.min(aEnd, bEnd);
+
+  /** Writes the current rolling window to a new .jfr file and returns its path. */
+  public synchronized Path dump() throws IOException {
+    if (recording == null || recording.getState() != RecordingState.RUNNING) throw new IllegalArgumentException("No recording running");
+    Files.createDirectories(dumpDir);
+    var file = dumpDir.resolve("odx-" + Instant.now().toString().replace(':', '-') + ".jfr");
+    recording.dump(file);
+    return file;
   }
-  public static Instant atDateAndMinute(LocalDate date, int minute, ZoneId zone) {
-    return date.atStartOfDay(zone).plusMinutes(minute).toInstant();
+
+  public synchronized boolean stop() {
+    if (recording == null) return false;
+    recording.close(); recording = null;
+    return true;
   }
+
+  public synchronized boolean running() { return recording != null && recording.getState() == RecordingState.RUNNING; }
 }
 ```
 
-## util/ValidationUtil.java
+## observability/FlightRecorderController.java
 ```java
-package com.odx.experts.util;
+package com.odx.experts.observability;
 
-import java.time.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
 
-public class ValidationUtil {
-  public static void ensureFuture(LocalDate date, int startMin, Clock clock) {
-    var now = Instant.now(clock); var zoned = ZonedDateTime.ofInstant(now, ZoneId.systemDefault());
-    var today = zoned.toLocalDate();
-    if (date.isBefore(today)) throw new IllegalArgumentException("Cannot book past dates");
-    if (date.isEqual(today)) {
-      int nowMin = zoned.getHour()*60 + zoned.getMinute();
-      if (startMin <= nowMin) throw new IllegalArgumentException("Cannot book past time slots today");
-    }
-  }
-  public static void ensureCancelable(LocalDate date, int startMin, Clock clock) {
-    var start = TimeUtil.atDateAndMinute(date, startMin, ZoneId.systemDefault());
-    var diff = Duration.between(Instant.now(clock), start);
-    if (diff.toHours() < 24) throw new IllegalArgumentException("Cancellation allowed only ≥24h prior");
+import java.util.Map;
+
+@RestController @RequestMapping("/api/admin/jfr") @RequiredArgsConstructor
+public class FlightRecorderController {
+  private final FlightRecorderService jfr;
+
+  @GetMapping public Map<String,Object> status() { return Map.of("running", jfr.running(), "backgroundFailures", BackgroundFailures.counts()); }
+  @PostMapping("/start") public Map<String,Object> start() throws Exception { return Map.of("started", jfr.start()); }
+  @PostMapping("/stop") public Map<String,Object> stop() { return Map.of("stopped", jfr.stop()); }
+
+  // the file also stays in odx.jfr.dump-dir; open it with JDK Mission Control or `jfr print --events com.odx.Booking`
+  @PostMapping("/dump")
+  public ResponseEntity<FileSystemResource> dump() throws Exception {
+    var file = jfr.dump();
+    return ResponseEntity.ok()
+      .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+      .contentType(MediaType.APPLICATION_OCTET_STREAM).body(new FileSystemResource(file));
   }
 }
 ```
 
----
-
-## expert/SlotService.java
+## admission/TokenBucket.java
 ```java
-package com.odx.experts.expert;
+package com.odx.experts.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in GCRA form: a single "theoretical arrival time" advanced by one emission interval per
+ * admitted request with one CAS; a request is refused when that time runs more than the burst ahead of now.
+ */
+public final class TokenBucket {
+  private final long intervalNanos, burstNanos;
+  private final AtomicLong tat;
+
+  public TokenBucket(double ratePerSec, int burst, long nowNanos) {
+    this.intervalNanos = (long) (1_000_000_000L / ratePerSec);
+    this.burstNanos = intervalNanos * Math.max(1, burst);
+    this.tat = new AtomicLong(nowNanos);
+  }
 
-import com.odx.experts.common.Constants;
-import com.odx.experts.session.SessionRepository;
-import com.odx.experts.session.SessionStatus;
-import com.odx.experts.util.TimeUtil;
-import lombok.RequiredArgsConstructor;
-import org.springframework.stereotype.Service;
+  /** 0 when admitted, otherwise nanos until a token frees up. */
+  public long tryAcquire(long nowNanos) {
+    for (;;) {
+      long cur = tat.get();
+      long next = Math.max(cur, nowNanos) + intervalNanos;
+      long wait = next - nowNanos - burstNanos;
+      if (wait > 0) return wait;
+      if (tat.compareAndSet(cur, next)) return 0;
+    }
+  }
 
-import java.time.LocalDate;
-import java.util.*;
+  /** Gives back a token taken by {@link #tryAcquire} for a request that was refused later on. */
+  public void release() { tat.addAndGet(-intervalNanos); } // landing below now is a full bucket; tryAcquire clamps to now
 
-@Service @RequiredArgsConstructor
-public class SlotService {
-  private final AvailabilityOverrideRepository overridesRepo;
-  private final AvailabilityWindowRepository windowRepo;
-  private final SessionRepository sessionRepo;
+  /** A full bucket behaves exactly like a new one, so it can be dropped from the key map. */
+  public boolean isFull(long nowNanos) { return tat.get() <= nowNanos; }
+}
+```
 
-  public List<int[]> slotsForDate(Expert ex, LocalDate date) {
-    // existing sessions (not cancelled)
-    var sessions = sessionRepo.findByExpertIdAndDateAndStatusNot(ex.getId(), date, SessionStatus.CANCELLED);
+## admission/AdmissionProperties.java
+```java
+package com.odx.experts.admission;
 
-    // manual windows else default/override
-    var manual = windowRepo.findByExpertIdAndDateOrderByStartMin(ex.getId(), date);
-    List<int[]> windows = new ArrayList<>();
-    if (!manual.isEmpty()) {
-      manual.forEach(w -> windows.add(new int[]{w.getStartMin(), w.getEndMin()}));
-    } else {
-      var ov = overridesRepo.findByExpertIdAndDate(ex.getId(), date).stream().findFirst().orElse(null);
-      boolean workday = true; String start = ex.getDayStart(), end = ex.getDayEnd();
-      if (ov != null) { workday = ov.isWorkday(); if (ov.getDayStart()!=null) start = ov.getDayStart(); if (ov.getDayEnd()!=null) end = ov.getDayEnd(); }
-      if (!workday) return List.of();
-      windows.add(new int[]{ TimeUtil.toMinutes(start), TimeUtil.toMinutes(end) });
-    }
+import org.springframework.boot.context.properties.ConfigurationProperties;
 
-    List<int[]> out = new ArrayList<>();
-    for (var w : windows) {
-      for (int t = w[0]; t + Constants.SLOT_MIN <= w[1]; t += Constants.SLOT_MIN) {
-        final int st=t, en=t+Constants.SLOT_MIN;
-        boolean clash = sessions.stream().anyMatch(s -> Math.max(st, s.getStartMin()) < Math.min(en, s.getEndMin()));
-        if (!clash) out.add(new int[]{st, en});
-      }
-    }
-    out.sort(Comparator.comparingInt(a -> a[0]));
-    return out;
-  }
+/** maxConcurrent 0 (the default) derives the limit from the connection pool; see {@link AdmissionConfig}. */
+@ConfigurationProperties("odx.admission")
+public record AdmissionProperties(boolean enabled, int maxConcurrent, Budget slots, Budget booking) {
+  /** Rates are requests/second; a rate of 0 disables that key. */
+  public record Budget(double perUserRps, int perUserBurst, double perExpertRps, int perExpertBurst) {}
 }
 ```
 
-## expert/ExpertController.java
+## admission/AdmissionInterceptor.java
 ```java
-package com.odx.experts.expert;
+package com.odx.experts.admission;
 
-import com.odx.experts.feedback.FeedbackRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.*;
+import com.odx.experts.auth.Caller;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds load before it reaches the DB: a per-user and a per-expert token bucket for one endpoint group, then a
+ * concurrency limit shared by all guarded groups. Refusals are 429 with Retry-After and are counted per reason.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+  private static final String HOLDS_PERMIT = AdmissionInterceptor.class.getName() + ".permit";
+
+  private final String group; private final AdmissionProperties.Budget budget; private final AtomicInteger inFlight; private final int maxConcurrent;
+  private final Map<String, TokenBucket> users = new ConcurrentHashMap<>(), experts = new ConcurrentHashMap<>();
+  final LongAdder admitted = new LongAdder(), shedUser = new LongAdder(), shedExpert = new LongAdder(), shedConcurrency = new LongAdder();
+
+  AdmissionInterceptor(String group, AdmissionProperties.Budget budget, AtomicInteger inFlight, int maxConcurrent) {
+    this.group = group; this.budget = budget; this.inFlight = inFlight; this.maxConcurrent = maxConcurrent;
+  }
 
-import java.time.LocalDate;
-import java.util.*;
-import java.util.stream.Collectors;
+  @Override
+  public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) throws Exception {
+    long now = System.nanoTime();
+    @SuppressWarnings("unchecked")
+    var vars = (Map<String, String>) req.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+    var expertId = vars == null ? null : vars.get("id");
+    var user = userKey(req, vars);
+
+    // a request refused by a later check gives its earlier tokens back: shedding must not spend the caller's budget
+    var userBucket = budget.perUserRps() > 0 ? bucket(users, user, budget.perUserRps(), budget.perUserBurst(), now) : null;
+    long wait = userBucket != null ? userBucket.tryAcquire(now) : 0;
+    if (wait > 0) { shedUser.increment(); return reject(res, wait, "Too many requests for this user"); }
+    var expertBucket = expertId != null && budget.perExpertRps() > 0 ? bucket(experts, expertId, budget.perExpertRps(), budget.perExpertBurst(), now) : null;
+    wait = expertBucket != null ? expertBucket.tryAcquire(now) : 0;
+    if (wait > 0) { release(userBucket); shedExpert.increment(); return reject(res, wait, "Too many requests for this expert"); }
+
+    if (inFlight.incrementAndGet() > maxConcurrent) {
+      inFlight.decrementAndGet(); release(userBucket); release(expertBucket); shedConcurrency.increment();
+      return reject(res, 1_000_000_000L, "Server busy");
+    }
+    req.setAttribute(HOLDS_PERMIT, Boolean.TRUE);
+    admitted.increment();
+    return true;
+  }
 
-@RestController @RequestMapping("/api/experts") @RequiredArgsConstructor
-public class ExpertController {
-  private final ExpertRepository experts;
-  private final AvailabilityWindowRepository windows;
-  private final FeedbackRepository feedbacks;
-  private final SlotService slots;
+  @Override
+  public void afterCompletion(HttpServletRequest req, HttpServletResponse res, Object handler, Exception ex) {
+    if (req.getAttribute(HOLDS_PERMIT) != null) { req.removeAttribute(HOLDS_PERMIT); inFlight.decrementAndGet(); }
+  }
 
-  @GetMapping
-  public List<Map<String,Object>> list() {
-    return experts.findAll().stream().map(e -> {
-      var fb = feedbacks.findByExpertId(e.getId());
-      double avg = fb.isEmpty()? e.getBaseRating() : fb.stream().mapToInt(f->f.getRating()).average().orElse(e.getBaseRating());
-      return Map.of(
-        "id", e.getId(), "name", e.getName(), "domain", e.getDomain(),
-        "description", e.getDescription(), "experience", e.getExperience(),
-        "rating", avg, "rate", e.getHourlyRate()
-      );
-    }).collect(Collectors.toList());
+  /** Drops buckets that refilled completely; called periodically by {@link AdmissionConfig}. */
+  void sweep() {
+    long now = System.nanoTime();
+    users.values().removeIf(b -> b.isFull(now)); experts.values().removeIf(b -> b.isFull(now));
   }
 
-  public record WindowReq(String startHHmm, String endHHmm) {}
+  Map<String, Object> stats() {
+    return Map.of("group", group, "admitted", admitted.sum(), "shedUser", shedUser.sum(), "shedExpert", shedExpert.sum(),
+      "shedConcurrency", shedConcurrency.sum(), "trackedUsers", users.size(), "trackedExperts", experts.size());
+  }
 
-  @PostMapping("/{id}/availability/{date}")
-  public ResponseEntity<?> addWindow(@PathVariable UUID id, @PathVariable String date, @RequestBody WindowReq req) {
-    var d = LocalDate.parse(date);
-    var start = com.odx.experts.util.TimeUtil.toMinutes(req.startHHmm());
-    var end = com.odx.experts.util.TimeUtil.toMinutes(req.endHHmm());
-    if (end - start < 30) throw new IllegalArgumentException("Minimum window 30 minutes");
-    windows.save(AvailabilityWindow.builder().expertId(id).date(d).startMin(start).endMin(end).build());
-    return ResponseEntity.ok(Map.of("ok", true));
+  // path userId for booking (checked against the token by auth, which runs first), else the token's user; anonymous
+  // slot views by address only: a client-chosen key would let one caller spread over any number of buckets
+  private static String userKey(HttpServletRequest req, Map<String, String> vars) {
+    var id = vars == null ? null : vars.get("userId");
+    if (id == null) id = Caller.current().map(p -> p.userId().toString()).orElse(null);
+    return id != null ? id : req.getRemoteAddr();
   }
 
-  @GetMapping("/{id}/slots/{date}")
-  public List<Map<String,Integer>> slots(@PathVariable UUID id, @PathVariable String date) {
-    var ex = experts.findById(id).orElseThrow();
-    var res = slots.slotsForDate(ex, LocalDate.parse(date));
-    return res.stream().map(a -> Map.of("startMin", a[0], "endMin", a[1])).toList();
+  private static void release(TokenBucket b) { if (b != null) b.release(); }
+
+  private static TokenBucket bucket(Map<String, TokenBucket> map, String key, double rps, int burst, long now) {
+    var b = map.get(key); // fast path without allocating a lambda
+    return b != null ? b : map.computeIfAbsent(key, k -> new TokenBucket(rps, burst, now));
+  }
+
+  private static boolean reject(HttpServletResponse res, long waitNanos, String message) throws Exception {
+    res.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    res.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L)));
+    res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    res.getWriter().write("{\"status\":\"TOO_MANY_REQUESTS\",\"message\":\"" + message + "\"}");
+    return false;
   }
 }
 ```
 
----
-
-## session/BookingService.java
+## admission/AdmissionConfig.java
 ```java
-package com.odx.experts.session;
-
-import com.odx.experts.common.Constants;
-import com.odx.experts.dto.*;
-import com.odx.experts.expert.*;
-import com.odx.experts.purchase.Purchase;
-import com.odx.experts.purchase.PurchaseRepository;
-import com.odx.experts.util.ValidationUtil;
-import lombok.RequiredArgsConstructor;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.time.*;
-import java.util.*;
-
-@Service @RequiredArgsConstructor
-public class BookingService {
-  private final PurchaseRepository purchases;
-  private final ExpertRepository experts;
-  private final SessionRepository sessions;
-  private final SlotService slotService;
-  private final Clock clock;
-
-  @Transactional
-  public BatchBookRes book(BatchBookReq req, UUID userId) {
-    var purchase = purchases.findById(req.purchaseId()).orElseThrow(() -> new IllegalArgumentException("Purchase not found"));
-    if (!purchase.getUserId().equals(userId)) throw new IllegalArgumentException("Purchase does not belong to user");
-    var expert = experts.findById(purchase.getExpertId()).orElseThrow();
-
-    // validations: future slots, in available slots, enough hours
-    var available = slotService.slotsForDate(expert, req.date());
-    double requiredHours = req.slots().size() * (Constants.SLOT_MIN/60.0);
-    if (requiredHours - purchase.getHoursRemaining() > 1e-6) throw new IllegalArgumentException("Not enough hours remaining");
-
-    List<BookedSession> created = new ArrayList<>();
-    for (var s : req.slots()) {
-      ValidationUtil.ensureFuture(req.date(), s.startMin(), clock);
-      boolean ok = available.stream().anyMatch(a -> a[0]==s.startMin() && a[1]==s.endMin());
-      if (!ok) throw new IllegalArgumentException("One or more slots are no longer available");
-      var entity = Session.builder()
-        .userId(userId).expertId(expert.getId()).purchaseId(purchase.getId())
-        .date(req.date()).startMin(s.startMin()).endMin(s.endMin())
-        .status(SessionStatus.UPCOMING).link("https://meet.example.com/"+UUID.randomUUID().toString().substring(0,8))
-        .createdAt(Instant.now(clock)).build();
-      sessions.save(entity);
-      created.add(new BookedSession(entity.getId().toString(), entity.getLink()));
-    }
+package com.odx.experts.admission;
 
-    purchase.setHoursRemaining(Math.max(0, purchase.getHoursRemaining() - requiredHours));
-    purchases.save(purchase);
-    return new BatchBookRes(created, requiredHours, purchase.getHoursRemaining());
+import com.odx.experts.shard.ShardProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Without an explicit odx.admission.max-concurrent the in-flight limit is the smallest connection pool: every guarded
+ * request needs a connection on its expert's shard, and a burst for a few experts can all land on one shard. Past
+ * that, requests would only queue inside Hikari until its connection timeout instead of being shed at once.
+ */
+@Configuration @EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig implements WebMvcConfigurer {
+  private final AdmissionProperties props;
+  private final int maxConcurrent;
+  private final AtomicInteger inFlight = new AtomicInteger(); // shared by every guarded group
+  final AdmissionInterceptor slots, booking;
+
+  public AdmissionConfig(AdmissionProperties props, ShardProperties shards,
+                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+    this.props = props;
+    this.maxConcurrent = props.maxConcurrent() > 0 ? props.maxConcurrent() : shards.smallestPool(poolSize);
+    this.slots = new AdmissionInterceptor("slots", props.slots(), inFlight, maxConcurrent);
+    this.booking = new AdmissionInterceptor("booking", props.booking(), inFlight, maxConcurrent);
   }
 
-  @Transactional
-  public void cancel(UUID sessionId, UUID byUserId, String reason) {
-    var s = sessions.findById(sessionId).orElseThrow(() -> new IllegalArgumentException("Session not found"));
-    ValidationUtil.ensureCancelable(s.getDate(), s.getStartMin(), clock);
-    if (s.getStatus() == SessionStatus.CANCELLED) return;
-    s.setStatus(SessionStatus.CANCELLED); s.setCancelledBy(byUserId); s.setCancelledAt(Instant.now(clock)); s.setCancelReason(reason);
-    sessions.save(s);
-    // refund
-    var p = purchases.findById(s.getPurchaseId()).orElseThrow();
-    double mins = (s.getEndMin() - s.getStartMin());
-    p.setHoursRemaining(Math.min(p.getPackageHours(), p.getHoursRemaining() + mins/60.0));
-    purchases.save(p);
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    if (!props.enabled()) return;
+    registry.addInterceptor(slots).addPathPatterns("/api/experts/*/slots", "/api/experts/*/slots/**");
+    registry.addInterceptor(booking).addPathPatterns("/api/sessions/batch-book/*");
   }
+
+  @Scheduled(fixedDelay = 60_000)
+  void sweep() { slots.sweep(); booking.sweep(); }
+
+  List<Object> stats() { return List.of(slots.stats(), booking.stats(), java.util.Map.of("inFlight", inFlight.get(), "maxConcurrent", maxConcurrent)); }
 }
 ```
 
-## session/SessionController.java
+## admission/AdmissionController.java
 ```java
-package com.odx.experts.session;
+package com.odx.experts.admission;
 
-import com.odx.experts.dto.*;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.UUID;
+import java.util.List;
 
-@RestController @RequestMapping("/api/sessions") @RequiredArgsConstructor
-public class SessionController {
-  private final BookingService booking;
+// shed counters per group and reason, for dashboards/alerts
+@RestController @RequestMapping("/api/admin/admission") @RequiredArgsConstructor
+public class AdmissionController {
+  private final AdmissionConfig admission;
 
-  @PostMapping("/batch-book/{userId}")
-  public ResponseEntity<BatchBookRes> book(@PathVariable UUID userId, @RequestBody BatchBookReq req) {
-    return ResponseEntity.ok(booking.book(req, userId));
-  }
+  @GetMapping public List<Object> stats() { return admission.stats(); }
+}
+```
 
-  @PostMapping("/{id}/cancel")
-  public ResponseEntity<?> cancel(@PathVariable UUID id, @RequestBody CancelDto dto) {
-    booking.cancel(id, dto.byUserId(), dto.reason());
-    return ResponseEntity.ok().build();
+## idempotency/IdempotencyProperties.java
+```java
+package com.odx.experts.idempotency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/** odx.idempotency: which POST endpoints honour Idempotency-Key, and how long outcomes are kept. */
+@ConfigurationProperties("odx.idempotency")
+public record IdempotencyProperties(Boolean enabled, List<String> paths, Duration ttl, Duration lease, Duration waitFor, Integer cacheSize) {
+  public IdempotencyProperties {
+    if (enabled == null) enabled = true;
+    paths = paths == null ? List.of("/api/sessions/batch-book/*", "/api/purchases", "/api/admin/payouts") : List.copyOf(paths);
+    if (ttl == null) ttl = Duration.ofHours(24);
+    if (lease == null) lease = Duration.ofMinutes(2); // longer than any request; a claim older than this lost its owner
+    if (waitFor == null) waitFor = Duration.ofSeconds(10);
+    if (cacheSize == null) cacheSize = 10_000;
   }
 }
 ```
 
----
-
-## purchase/PurchaseController.java
+## idempotency/IdempotencyStore.java
 ```java
-package com.odx.experts.purchase;
+package com.odx.experts.idempotency;
 
-import lombok.RequiredArgsConstructor;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
 
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Map; import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Outcomes of requests sent with an Idempotency-Key: rows in idempotency_key (V12, primary shard) fronted by a bounded
+ * in-memory cache of finished responses. The first request claims the key by inserting its row; duplicates on the same
+ * pod wait on that request's future, duplicates on other pods poll the row, both up to odx.idempotency.wait-for. A claim
+ * whose owner died is taken over once its lease has run out; rows expire after the TTL.
+ */
+@Component
+public class IdempotencyStore {
+  private static final long POLL_MS = 50;
+
+  public record Stored(byte[] requestHash, int status, String contentType, byte[] body, Instant expiresAt) {}
+  public enum Kind { OWNED, REPLAY, MISMATCH, BUSY }
+  public record Outcome(Kind kind, Stored stored) {}
+
+  private record Row(Stored stored, boolean running, Timestamp lockedUntil) {}
+
+  private final JdbcTemplate jdbc; private final Clock clock;
+  private final Duration ttl, lease, waitFor;
+  private final Map<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+  private final Map<String, Stored> done;
+
+  public IdempotencyStore(JdbcTemplate jdbc, IdempotencyProperties props, Clock clock) {
+    this.jdbc = jdbc; this.clock = clock; this.ttl = props.ttl(); this.lease = props.lease(); this.waitFor = props.waitFor();
+    int max = props.cacheSize();
+    this.done = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<String, Stored> e) { return size() > max; }
+    });
+  }
 
-@RestController @RequestMapping("/api/purchases") @RequiredArgsConstructor
-public class PurchaseController {
-  private final PurchaseRepository purchases;
+  /** OWNED: run the request and then {@link #complete} or {@link #release}; otherwise answer with the outcome. */
+  public Outcome acquire(String id, byte[] requestHash) throws InterruptedException {
+    long deadline = System.nanoTime() + waitFor.toNanos();
+    for (;;) {
+      var cached = done.get(id);
+      if (cached != null && cached.expiresAt().isAfter(clock.instant())) return replay(cached, requestHash);
+      var mine = new CompletableFuture<Stored>();
+      var original = inFlight.putIfAbsent(id, mine);
+      if (original != null) {
+        try {
+          var s = original.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+          if (s != null) return replay(s, requestHash);
+          continue; // released without an outcome (failed, or busy elsewhere): try for the key ourselves
+        } catch (TimeoutException e) {
+          return new Outcome(Kind.BUSY, null);
+        } catch (ExecutionException e) {
+          continue;
+        }
+      }
+      var out = claim(id, requestHash, deadline);
+      if (out.kind() != Kind.OWNED) { inFlight.remove(id, mine); mine.complete(out.kind() == Kind.REPLAY ? out.stored() : null); }
+      return out;
+    }
+  }
 
-  public record BuyReq(UUID userId, UUID expertId, int packageHours, int hourlyRate) {}
+  public void complete(String id, byte[] requestHash, int status, String contentType, byte[] body) {
+    var s = new Stored(requestHash, status, contentType, body, clock.instant().plus(ttl));
+    jdbc.update("update idempotency_key set status = ?, content_type = ?, body = ?, locked_until = null, expires_at = ? where id = ?",
+      status, contentType, body, Timestamp.from(s.expiresAt()), id);
+    done.put(id, s);
+    var f = inFlight.remove(id);
+    if (f != null) f.complete(s);
+  }
 
-  @PostMapping
-  public ResponseEntity<Map<String,Object>> buy(@RequestBody BuyReq req){
-    int amount = req.packageHours * req.hourlyRate;
-    var p = purchases.save(Purchase.builder()
-      .userId(req.userId()).expertId(req.expertId())
-      .packageHours(req.packageHours()).hoursRemaining(req.packageHours())
-      .amount(amount).createdAt(Instant.now()).build());
-    return ResponseEntity.ok(Map.of("purchaseId", p.getId(), "amount", amount));
+  /** No outcome worth replaying (5xx, 429, ...): drop the claim so a retry runs the request again. */
+  public void release(String id) {
+    jdbc.update("delete from idempotency_key where id = ? and status is null", id);
+    var f = inFlight.remove(id);
+    if (f != null) f.complete(null);
+  }
+
+  private Outcome claim(String id, byte[] requestHash, long deadline) throws InterruptedException {
+    for (;;) {
+      var now = clock.instant();
+      var lockedUntil = Timestamp.from(now.plus(lease)); var expiresAt = Timestamp.from(now.plus(ttl));
+      if (jdbc.update("insert into idempotency_key (id, request_hash, locked_until, expires_at) values (?, ?, ?, ?) on conflict do nothing",
+          id, requestHash, lockedUntil, expiresAt) == 1) return new Outcome(Kind.OWNED, null);
+      var rows = jdbc.query("select request_hash, status, content_type, body, locked_until, expires_at from idempotency_key where id = ?",
+        (rs, i) -> new Row(new Stored(rs.getBytes("request_hash"), rs.getInt("status"), rs.getString("content_type"), rs.getBytes("body"),
+          rs.getTimestamp("expires_at").toInstant()), rs.getObject("status") == null, rs.getTimestamp("locked_until")), id);
+      if (rows.isEmpty()) continue; // released meanwhile
+      var row = rows.get(0).stored(); boolean running = rows.get(0).running(); var locked = rows.get(0).lockedUntil();
+      var nowTs = Timestamp.from(now);
+      if (!row.expiresAt().isAfter(now)) { // expired but not purged yet: the key is free again
+        if (jdbc.update("update idempotency_key set request_hash = ?, status = null, content_type = null, body = null, locked_until = ?, expires_at = ? "
+            + "where id = ? and expires_at <= ?", requestHash, lockedUntil, expiresAt, id, nowTs) == 1) return new Outcome(Kind.OWNED, null);
+        continue;
+      }
+      if (!MessageDigest.isEqual(row.requestHash(), requestHash)) return new Outcome(Kind.MISMATCH, null);
+      if (!running) { done.put(id, row); return new Outcome(Kind.REPLAY, row); }
+      if (locked != null && locked.before(nowTs)) { // the owner died mid-request
+        if (jdbc.update("update idempotency_key set locked_until = ? where id = ? and status is null and locked_until < ?",
+            lockedUntil, id, nowTs) == 1) return new Outcome(Kind.OWNED, null);
+        continue;
+      }
+      if (System.nanoTime() >= deadline) return new Outcome(Kind.BUSY, null);
+      Thread.sleep(POLL_MS); // in flight on another pod
+    }
+  }
+
+  private static Outcome replay(Stored s, byte[] requestHash) {
+    return MessageDigest.isEqual(s.requestHash(), requestHash) ? new Outcome(Kind.REPLAY, s) : new Outcome(Kind.MISMATCH, null);
+  }
+
+  // the table on the primary, then this pod's cache
+  @Scheduled(fixedDelay = 3_600_000)
+  void purge() {
+    jdbc.update("delete from idempotency_key where expires_at < ?", Timestamp.from(clock.instant()));
+    var now = clock.instant();
+    synchronized (done) { done.values().removeIf(s -> !s.expiresAt().isAfter(now)); }
   }
 }
 ```
 
----
-
-## feedback/FeedbackController.java
+## idempotency/IdempotencyFilter.java
 ```java
-package com.odx.experts.feedback;
+package com.odx.experts.idempotency;
+
+import com.odx.experts.auth.TokenService;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * POSTs carrying Idempotency-Key run at most once per (caller, key): a retry gets the stored status and body back
+ * (with Idempotent-Replayed: true) without reaching the controller, admission control or the database transaction.
+ * Keys are scoped to the token's user; reusing one for a different method, path or body is 422. Only final outcomes
+ * are stored: 2xx and client errors, except 401/403/408/409/429, which a retry may legitimately change.
+ */
+class IdempotencyFilter extends OncePerRequestFilter {
+  static final String HEADER = "Idempotency-Key";
+  private final IdempotencyStore store; private final TokenService tokens;
+
+  IdempotencyFilter(IdempotencyStore store, TokenService tokens) { this.store = store; this.tokens = tokens; }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain) throws ServletException, IOException {
+    var key = req.getHeader(HEADER);
+    if (key == null || !"POST".equals(req.getMethod())) { chain.doFilter(req, res); return; }
+    if (key.isBlank() || key.length() > 255) { reject(res, HttpStatus.BAD_REQUEST, HEADER + " must be 1..255 characters"); return; }
+
+    var body = req.getInputStream().readAllBytes();
+    var id = scope(req) + ":" + key;
+    var hash = hash(req, body);
+    IdempotencyStore.Outcome out;
+    try {
+      out = store.acquire(id, hash);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      reject(res, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted"); return;
+    }
+    switch (out.kind()) {
+      case REPLAY -> { replay(res, out.stored()); return; }
+      case MISMATCH -> { reject(res, HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request"); return; }
+      case BUSY -> {
+        res.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        reject(res, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress"); return;
+      }
+      case OWNED -> { }
+    }
 
-import com.odx.experts.dto.FeedbackReq;
-import com.odx.experts.purchase.PurchaseRepository;
-import com.odx.experts.session.SessionRepository;
-import com.odx.experts.session.SessionStatus;
+    var wrapped = new ContentCachingResponseWrapper(res);
+    boolean stored = false;
+    try {
+      chain.doFilter(new CachedBody(req, body), wrapped);
+      int status = wrapped.getStatus();
+      if (status < 500 && status != 401 && status != 403 && status != 408 && status != 409 && status != 429) {
+        store.complete(id, hash, status, wrapped.getContentType(), wrapped.getContentAsByteArray());
+        stored = true;
+      }
+    } finally {
+      if (!stored) store.release(id);
+      wrapped.copyBodyToResponse();
+    }
+  }
+
+  // the filter runs before AuthInterceptor, so it reads the token itself (an in-memory check); anonymous keys share a scope
+  private String scope(HttpServletRequest req) {
+    var header = req.getHeader(HttpHeaders.AUTHORIZATION);
+    var p = header != null && header.regionMatches(true, 0, "Bearer ", 0, 7) ? tokens.verify(header.substring(7).trim()) : null;
+    return p == null ? "-" : p.userId().toString();
+  }
+
+  private static byte[] hash(HttpServletRequest req, byte[] body) {
+    try {
+      var md = MessageDigest.getInstance("SHA-256");
+      md.update((req.getMethod() + " " + req.getRequestURI() + "?" + req.getQueryString() + "\n").getBytes(StandardCharsets.UTF_8));
+      return md.digest(body);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void replay(HttpServletResponse res, IdempotencyStore.Stored s) throws IOException {
+    res.setStatus(s.status());
+    res.setHeader("Idempotent-Replayed", "true");
+    if (s.contentType() != null) res.setContentType(s.contentType());
+    if (s.body() != null) { res.setContentLength(s.body().length); res.getOutputStream().write(s.body()); }
+  }
+
+  private static void reject(HttpServletResponse res, HttpStatus status, String message) throws IOException {
+    res.setStatus(status.value());
+    res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    res.getWriter().write("{\"status\":\"" + status.name() + "\",\"message\":\"" + message + "\"}");
+  }
+
+  /** The body was read for hashing; hand the controller a fresh stream over the same bytes. */
+  private static final class CachedBody extends HttpServletRequestWrapper {
+    private final byte[] body;
+    CachedBody(HttpServletRequest req, byte[] body) { super(req); this.body = body; }
+
+    @Override public ServletInputStream getInputStream() {
+      var in = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+        @Override public int read() { return in.read(); }
+        @Override public int read(byte[] b, int off, int len) { return in.read(b, off, len); }
+        @Override public boolean isFinished() { return in.available() == 0; }
+        @Override public boolean isReady() { return true; }
+        @Override public void setReadListener(ReadListener l) { throw new UnsupportedOperationException(); }
+      };
+    }
+
+    @Override public BufferedReader getReader() {
+      return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+    }
+  }
+}
+```
+
+## idempotency/IdempotencyConfig.java
+```java
+package com.odx.experts.idempotency;
+
+import com.odx.experts.auth.TokenService;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration @EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+  // a servlet filter, not an interceptor: it must see the raw body to hash it and capture the whole response to replay it
+  @Bean
+  FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyProperties props, IdempotencyStore store, TokenService tokens) {
+    var reg = new FilterRegistrationBean<>(new IdempotencyFilter(store, tokens));
+    reg.setUrlPatterns(props.paths());
+    reg.setEnabled(props.enabled());
+    return reg;
+  }
+}
+```
+
+## reporting/RollupService.java
+```java
+package com.odx.experts.reporting;
+
+import com.odx.experts.expert.Domain;
+import com.odx.experts.shard.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Dashboard rollups (V8 rollup_expert): one row per (grain, bucket start, expert) with revenue, booked and cancelled
+ * minutes/sessions and available minutes. Revenue and session counters are kept current by row triggers on purchases
+ * and sessions (every booking, cancel and purchase, including set-based ones); available minutes depend on default
+ * working hours, so they are filled in by the nightly run. Reads touch only rollup rows, one per bucket and expert.
+ *
+ * Nightly (one pod, via an advisory lock): recompute day rows of the last {@code reconcile-days} from raw tables,
+ * correcting any drift, bring the week/month rows those days fall in along, and drop day rows past retention; weeks
+ * and months keep the long history. With several shards every shard keeps rollups for its own experts: queries fan
+ * out and sum, the nightly run reconciles each shard under that shard's lock.
+ *
+ * Reconcile takes no table locks, so bookings and purchases never wait for it. It only recomputes closed days (see
+ * {@link #lastClosedDay}), which no trigger writes to any more, so overwriting their day rows loses nothing. A week or
+ * month wholly inside the recomputed range is closed too and is overwritten with the sum of its days; one that is
+ * still open (or only partly recomputed) gets the correction of its recomputed days added, which commutes with the
+ * trigger deltas landing on it meanwhile. Experts go in batches of {@value #EXPERT_BATCH}, one short transaction each.
+ */
+@Service
+public class RollupService {
+  private static final long LOCK_KEY = 0x6f6478_726f6c6cL; // "odx" "roll"
+  private static final int MAX_BUCKETS = 400;
+  private static final int EXPERT_BATCH = 200;
+
+  private final NamedParameterJdbcTemplate jdbc; private final ShardRouter shards; private final TransactionTemplate tx; private final Clock clock;
+  private final int reconcileDays; private final int dayRetentionDays;
+  private volatile Run lastRun;
+
+  public RollupService(NamedParameterJdbcTemplate jdbc, ShardRouter shards, TransactionTemplate tx, Clock clock,
+                       @Value("${odx.rollup.reconcile-days:7}") int reconcileDays,
+                       @Value("${odx.rollup.day-retention-days:400}") int dayRetentionDays) {
+    this.jdbc = jdbc; this.shards = shards; this.tx = tx; this.clock = clock;
+    this.reconcileDays = reconcileDays; this.dayRetentionDays = dayRetentionDays;
+  }
+
+  public enum Grain {
+    DAY("D", ChronoUnit.DAYS), WEEK("W", ChronoUnit.WEEKS), MONTH("M", ChronoUnit.MONTHS);
+    final String code; final ChronoUnit unit;
+    Grain(String code, ChronoUnit unit) { this.code = code; this.unit = unit; }
+    LocalDate start(LocalDate d) {
+      return switch (this) { case DAY -> d; case WEEK -> d.with(DayOfWeek.MONDAY); case MONTH -> d.withDayOfMonth(1); };
+    }
+    LocalDate end(LocalDate d) { return start(d).plus(1, unit).minusDays(1); }
+  }
+
+  public record Bucket(LocalDate bucket, String key, long revenue, int bookedSessions, int cancelledSessions,
+                       double bookedHours, double cancelledHours, double availableHours, Double cancellationRate, Double utilization) {}
+  public record Run(Instant at, LocalDate from, LocalDate to, int dayRowsCorrected, int periodRowsWritten, int dayRowsPruned) {}
+  private record Raw(LocalDate bucket, String key, long revenue, int bookedCount, int cancelledCount, long bookedMin, long cancelledMin, long availableMin) {}
+
+  /** Buckets of {@code grain} overlapping [from, to], keyed by expert id or by domain. */
+  public List<Bucket> query(Grain grain, boolean byDomain, LocalDate from, LocalDate to, UUID expertId, Domain domain) {
+    if (to.isBefore(from)) throw new IllegalArgumentException("to must not be before from");
+    var start = grain.start(from);
+    if (grain.unit.between(start, to) >= MAX_BUCKETS) throw new IllegalArgumentException("Too many buckets (max " + MAX_BUCKETS + ")");
+    var p = new MapSqlParameterSource("grain", grain.code).addValue("from", start).addValue("to", to)
+      .addValue("expertId", expertId).addValue("domain", domain == null ? null : domain.name());
+    var sql = """
+        select bucket, %s as key, sum(revenue) as revenue, sum(booked_count) as booked_count, sum(cancelled_count) as cancelled_count,
+               sum(booked_min) as booked_min, sum(cancelled_min) as cancelled_min, sum(available_min) as available_min
+        from rollup_expert
+        where grain = :grain and bucket between :from and :to
+          and (cast(:expertId as uuid) is null or expert_id = cast(:expertId as uuid))
+          and (cast(:domain as text) is null or domain = cast(:domain as domain))
+        group by bucket, key""".formatted(byDomain ? "domain::text" : "expert_id::text");
+    // per-shard partial sums (a domain spans shards), added up per (bucket, key); rates only after summing
+    var sums = new TreeMap<String, Raw>();
+    for (var r : shards.fanOutConcat(s -> jdbc.query(sql, p, (rs, i) -> new Raw(rs.getObject("bucket", LocalDate.class), rs.getString("key"),
+        rs.getLong("revenue"), rs.getInt("booked_count"), rs.getInt("cancelled_count"), rs.getLong("booked_min"), rs.getLong("cancelled_min"),
+        rs.getLong("available_min")))))
+      sums.merge(r.bucket() + "/" + r.key(), r, (a, b) -> new Raw(a.bucket(), a.key(), a.revenue() + b.revenue(),
+        a.bookedCount() + b.bookedCount(), a.cancelledCount() + b.cancelledCount(), a.bookedMin() + b.bookedMin(),
+        a.cancelledMin() + b.cancelledMin(), a.availableMin() + b.availableMin()));
+    return sums.values().stream().map(r -> new Bucket(r.bucket(), r.key(), r.revenue(), r.bookedCount(), r.cancelledCount(),
+      r.bookedMin() / 60.0, r.cancelledMin() / 60.0, r.availableMin() / 60.0,
+      r.bookedCount() == 0 ? null : (double) r.cancelledCount() / r.bookedCount(),
+      r.availableMin() == 0 ? null : (double) (r.bookedMin() - r.cancelledMin()) / r.availableMin())).toList();
+  }
+
+  public Run lastRun() { return lastRun; }
+
+  @Scheduled(cron = "${odx.rollup.cron:0 30 2 * * *}")
+  public void nightly() {
+    var today = LocalDate.now(clock);
+    var runs = shards.fanOut(s -> {
+      var run = reconcile(today.minusDays(reconcileDays), today, null);
+      if (run == null) return null; // another pod is already on this shard
+      Integer pruned = tx.execute(st -> jdbc.update("delete from rollup_expert where grain = 'D' and bucket < :cutoff",
+        new MapSqlParameterSource("cutoff", today.minusDays(dayRetentionDays))));
+      return new Run(run.at(), run.from(), run.to(), run.dayRowsCorrected(), run.periodRowsWritten(), pruned);
+    });
+    var merged = merge(runs);
+    if (merged != null) lastRun = merged;
+  }
+
+  /** Recomputes [from, to] widened to whole weeks and months from raw tables; also the backfill path for old history. */
+  public Run rebuild(LocalDate from, LocalDate to) {
+    if (to.isBefore(from)) throw new IllegalArgumentException("to must not be before from");
+    if (ChronoUnit.DAYS.between(from, to) > 366) throw new IllegalArgumentException("Rebuild at most a year per call");
+    var runs = shards.fanOut(s -> reconcile(from, to, null));
+    if (runs.contains(null)) throw new IllegalArgumentException("A rollup run is in progress"); // batches done so far stand
+    return lastRun = merge(runs);
+  }
+
+  /**
+   * Recomputes one expert's rows on the current shard over [from, to] (shard/ShardMigrator, after copying an expert
+   * here); false if a rollup run holds the shard's lock, in which case the next nightly run picks the recent days up.
+   */
+  public boolean rebuildExpert(UUID expertId, LocalDate from, LocalDate to) { return reconcile(from, to, expertId) != null; }
+
+  /**
+   * Days before this one no longer change: a session cannot be booked, moved or cancelled once it has started, and
+   * revenue is bucketed by UTC day, which closes at most a day after the server's.
+   */
+  LocalDate lastClosedDay() { return LocalDate.now(clock).minusDays(2); }
+
+  private static Run merge(List<Run> runs) {
+    Run out = null;
+    for (var r : runs) {
+      if (r == null) continue;
+      out = out == null ? r : new Run(r.at().isAfter(out.at()) ? r.at() : out.at(), r.from(), r.to(), out.dayRowsCorrected() + r.dayRowsCorrected(),
+        out.periodRowsWritten() + r.periodRowsWritten(), out.dayRowsPruned() + r.dayRowsPruned());
+    }
+    return out;
+  }
+
+  private boolean tryLock() {
+    return Boolean.TRUE.equals(jdbc.getJdbcTemplate().queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY));
+  }
+
+  /**
+   * Recomputes the closed days of [from, to], widened to whole weeks and months, for every expert of the current shard
+   * (or just {@code only}); null when another run holds the shard's lock.
+   */
+  private Run reconcile(LocalDate from, LocalDate to, UUID only) {
+    var lo = Grain.WEEK.start(Grain.MONTH.start(from));
+    var hi = Grain.WEEK.end(Grain.MONTH.end(to));
+    if (hi.isAfter(lastClosedDay())) hi = lastClosedDay();
+    int corrected = 0, written = 0;
+    if (hi.isBefore(lo)) return new Run(clock.instant(), lo, hi, 0, 0, 0);
+    var p = new MapSqlParameterSource("from", lo).addValue("to", hi);
+    UUID after = null;
+    for (;;) {
+      var ids = only != null ? List.of(only) : jdbc.getJdbcTemplate().queryForList(
+        "select id from experts where (cast(? as uuid) is null or id > cast(? as uuid)) order by id limit ?", UUID.class, after, after, EXPERT_BATCH);
+      if (ids.isEmpty()) break;
+      var counts = tx.execute(st -> tryLock() ? jdbc.queryForObject(RECONCILE_BATCH, new MapSqlParameterSource(p.getValues()).addValue("ids", ids),
+        (rs, i) -> new int[]{rs.getInt("days"), rs.getInt("periods")}) : null);
+      if (counts == null) return null;
+      corrected += counts[0]; written += counts[1];
+      if (ids.size() < EXPERT_BATCH) break;
+      after = ids.get(ids.size() - 1);
+    }
+    return new Run(clock.instant(), lo, hi, corrected, written, 0);
+  }
+
+  // one statement per batch: snapshot the days, overwrite changed day rows, then per week/month either overwrite
+  // (wholly inside [from, to]) or add the day corrections (still open, or only partly recomputed)
+  private static final String RECONCILE_BATCH = """
+      with days as (select d::date as day from generate_series(cast(:from as date), cast(:to as date), interval '1 day') d),
+      sess as (
+        select expert_id, date as day, sum(end_min - start_min) as booked_min, count(*) as booked_count,
+               coalesce(sum(end_min - start_min) filter (where status = 'CANCELLED'), 0) as cancelled_min,
+               count(*) filter (where status = 'CANCELLED') as cancelled_count
+        from sessions where expert_id in (:ids) and date between :from and :to group by expert_id, date),
+      rev as (
+        select expert_id, (created_at at time zone 'UTC')::date as day, sum(amount) as revenue
+        from purchases where expert_id in (:ids) and (created_at at time zone 'UTC')::date between :from and :to group by 1, 2),
+      win as (
+        select expert_id, date as day, sum((end_min - start_min) / 30 * 30) as mins
+        from availability_window where expert_id in (:ids) and date between :from and :to group by expert_id, date),
+      ov as (
+        select distinct on (expert_id, date) expert_id, date as day, workday, day_start, day_end
+        from availability_override where expert_id in (:ids) and date between :from and :to order by expert_id, date, id),
+      snap as (
+        select d.day as bucket, x.id as expert_id, x.domain, coalesce(r.revenue, 0) as revenue, coalesce(s.booked_min, 0) as booked_min,
+               coalesce(s.booked_count, 0) as booked_count, coalesce(s.cancelled_min, 0) as cancelled_min,
+               coalesce(s.cancelled_count, 0) as cancelled_count,
+               -- same rule as SlotService: explicit windows, else the override or default working day
+               coalesce(w.mins, case when o.workday is false then 0 else greatest(0,
+                 (hhmm_minutes(coalesce(o.day_end, x.day_end, '17:00')) - hhmm_minutes(coalesce(o.day_start, x.day_start, '09:00'))) / 30 * 30) end)
+                 as available_min
+        from experts x cross join days d
+        left join sess s on s.expert_id = x.id and s.day = d.day
+        left join rev r on r.expert_id = x.id and r.day = d.day
+        left join win w on w.expert_id = x.id and w.day = d.day
+        left join ov o on o.expert_id = x.id and o.day = d.day
+        where x.id in (:ids)),
+      diff as (
+        select s.*, s.revenue - coalesce(o.revenue, 0) as d_revenue, s.booked_min - coalesce(o.booked_min, 0) as d_booked_min,
+               s.booked_count - coalesce(o.booked_count, 0) as d_booked_count, s.cancelled_min - coalesce(o.cancelled_min, 0) as d_cancelled_min,
+               s.cancelled_count - coalesce(o.cancelled_count, 0) as d_cancelled_count, s.available_min - coalesce(o.available_min, 0) as d_available_min
+        from snap s left join rollup_expert o on o.grain = 'D' and o.bucket = s.bucket and o.expert_id = s.expert_id
+        where o.expert_id is null
+           or (o.domain, o.revenue, o.booked_min, o.booked_count, o.cancelled_min, o.cancelled_count, o.available_min)
+              is distinct from (s.domain, s.revenue, s.booked_min, s.booked_count, s.cancelled_min, s.cancelled_count, s.available_min)),
+      day_rows as (
+        insert into rollup_expert (grain, bucket, expert_id, domain, revenue, booked_min, booked_count, cancelled_min, cancelled_count, available_min)
+        select 'D', bucket, expert_id, domain, revenue, booked_min, booked_count, cancelled_min, cancelled_count, available_min from diff
+        on conflict (grain, bucket, expert_id) do update set domain = excluded.domain, revenue = excluded.revenue,
+          booked_min = excluded.booked_min, booked_count = excluded.booked_count, cancelled_min = excluded.cancelled_min,
+          cancelled_count = excluded.cancelled_count, available_min = excluded.available_min
+        returning 1),
+      grains as (select * from (values ('W', 'week', interval '1 week'), ('M', 'month', interval '1 month')) g(code, unit, span)),
+      closed_periods as (
+        insert into rollup_expert (grain, bucket, expert_id, domain, revenue, booked_min, booked_count, cancelled_min, cancelled_count, available_min)
+        select g.code, date_trunc(g.unit, s.bucket)::date, s.expert_id, s.domain, sum(s.revenue), sum(s.booked_min), sum(s.booked_count),
+               sum(s.cancelled_min), sum(s.cancelled_count), sum(s.available_min)
+        from snap s cross join grains g
+        where date_trunc(g.unit, s.bucket)::date >= :from and (date_trunc(g.unit, s.bucket) + g.span)::date <= cast(:to as date) + 1
+        group by 1, 2, 3, 4
+        on conflict (grain, bucket, expert_id) do update set domain = excluded.domain, revenue = excluded.revenue,
+          booked_min = excluded.booked_min, booked_count = excluded.booked_count, cancelled_min = excluded.cancelled_min,
+          cancelled_count = excluded.cancelled_count, available_min = excluded.available_min
+        where (rollup_expert.domain, rollup_expert.revenue, rollup_expert.booked_min, rollup_expert.booked_count,
+               rollup_expert.cancelled_min, rollup_expert.cancelled_count, rollup_expert.available_min)
+          is distinct from (excluded.domain, excluded.revenue, excluded.booked_min, excluded.booked_count,
+               excluded.cancelled_min, excluded.cancelled_count, excluded.available_min)
+        returning 1),
+      open_periods as (
+        insert into rollup_expert (grain, bucket, expert_id, domain, revenue, booked_min, booked_count, cancelled_min, cancelled_count, available_min)
+        select g.code, date_trunc(g.unit, d.bucket)::date, d.expert_id, d.domain, sum(d.d_revenue), sum(d.d_booked_min), sum(d.d_booked_count),
+               sum(d.d_cancelled_min), sum(d.d_cancelled_count), sum(d.d_available_min)
+        from diff d cross join grains g
+        where not (date_trunc(g.unit, d.bucket)::date >= :from and (date_trunc(g.unit, d.bucket) + g.span)::date <= cast(:to as date) + 1)
+        group by 1, 2, 3, 4
+        on conflict (grain, bucket, expert_id) do update set domain = excluded.domain, revenue = rollup_expert.revenue + excluded.revenue,
+          booked_min = rollup_expert.booked_min + excluded.booked_min, booked_count = rollup_expert.booked_count + excluded.booked_count,
+          cancelled_min = rollup_expert.cancelled_min + excluded.cancelled_min,
+          cancelled_count = rollup_expert.cancelled_count + excluded.cancelled_count,
+          available_min = rollup_expert.available_min + excluded.available_min
+        returning 1)
+      select (select count(*) from day_rows) as days, (select count(*) from closed_periods) + (select count(*) from open_periods) as periods""";
+}
+```
+
+## reporting/RollupController.java
+```java
+package com.odx.experts.reporting;
+
+import com.odx.experts.expert.Domain;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
 
-@RestController @RequestMapping("/api/feedback") @RequiredArgsConstructor
-public class FeedbackController {
-  private final FeedbackRepository repo; private final PurchaseRepository purchases; private final SessionRepository sessions;
+@RestController @RequestMapping("/api/admin/rollups") @RequiredArgsConstructor
+public class RollupController {
+  private final RollupService rollups;
 
-  @PostMapping
-  public ResponseEntity<?> submit(@RequestBody FeedbackReq req){
-    var p = purchases.findById(req.purchaseId()).orElseThrow();
-    if (!p.getUserId().equals(req.userId())) throw new IllegalArgumentException("Purchase does not belong to user");
-    if (p.getHoursRemaining() > 1e-6) throw new IllegalArgumentException("Feedback allowed after package hours are fully used");
-    var sess = sessions.findByPurchaseId(p.getId());
-    boolean allDone = sess.stream().allMatch(s -> s.getStatus() != SessionStatus.UPCOMING);
-    if (!allDone) throw new IllegalArgumentException("Feedback allowed after all sessions are completed");
-    if (repo.existsByPurchaseIdAndUserId(p.getId(), req.userId())) throw new IllegalArgumentException("Feedback already submitted");
-    repo.save(Feedback.builder().userId(req.userId()).expertId(p.getExpertId()).purchaseId(p.getId())
-      .rating(req.rating()).text(req.text()).createdAt(Instant.now()).build());
-    return ResponseEntity.ok().build();
+  // GET /api/admin/rollups?grain=week&by=domain&from=2025-06-01&to=2025-09-30 (optional expertId / domain filters)
+  @GetMapping
+  public List<RollupService.Bucket> query(@RequestParam(defaultValue = "day") String grain, @RequestParam(defaultValue = "expert") String by,
+                                          @RequestParam String from, @RequestParam String to,
+                                          @RequestParam(required = false) UUID expertId, @RequestParam(required = false) Domain domain) {
+    if (!by.equals("expert") && !by.equals("domain")) throw new IllegalArgumentException("by must be expert or domain");
+    var g = RollupService.Grain.valueOf(grain.toUpperCase(Locale.ROOT));
+    return rollups.query(g, by.equals("domain"), LocalDate.parse(from), LocalDate.parse(to), expertId, domain);
+  }
+
+  // backfill or repair a range from raw tables (widened to whole weeks and months)
+  @PostMapping("/rebuild")
+  public RollupService.Run rebuild(@RequestParam String from, @RequestParam String to) {
+    return rollups.rebuild(LocalDate.parse(from), LocalDate.parse(to));
+  }
+
+  @GetMapping("/last-run")
+  public Map<String,Object> lastRun() {
+    var run = rollups.lastRun();
+    return run == null ? Map.of("ran", false) : Map.of("ran", true, "run", run);
   }
 }
 ```
 
----
+## schedule/ScheduleService.java
+```java
+package com.odx.experts.schedule;
 
-## billing/AdminController.java
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * "My schedule" from the V11 schedule_entry projection: one row per session (state = its status) and one per purchase
+ * (state PACKAGE, with hours remaining), carrying the expert's name and domain. Row triggers on sessions, purchases and
+ * experts keep it in step with booking, cancel, refund and completion, so a page is one range scan of
+ * (user_id, state, date, start_min, id) or (expert_id, date, start_min, id), keyset-paged in that order.
+ * Entries live on the expert's shard: the expert view reads one shard, the client view merges one page per shard.
+ */
+@Service @RequiredArgsConstructor
+public class ScheduleService {
+  public enum State { PACKAGE, UPCOMING, COMPLETED, CANCELLED }
+
+  public record Entry(UUID id, String state, UUID userId, UUID expertId, String expertName, String domain, UUID purchaseId,
+                      LocalDate date, int startMin, int endMin, String link, Integer packageHours, Double hoursRemaining) {
+    public String cursor() { return date + ":" + startMin + ":" + id; }
+  }
+
+  // same order as Postgres: uuids compare as unsigned bytes
+  static final Comparator<Entry> ORDER = Comparator.comparing(Entry::date).thenComparingInt(Entry::startMin)
+    .thenComparing(Entry::id, (a, b) -> a.getMostSignificantBits() != b.getMostSignificantBits()
+      ? Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits())
+      : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits()));
+
+  private static final RowMapper<Entry> ROW = (rs, i) -> new Entry(rs.getObject("id", UUID.class), rs.getString("state"),
+    rs.getObject("user_id", UUID.class), rs.getObject("expert_id", UUID.class), rs.getString("expert_name"), rs.getString("domain"),
+    rs.getObject("purchase_id", UUID.class), rs.getObject("date", LocalDate.class), rs.getInt("start_min"), rs.getInt("end_min"),
+    rs.getString("link"), rs.getObject("package_hours", Integer.class), rs.getObject("hours_remaining", Double.class));
+
+  private final NamedParameterJdbcTemplate jdbc;
+  private final ShardRouter shards;
+
+  /** A client's entries in one state: UPCOMING oldest first from {@code from}; packages and history newest first. */
+  public List<Entry> forUser(UUID userId, State state, LocalDate from, String after, int limit) {
+    boolean asc = state == State.UPCOMING;
+    var p = new MapSqlParameterSource("userId", userId).addValue("state", state.name()).addValue("from", from).addValue("limit", limit);
+    var sql = new StringBuilder("select * from schedule_entry where user_id = :userId and state = :state");
+    if (asc && from != null) sql.append(" and date >= :from");
+    keyset(sql, p, after, asc);
+    // built per call instead of "(:x is null or ...)" so the keyset bound is an index condition, not a filter
+    sql.append(asc ? " order by date, start_min, id" : " order by date desc, start_min desc, id desc").append(" limit :limit");
+    var order = asc ? ORDER : ORDER.reversed();
+    return shards.fanOutConcat(s -> jdbc.query(sql.toString(), p, ROW)).stream().sorted(order).limit(limit).toList();
+  }
+
+  /** An expert's sessions on [from, to] in time order; cancelled ones only when asked for. */
+  public List<Entry> forExpert(UUID expertId, LocalDate from, LocalDate to, boolean cancelled, String after, int limit) {
+    var p = new MapSqlParameterSource("expertId", expertId).addValue("from", from).addValue("to", to).addValue("limit", limit);
+    var sql = new StringBuilder("select * from schedule_entry where expert_id = :expertId and date between :from and :to")
+      .append(cancelled ? " and state <> 'PACKAGE'" : " and state in ('UPCOMING', 'COMPLETED')");
+    keyset(sql, p, after, true);
+    sql.append(" order by date, start_min, id limit :limit");
+    return shards.on(expertId, () -> jdbc.query(sql.toString(), p, ROW));
+  }
+
+  // cursor = "<date>:<startMin>:<id>" of the last entry of the previous page
+  private static void keyset(StringBuilder sql, MapSqlParameterSource p, String after, boolean asc) {
+    if (after == null) return;
+    var parts = after.split(":", 3);
+    if (parts.length != 3) throw new IllegalArgumentException("Bad cursor");
+    p.addValue("afterDate", LocalDate.parse(parts[0])).addValue("afterMin", Integer.parseInt(parts[1])).addValue("afterId", UUID.fromString(parts[2]));
+    sql.append(asc ? " and (date, start_min, id) > (:afterDate, :afterMin, :afterId)" : " and (date, start_min, id) < (:afterDate, :afterMin, :afterId)");
+  }
+}
+```
+
+## schedule/ScheduleController.java
 ```java
-package com.odx.experts.billing;
+package com.odx.experts.schedule;
 
-import com.odx.experts.expert.ExpertRepository;
-import com.odx.experts.session.SessionRepository;
-import com.odx.experts.session.SessionStatus;
+import com.odx.experts.auth.Caller;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+@RestController @RequestMapping("/api/schedule") @RequiredArgsConstructor
+public class ScheduleController {
+  private static final int MAX_DAYS = 31;
+  private final ScheduleService schedule;
+  private final Clock clock;
+
+  // client home: GET /api/schedule/users/{userId}?state=upcoming|package|completed|cancelled&limit=20&after=<next>
+  @GetMapping("/users/{userId}")
+  public Map<String,Object> user(@PathVariable UUID userId, @RequestParam(defaultValue = "upcoming") String state,
+                                 @RequestParam(defaultValue = "20") int limit, @RequestParam(required = false) String after) {
+    if (limit < 1 || limit > 100) throw new IllegalArgumentException("limit must be 1..100");
+    var s = ScheduleService.State.valueOf(state.toUpperCase(Locale.ROOT));
+    return page(schedule.forUser(userId, s, today(), after, limit), limit);
+  }
+
+  // expert day/week: GET /api/schedule/experts/{expertId}?from=2025-09-01&days=7&cancelled=false&limit=50&after=<next>
+  @GetMapping("/experts/{expertId}")
+  public Map<String,Object> expert(@PathVariable UUID expertId, @RequestParam(required = false) String from,
+                                   @RequestParam(defaultValue = "1") int days, @RequestParam(defaultValue = "false") boolean cancelled,
+                                   @RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) String after) {
+    Caller.checkExpert(expertId);
+    if (days < 1 || days > MAX_DAYS) throw new IllegalArgumentException("days must be 1.." + MAX_DAYS);
+    if (limit < 1 || limit > 200) throw new IllegalArgumentException("limit must be 1..200");
+    var start = from == null ? today() : LocalDate.parse(from);
+    return page(schedule.forExpert(expertId, start, start.plusDays(days - 1), cancelled, after, limit), limit);
+  }
+
+  // session times are wall-clock in the server zone, as in ValidationUtil
+  private LocalDate today() { return LocalDate.now(clock.withZone(ZoneId.systemDefault())); }
+
+  private static Map<String,Object> page(List<ScheduleService.Entry> rows, int limit) {
+    var res = new LinkedHashMap<String,Object>();
+    res.put("items", rows);
+    res.put("next", rows.size() < limit ? null : rows.get(rows.size() - 1).cursor());
+    return res;
+  }
+}
+```
+
+## waitlist/WaitlistState.java
+```java
+package com.odx.experts.waitlist;
+
+// WAITING -> HELD -> BOOKED on confirm, or -> EXPIRED when the hold runs out; WAITING -> BOOKED when auto-booked
+public enum WaitlistState { WAITING, HELD, BOOKED, LEFT, EXPIRED }
+```
+
+## waitlist/WaitlistEntry.java
+```java
+package com.odx.experts.waitlist;
+
+import com.odx.experts.common.UuidV7Id;
+import jakarta.persistence.*;
+import lombok.*;
+
 import java.time.Instant;
-import java.util.*; import java.util.stream.Collectors;
+import java.time.LocalDate;
+import java.util.UUID;
 
-@RestController @RequestMapping("/api/admin") @RequiredArgsConstructor
-public class AdminController {
-  private final PayoutRepository payouts; private final ClientPaymentRepository clientPays; private final ExpertRepository experts; private final SessionRepository sessions;
+@Entity @Table(name = "waitlist")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class WaitlistEntry {
+  @Id @UuidV7Id private UUID id;
+  @Column(nullable = false) private UUID userId;
+  @Column(nullable = false) private UUID expertId;
+  @Column(nullable = false) private UUID purchaseId; // booked against when a slot is matched or a hold confirmed
+  @Column(nullable = false) private LocalDate date;
+  private Integer fromMin; private Integer toMin;  // a matched slot lies inside [fromMin, toMin]; null = any time that day
+  private int priority;                            // higher first, then join order
+  private boolean autoBook;                        // false: the matched slot is held for the entry until holdExpiresAt
+  @Enumerated(EnumType.STRING) @Column(nullable = false) private WaitlistState state;
+  private Integer heldStartMin; private Instant holdExpiresAt;
+  private UUID sessionId;
+  @Column(nullable = false) private Instant createdAt;
+  @Column(insertable = false, updatable = false) private Instant updatedAt; // now() on every write (WaitlistIndex polls it)
+}
+```
 
-  public record PayoutReq(UUID expertId, int amount, String note) {}
-  public record ClientPayReq(UUID userId, int amount, String note) {}
+## waitlist/WaitlistRepository.java
+```java
+package com.odx.experts.waitlist;
 
-  @PostMapping("/payouts") public ResponseEntity<?> payout(@RequestBody PayoutReq r){ payouts.save(Payout.builder().expertId(r.expertId()).amount(r.amount()).note(r.note()).createdAt(Instant.now()).build()); return ResponseEntity.ok().build(); }
-  @PostMapping("/client-payments") public ResponseEntity<?> clientPay(@RequestBody ClientPayReq r){ clientPays.save(ClientPayment.builder().userId(r.userId()).amount(r.amount()).note(r.note()).createdAt(Instant.now()).build()); return ResponseEntity.ok().build(); }
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-  @GetMapping("/expert-earnings")
-  public List<Map<String,Object>> expertEarnings(){
-    return experts.findAll().stream().map(ex -> {
-      var past = sessions.findAll().stream().filter(s-> s.getExpertId().equals(ex.getId()) && s.getStatus()!= SessionStatus.CANCELLED && s.getStatus()!= SessionStatus.UPCOMING).toList();
-      int earned = (int) Math.round(past.stream().mapToDouble(s -> ((s.getEndMin()-s.getStartMin())/60.0) * ex.getHourlyRate()).sum());
-      int paid = payouts.findByExpertId(ex.getId()).stream().mapToInt(Payout::getAmount).sum();
-      return Map.of("expertId", ex.getId(), "name", ex.getName(), "earned", earned, "paid", paid, "due", Math.max(0, earned-paid));
-    }).collect(Collectors.toList());
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection; import java.util.List; import java.util.UUID;
+
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, UUID> {
+  List<WaitlistEntry> findByExpertIdAndDateAndState(UUID expertId, LocalDate date, WaitlistState state);
+  List<WaitlistEntry> findByUserIdAndDateGreaterThanEqualOrderByDateAscCreatedAtAsc(UUID userId, LocalDate from);
+  List<WaitlistEntry> findByStateAndHoldExpiresAtBefore(WaitlistState state, Instant now);
+  boolean existsByUserIdAndExpertIdAndDateAndStateIn(UUID userId, UUID expertId, LocalDate date, Collection<WaitlistState> states);
+
+  // conditional transitions: 0 rows means another request or pod moved the entry first; they join the caller's
+  // transaction when there is one (matching, confirm) and run on their own otherwise (leave, expiry)
+  @Modifying(flushAutomatically = true, clearAutomatically = true) @Transactional
+  @Query("update WaitlistEntry w set w.state = :to, w.updatedAt = current_timestamp where w.id = :id and w.state = :from")
+  int move(@Param("id") UUID id, @Param("from") WaitlistState from, @Param("to") WaitlistState to);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true) @Transactional
+  @Query("""
+      update WaitlistEntry w set w.state = com.odx.experts.waitlist.WaitlistState.HELD, w.heldStartMin = :startMin,
+        w.holdExpiresAt = :until, w.updatedAt = current_timestamp
+      where w.id = :id and w.state = com.odx.experts.waitlist.WaitlistState.WAITING""")
+  int hold(@Param("id") UUID id, @Param("startMin") int startMin, @Param("until") Instant until);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true) @Transactional
+  @Query("update WaitlistEntry w set w.sessionId = :sessionId where w.id = :id")
+  int attachSession(@Param("id") UUID id, @Param("sessionId") UUID sessionId);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true) @Transactional
+  @Query("""
+      update WaitlistEntry w set w.state = com.odx.experts.waitlist.WaitlistState.EXPIRED, w.updatedAt = current_timestamp
+      where w.state = com.odx.experts.waitlist.WaitlistState.WAITING and w.date < :today""")
+  int expireWaiting(@Param("today") LocalDate today);
+}
+```
+
+## waitlist/WaitlistIndex.java
+```java
+package com.odx.experts.waitlist;
+
+import com.odx.experts.common.Constants;
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Waiting entries in memory, per (expert, date). A day is a segment tree over start minute whose nodes are priority
+ * queues (priority desc, then join order): an entry sits in the O(log M) nodes covering the slot starts it accepts,
+ * and the best candidate for a freed slot is the best head on the O(log M) path to that start, so joining and matching
+ * both cost O(log M · log n) for n waiters. Removal is lazy: an entry no longer in {@code live} is dropped from a queue
+ * when it surfaces. Only nodes holding entries exist, and a day goes as soon as its last live entry does, so memory
+ * follows the waiters, not the (expert, date) pairs ever joined. Rows on every shard are followed by polling
+ * updated_at, one watermark per shard.
+ */
+@Component @RequiredArgsConstructor
+public class WaitlistIndex {
+  private static final int MINUTES = 2048; // tree leaves: start minute of day, rounded up to a power of two
+
+  static final Comparator<Waiter> ORDER = Comparator.comparingInt(Waiter::priority).reversed()
+    .thenComparing(Waiter::createdAt).thenComparing(Waiter::id);
+
+  /** A waiting entry; it accepts slots starting in [firstStart, lastStart]. */
+  public record Waiter(UUID id, UUID userId, UUID expertId, UUID purchaseId, LocalDate date, int firstStart, int lastStart,
+                       int priority, boolean autoBook, Instant createdAt) {}
+
+  private record Key(UUID expertId, LocalDate date) {}
+
+  // guarded by itself; a removed day is never used again (add retries on the map's new one)
+  private static final class Day {
+    final Map<Integer, PriorityQueue<Waiter>> nodes = new HashMap<>(); // heap numbering: node n has children 2n, 2n+1
+    int waiting; boolean removed;
+  }
+
+  private final JdbcTemplate jdbc;
+  private final ShardRouter shards;
+  private final Clock clock;
+  private final Map<Key, Day> days = new ConcurrentHashMap<>();
+  private final Map<UUID, Waiter> live = new ConcurrentHashMap<>();
+  private final Map<String, Instant> watermarks = new HashMap<>(); // guarded by this
+
+  static Waiter waiter(WaitlistEntry e) {
+    return waiter(e.getId(), e.getUserId(), e.getExpertId(), e.getPurchaseId(), e.getDate(), e.getFromMin(), e.getToMin(),
+      e.getPriority(), e.isAutoBook(), e.getCreatedAt());
+  }
+
+  public void add(Waiter w) {
+    if (live.putIfAbsent(w.id(), w) != null) return;
+    var key = new Key(w.expertId(), w.date());
+    for (;;) {
+      var day = days.computeIfAbsent(key, k -> new Day());
+      synchronized (day) {
+        if (day.removed) continue; // its last waiter left meanwhile
+        insert(day, 1, 0, MINUTES - 1, w);
+        day.waiting++;
+        return;
+      }
+    }
+  }
+
+  public void remove(UUID id) {
+    var w = live.remove(id);
+    if (w == null) return;
+    var key = new Key(w.expertId(), w.date());
+    var day = days.get(key);
+    if (day == null) return; // dropped with its date
+    synchronized (day) {
+      if (--day.waiting == 0) { day.removed = true; days.remove(key, day); }
+    }
+  }
+
+  public boolean waiting(UUID id) { return live.containsKey(id); }
+
+  public int size() { return live.size(); }
+
+  int daysIndexed() { return days.size(); }
+
+  /** Best live entry accepting a slot that starts at startMin, or null; it stays queued until {@link #remove}d. */
+  public Waiter best(UUID expertId, LocalDate date, int startMin) {
+    var day = days.get(new Key(expertId, date));
+    if (day == null || startMin < 0 || startMin >= MINUTES) return null;
+    synchronized (day) {
+      Waiter best = null;
+      int node = 1, lo = 0, hi = MINUTES - 1;
+      for (;;) {
+        var q = day.nodes.get(node);
+        if (q != null) {
+          Waiter head;
+          while ((head = q.peek()) != null && live.get(head.id()) != head) q.poll();
+          if (head != null && (best == null || ORDER.compare(head, best) < 0)) best = head;
+        }
+        if (lo == hi) return best;
+        int mid = (lo + hi) >>> 1;
+        if (startMin <= mid) { node = 2 * node; hi = mid; } else { node = 2 * node + 1; lo = mid + 1; }
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${odx.waitlist.poll-ms:2000}")
+  void poll() {
+    var today = LocalDate.ofInstant(clock.instant(), ZoneId.systemDefault());
+    days.keySet().removeIf(k -> k.date().isBefore(today));
+    live.values().removeIf(w -> w.date().isBefore(today));
+    for (var shard : shards.shards()) catchUp(shard);
+  }
+
+  /** Applies waitlist writes on one shard since its watermark; matching calls it first so joins on other pods count. */
+  public synchronized void catchUp(String shard) {
+    var since = watermarks.getOrDefault(shard, Instant.EPOCH).minus(Constants.POLL_OVERLAP);
+    var today = LocalDate.ofInstant(clock.instant(), ZoneId.systemDefault());
+    shards.onShard(shard, () -> {
+      jdbc.query("""
+          select id, user_id, expert_id, purchase_id, date, from_min, to_min, priority, auto_book, state, created_at, updated_at
+          from waitlist where updated_at > ? and date >= ?""", rs -> {
+        var at = rs.getTimestamp("updated_at").toInstant();
+        if (at.isAfter(watermarks.getOrDefault(shard, Instant.EPOCH))) watermarks.put(shard, at);
+        var id = rs.getObject("id", UUID.class);
+        if (!WaitlistState.WAITING.name().equals(rs.getString("state"))) { remove(id); return; }
+        add(waiter(id, rs.getObject("user_id", UUID.class), rs.getObject("expert_id", UUID.class), rs.getObject("purchase_id", UUID.class),
+          rs.getObject("date", LocalDate.class), (Integer) rs.getObject("from_min"), (Integer) rs.getObject("to_min"), rs.getInt("priority"),
+          rs.getBoolean("auto_book"), rs.getTimestamp("created_at").toInstant()));
+      }, Timestamp.from(since), today);
+      return null;
+    });
+  }
+
+  private static Waiter waiter(UUID id, UUID userId, UUID expertId, UUID purchaseId, LocalDate date, Integer fromMin, Integer toMin,
+                               int priority, boolean autoBook, Instant createdAt) {
+    int first = fromMin == null ? 0 : fromMin;
+    int last = (toMin == null ? 24 * 60 : toMin) - Constants.SLOT_MIN;
+    return new Waiter(id, userId, expertId, purchaseId, date, first, last, priority, autoBook, createdAt);
+  }
+
+  private static void insert(Day day, int node, int lo, int hi, Waiter w) {
+    if (w.lastStart() < lo || hi < w.firstStart()) return;
+    if (w.firstStart() <= lo && hi <= w.lastStart()) {
+      day.nodes.computeIfAbsent(node, n -> new PriorityQueue<>(ORDER)).add(w);
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    insert(day, 2 * node, lo, mid, w);
+    insert(day, 2 * node + 1, mid + 1, hi, w);
   }
 }
 ```
 
----
+## waitlist/WaitlistService.java
+```java
+package com.odx.experts.waitlist;
 
-## db/migration/V1__init.sql
-```sql
-create type role as enum ('CLIENT','EXPERT','ADMIN');
-create type session_status as enum ('UPCOMING','COMPLETED','CANCELLED');
-create type domain as enum ('CYBER','TAX','CORE','PROCURE','REG');
+import com.odx.experts.common.Constants;
+import com.odx.experts.dto.*;
+import com.odx.experts.expert.Expert;
+import com.odx.experts.expert.ExpertRepository;
+import com.odx.experts.expert.SlotService;
+import com.odx.experts.observability.BackgroundFailures;
+import com.odx.experts.purchase.PurchaseRepository;
+import com.odx.experts.session.BookingService;
+import com.odx.experts.session.SlotsFreedEvent;
+import com.odx.experts.shard.ShardRouter;
+import com.odx.experts.util.TimeUtil;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
-create table users (
-  id uuid primary key default gen_random_uuid(),
-  username text unique not null,
-  password text not null,
-  name text not null,
-  email text not null,
-  role role not null,
-  active boolean not null default true,
-  expert_id uuid
-);
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Waitlist per (expert, date, optional start-time range), so clients stop polling /slots for a cancellation. A freed
+ * slot (cancel, bulk cancel, expired or abandoned hold) is offered to the best entry in {@link WaitlistIndex}:
+ * auto-book entries are booked against their purchase through {@link BookingService}; the others get a hold only they
+ * can book ({@link #confirm}) until odx.waitlist.hold runs out. Every claim is a conditional update of the entry row
+ * (and held slots are unique per expert and day), so pods matching the same slot cannot both win it.
+ */
+@Service
+public class WaitlistService {
+  private enum Match { MATCHED, TAKEN, SKIP }
+
+  private final WaitlistRepository repo; private final WaitlistIndex index; private final BookingService booking;
+  private final PurchaseRepository purchases; private final ExpertRepository experts; private final SlotService slots;
+  private final ShardRouter shards; private final TransactionTemplate tx; private final Clock clock; private final Duration hold;
+  private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+
+  public WaitlistService(WaitlistRepository repo, WaitlistIndex index, BookingService booking, PurchaseRepository purchases,
+                         ExpertRepository experts, SlotService slots, ShardRouter shards, TransactionTemplate tx, Clock clock,
+                         @Value("${odx.waitlist.hold:15m}") Duration hold) {
+    this.repo = repo; this.index = index; this.booking = booking; this.purchases = purchases; this.experts = experts;
+    this.slots = slots; this.shards = shards; this.tx = tx; this.clock = clock; this.hold = hold;
+  }
 
-create table experts (
-  id uuid primary key default gen_random_uuid(),
-  name text not null,
-  domain domain not null,
-  description text,
-  experience text,
-  base_rating double precision default 4.5,
-  hourly_rate integer not null,
-  phone text, email text,
-  day_start text default '09:00',
-  day_end text default '17:00',
-  workdays text default '1,2,3,4,5'
-);
+  /** Runs on the expert's shard. A slot already free in the range is offered at once. */
+  public WaitlistEntry join(UUID userId, UUID purchaseId, LocalDate date, Integer fromMin, Integer toMin, boolean autoBook, int priority) {
+    var purchase = purchases.findById(purchaseId).orElseThrow(() -> new IllegalArgumentException("Purchase not found"));
+    if (!purchase.getUserId().equals(userId)) throw new IllegalArgumentException("Purchase does not belong to user");
+    if (purchase.getHoursRemaining() < Constants.SLOT_MIN / 60.0 - 1e-6) throw new IllegalArgumentException("Not enough hours remaining");
+    if (date == null || date.isBefore(today())) throw new IllegalArgumentException("date must be today or later");
+    if ((fromMin == null) != (toMin == null)) throw new IllegalArgumentException("Give both ends of the time range, or neither");
+    if (fromMin != null && (fromMin < 0 || toMin > 24 * 60 || toMin - fromMin < Constants.SLOT_MIN))
+      throw new IllegalArgumentException("Time range must fit at least one slot");
+    if (repo.existsByUserIdAndExpertIdAndDateAndStateIn(userId, purchase.getExpertId(), date, List.of(WaitlistState.WAITING, WaitlistState.HELD)))
+      throw new IllegalArgumentException("Already on the waitlist for this day");
+
+    var entry = repo.save(WaitlistEntry.builder().userId(userId).expertId(purchase.getExpertId()).purchaseId(purchaseId).date(date)
+      .fromMin(fromMin).toMin(toMin).priority(priority).autoBook(autoBook).state(WaitlistState.WAITING)
+      .createdAt(Instant.now(clock)).build());
+    var w = WaitlistIndex.waiter(entry);
+    index.add(w);
+    var ex = experts.findById(entry.getExpertId()).orElseThrow();
+    for (var s : slots.slotsForDate(ex, date)) {
+      if (!index.waiting(w.id())) break; // matched
+      if (s[0] >= w.firstStart() && s[0] <= w.lastStart()) offer(ex, date, s[0], s[1]);
+    }
+    return repo.findById(entry.getId()).orElseThrow();
+  }
 
-create table availability_override (
-  id uuid primary key default gen_random_uuid(),
-  expert_id uuid not null,
-  date date not null,
-  workday boolean not null default true,
-  day_start text,
-  day_end text
-);
+  /** Leaves the waitlist; a held slot goes to the next entry. */
+  public void leave(UUID id, UUID userId) {
+    var e = owned(id, userId);
+    index.remove(id);
+    if (repo.move(id, WaitlistState.WAITING, WaitlistState.LEFT) == 1) return;
+    if (repo.move(id, WaitlistState.HELD, WaitlistState.LEFT) == 1) release(e);
+  }
+
+  /** Books the slot held for the entry against its purchase. */
+  public BatchBookRes confirm(UUID id, UUID userId) {
+    return tx.execute(st -> {
+      var e = owned(id, userId);
+      if (e.getState() != WaitlistState.HELD || !e.getHoldExpiresAt().isAfter(clock.instant()))
+        throw new IllegalArgumentException("No active hold for this entry");
+      // frees the slot for the booking below, same transaction; 0 when expire() took the hold since owned() read it
+      if (repo.move(id, WaitlistState.HELD, WaitlistState.BOOKED) != 1) throw new IllegalArgumentException("No active hold for this entry");
+      var res = booking.book(request(e.getPurchaseId(), e.getDate(), e.getHeldStartMin()), userId);
+      repo.attachSession(id, UUID.fromString(res.sessions().get(0).sessionId()));
+      return res;
+    });
+  }
+
+  public List<WaitlistEntry> forUser(UUID userId) {
+    var today = today();
+    return shards.fanOutConcat(s -> repo.findByUserIdAndDateGreaterThanEqualOrderByDateAscCreatedAtAsc(userId, today));
+  }
+
+  // after the cancel commits, off the request thread; a failed match leaves the slot free for anyone to book
+  @TransactionalEventListener
+  void onFreed(SlotsFreedEvent e) {
+    pool.execute(() -> {
+      try {
+        shards.run(e.expertId(), () -> {
+          var ex = experts.findById(e.expertId()).orElseThrow();
+          index.catchUp(shards.shardOf(e.expertId()));
+          for (var s : e.slots()) offer(ex, s.date(), s.startMin(), s.endMin());
+        });
+      } catch (RuntimeException ex) {
+        BackgroundFailures.record("waitlist.match", e.expertId(), e.slots().size(), ex);
+      }
+    });
+  }
+
+  // lets matches already running finish before the data source goes away
+  @PreDestroy
+  void shutdown() { pool.close(); }
+
+  @Scheduled(fixedDelayString = "${odx.waitlist.expire-poll-ms:15000}")
+  void expire() {
+    var now = clock.instant(); var today = today();
+    shards.fanOut(s -> {
+      repo.expireWaiting(today);
+      for (var e : repo.findByStateAndHoldExpiresAtBefore(WaitlistState.HELD, now))
+        if (repo.move(e.getId(), WaitlistState.HELD, WaitlistState.EXPIRED) == 1) release(e);
+      return null;
+    });
+  }
+
+  private void release(WaitlistEntry e) {
+    var ex = experts.findById(e.getExpertId()).orElseThrow();
+    offer(ex, e.getDate(), e.getHeldStartMin(), e.getHeldStartMin() + Constants.SLOT_MIN);
+  }
+
+  // best entry first; an entry that cannot take the slot is skipped (and expired if it never could), until one matches
+  private void offer(Expert ex, LocalDate date, int startMin, int endMin) {
+    if (!TimeUtil.atDateAndMinute(date, startMin, ZoneId.systemDefault()).isAfter(clock.instant())) return;
+    WaitlistIndex.Waiter w;
+    while ((w = index.best(ex.getId(), date, startMin)) != null) {
+      var m = match(w, ex, date, startMin, endMin);
+      if (m == Match.TAKEN) return;
+      index.remove(w.id());
+      if (m == Match.MATCHED) return;
+    }
+  }
+
+  private Match match(WaitlistIndex.Waiter w, Expert ex, LocalDate date, int startMin, int endMin) {
+    try {
+      return tx.execute(st -> {
+        if (w.autoBook()) {
+          if (repo.move(w.id(), WaitlistState.WAITING, WaitlistState.BOOKED) == 0) return Match.SKIP; // left, or matched elsewhere
+          var res = booking.book(request(w.purchaseId(), date, startMin), w.userId());
+          repo.attachSession(w.id(), UUID.fromString(res.sessions().get(0).sessionId()));
+          return Match.MATCHED;
+        }
+        if (!free(ex, date, startMin, endMin)) return Match.TAKEN;
+        return repo.hold(w.id(), startMin, clock.instant().plus(hold)) == 1 ? Match.MATCHED : Match.SKIP;
+      });
+    } catch (DataIntegrityViolationException e) {
+      return Match.TAKEN; // another pod held the slot first (waitlist_held_slot)
+    } catch (IllegalArgumentException e) {
+      // the booking was refused: the slot went meanwhile, or this entry cannot use it (purchase out of hours)
+      if (!free(ex, date, startMin, endMin)) return Match.TAKEN;
+      repo.move(w.id(), WaitlistState.WAITING, WaitlistState.EXPIRED);
+      return Match.SKIP;
+    }
+  }
+
+  private boolean free(Expert ex, LocalDate date, int startMin, int endMin) {
+    return slots.slotsForDate(ex, date).stream().anyMatch(a -> a[0] == startMin && a[1] == endMin);
+  }
+
+  private WaitlistEntry owned(UUID id, UUID userId) {
+    var e = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Waitlist entry not found"));
+    if (!e.getUserId().equals(userId)) throw new IllegalArgumentException("Waitlist entry does not belong to user");
+    return e;
+  }
+
+  private static BatchBookReq request(UUID purchaseId, LocalDate date, int startMin) {
+    return new BatchBookReq(purchaseId, date, List.of(new Slot(startMin, startMin + Constants.SLOT_MIN)));
+  }
+
+  private LocalDate today() { return LocalDate.ofInstant(clock.instant(), ZoneId.systemDefault()); }
+}
+```
+
+## waitlist/WaitlistController.java
+```java
+package com.odx.experts.waitlist;
+
+import com.odx.experts.auth.Caller;
+import com.odx.experts.auth.ForbiddenException;
+import com.odx.experts.dto.BatchBookRes;
+import com.odx.experts.shard.ShardRouter;
+import com.odx.experts.util.TimeUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List; import java.util.UUID;
+
+// entries live on the expert's shard, next to the purchase they book against
+@RestController @RequestMapping("/api/waitlist") @RequiredArgsConstructor
+public class WaitlistController {
+  private final WaitlistService waitlist;
+  private final ShardRouter shards;
+
+  // fromHHmm/toHHmm bound the slot (omit both for any time that day); a non-zero priority jumps the queue, admins only
+  public record JoinReq(UUID userId, UUID purchaseId, LocalDate date, String fromHHmm, String toHHmm, boolean autoBook, int priority) {}
+  public record UserReq(UUID userId) {}
+
+  @PostMapping
+  public ResponseEntity<WaitlistEntry> join(@RequestBody JoinReq req) {
+    Caller.checkUser(req.userId());
+    if (req.priority() != 0 && Caller.current().filter(p -> !p.admin()).isPresent()) throw new ForbiddenException("Only admins may set a priority");
+    Integer from = req.fromHHmm() == null ? null : TimeUtil.toMinutes(req.fromHHmm());
+    Integer to = req.toHHmm() == null ? null : TimeUtil.toMinutes(req.toHHmm());
+    return ResponseEntity.ok(shards.on(shards.expertOfPurchase(req.purchaseId()),
+      () -> waitlist.join(req.userId(), req.purchaseId(), req.date(), from, to, req.autoBook(), req.priority())));
+  }
+
+  @PostMapping("/{id}/confirm")
+  public ResponseEntity<BatchBookRes> confirm(@PathVariable UUID id, @RequestBody UserReq req) {
+    Caller.checkUser(req.userId());
+    return ResponseEntity.ok(shards.on(shards.expertOfWaitlistEntry(id), () -> waitlist.confirm(id, req.userId())));
+  }
+
+  @PostMapping("/{id}/leave")
+  public ResponseEntity<?> leave(@PathVariable UUID id, @RequestBody UserReq req) {
+    Caller.checkUser(req.userId());
+    shards.run(shards.expertOfWaitlistEntry(id), () -> waitlist.leave(id, req.userId()));
+    return ResponseEntity.ok().build();
+  }
+
+  @GetMapping("/users/{userId}")
+  public List<WaitlistEntry> forUser(@PathVariable UUID userId) { return waitlist.forUser(userId); }
+}
+```
+
+## meeting/MeetingProperties.java
+```java
+package com.odx.experts.meeting;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** odx.meetings: how sessions without a meeting link are batched to the provider and retried. */
+@ConfigurationProperties("odx.meetings")
+public record MeetingProperties(Integer batchSize, Duration lease, Duration backoffBase, Duration backoffMax) {
+  public MeetingProperties {
+    if (batchSize == null) batchSize = 50;
+    if (lease == null) lease = Duration.ofMinutes(1); // claimed rows stay invisible to other pods while the provider answers
+    if (backoffBase == null) backoffBase = Duration.ofSeconds(5);
+    if (backoffMax == null) backoffMax = Duration.ofMinutes(10);
+  }
+}
+```
+
+## meeting/MeetingProvider.java
+```java
+package com.odx.experts.meeting;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Creates meeting rooms for booked sessions. Called by {@link MeetingLinkWorker} outside any transaction, with up to
+ * odx.meetings.batch-size sessions at a time. Returns a link per session it could provision; sessions missing from
+ * the map (or a thrown exception, for the whole batch) are retried with backoff. Declare a bean of this type to
+ * replace the local stub.
+ */
+public interface MeetingProvider {
+  record Meeting(UUID sessionId, UUID expertId, UUID userId, LocalDate date, int startMin, int endMin) {}
+
+  Map<UUID, String> create(List<Meeting> meetings);
+}
+```
+
+## meeting/StubMeetingProvider.java
+```java
+package com.odx.experts.meeting;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/** Local stand-in: the links the booking path used to generate inline, without calling anything. */
+class StubMeetingProvider implements MeetingProvider {
+  @Override
+  public Map<UUID, String> create(List<Meeting> meetings) {
+    var out = new HashMap<UUID, String>();
+    for (var m : meetings) out.put(m.sessionId(), "https://meet.example.com/" + UUID.randomUUID().toString().substring(0, 8));
+    return out;
+  }
+}
+```
+
+## meeting/MeetingLinkWorker.java
+```java
+package com.odx.experts.meeting;
+
+import com.odx.experts.observability.BackgroundFailures;
+import com.odx.experts.shard.ShardRouter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fills in meeting links after booking: sessions commit with link = null and this worker provisions them, so the
+ * booking transaction never waits on the provider. Per shard and batch: claim due rows in one short statement (skip
+ * locked, pushing link_next_at out by the lease so other pods pass them over), call the provider with no transaction
+ * open, then write the links. Failures back off exponentially with jitter, capped at backoff-max, until the session
+ * is no longer UPCOMING; a provider exception is recorded as a meetings.provision background failure. The V11
+ * trigger copies each link into the schedule projection.
+ */
+@Component
+public class MeetingLinkWorker {
+  private final JdbcTemplate jdbc; private final ShardRouter shards; private final MeetingProvider provider; private final Clock clock;
+  private final int batchSize; private final Duration lease, backoffBase, backoffMax;
+
+  public MeetingLinkWorker(JdbcTemplate jdbc, ShardRouter shards, MeetingProvider provider, Clock clock, MeetingProperties props) {
+    this.jdbc = jdbc; this.shards = shards; this.provider = provider; this.clock = clock;
+    this.batchSize = props.batchSize(); this.lease = props.lease(); this.backoffBase = props.backoffBase(); this.backoffMax = props.backoffMax();
+  }
+
+  record Due(MeetingProvider.Meeting meeting, int attempts) {}
+
+  @Scheduled(fixedDelayString = "${odx.meetings.poll-ms:1000}")
+  public void run() {
+    shards.fanOut(s -> {
+      int n;
+      do { n = provisionBatch(); } while (n == batchSize);
+      return null;
+    });
+  }
+
+  /** One claim, provider call and write-back on the current shard; returns the number of sessions claimed. */
+  int provisionBatch() {
+    var now = clock.instant();
+    var due = jdbc.query("""
+        update sessions set link_next_at = ? where id in (
+          select id from sessions where link is null and status = 'UPCOMING' and (link_next_at is null or link_next_at <= ?)
+          order by created_at limit ? for update skip locked)
+        returning id, expert_id, user_id, date, start_min, end_min, link_attempts""",
+      (rs, i) -> new Due(new MeetingProvider.Meeting(rs.getObject("id", UUID.class), rs.getObject("expert_id", UUID.class),
+        rs.getObject("user_id", UUID.class), rs.getObject("date", LocalDate.class), rs.getInt("start_min"), rs.getInt("end_min")),
+        rs.getInt("link_attempts")),
+      Timestamp.from(now.plus(lease)), Timestamp.from(now), batchSize);
+    if (due.isEmpty()) return 0;
+
+    Map<UUID, String> links;
+    try {
+      links = provider.create(due.stream().map(Due::meeting).toList());
+    } catch (RuntimeException e) {
+      BackgroundFailures.record("meetings.provision", null, due.size(), e); // the batch spans experts
+      links = Map.of();
+    }
+    var done = new ArrayList<Object[]>(); var failed = new ArrayList<Object[]>();
+    var after = clock.instant();
+    for (var d : due) {
+      var link = links.get(d.meeting().sessionId());
+      if (link != null) done.add(new Object[]{link, d.meeting().sessionId()});
+      else failed.add(new Object[]{Timestamp.from(after.plus(backoff(d.attempts()))), d.meeting().sessionId()});
+    }
+    // "link is null": a row another pod picked up after our lease ran out keeps whichever link landed first
+    if (!done.isEmpty()) jdbc.batchUpdate("update sessions set link = ?, link_next_at = null where id = ? and link is null", done);
+    if (!failed.isEmpty())
+      jdbc.batchUpdate("update sessions set link_attempts = link_attempts + 1, link_next_at = ? where id = ? and link is null", failed);
+    return due.size();
+  }
+
+  // base * 2^attempts capped at max, then a random point in its upper half so a provider outage does not retry in lockstep
+  Duration backoff(int attempts) {
+    long cap = backoffMax.toMillis();
+    long d = Math.min(cap, backoffBase.toMillis() << Math.min(attempts, 30));
+    return Duration.ofMillis(d / 2 + ThreadLocalRandom.current().nextLong(d / 2 + 1));
+  }
+}
+```
+
+## meeting/MeetingConfig.java
+```java
+package com.odx.experts.meeting;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration @EnableConfigurationProperties(MeetingProperties.class)
+public class MeetingConfig {
+  // a real provider is any other MeetingProvider bean; without one, links come from the stub
+  @Bean @ConditionalOnMissingBean(MeetingProvider.class)
+  MeetingProvider stubMeetingProvider() { return new StubMeetingProvider(); }
+}
+```
+
+## reminder/ReminderProperties.java
+```java
+package com.odx.experts.reminder;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+/** odx.reminders: when reminders go out before a session, and how far ahead they are loaded into the wheel. */
+@ConfigurationProperties("odx.reminders")
+public record ReminderProperties(Boolean enabled, List<Duration> leads, Duration window, Integer batchSize, Duration lease) {
+  public ReminderProperties {
+    if (enabled == null) enabled = true;
+    leads = (leads == null ? List.of(Duration.ofHours(24), Duration.ofMinutes(15)) : leads).stream()
+      .sorted(Comparator.reverseOrder()).toList(); // longest lead first
+    if (window == null) window = Duration.ofHours(1);
+    if (batchSize == null) batchSize = 200;
+    if (lease == null) lease = Duration.ofMinutes(1); // a claim not marked sent by then is retried
+  }
+}
+```
+
+## reminder/TimingWheel.java
+```java
+package com.odx.experts.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Level 0 has {@code size} buckets of one tick; each level above has {@code size} buckets
+ * spanning a whole turn of the level below. An item is filed in the lowest level whose current turn contains its due
+ * time and moves down when time reaches its bucket, so adding and firing cost O(levels) per item whatever the number
+ * of timers, and an idle tick is one bucket lookup. Items past the top level wait in an overflow list that is re-filed
+ * whenever the top level turns over. Not thread-safe.
+ */
+final class TimingWheel<T> {
+  private record Timer<T>(long due, T item) {}
+
+  private final long tick; private final int size;
+  private final long[] span;             // span[i]: one bucket of level i; span[levels]: one turn of the top level
+  private final List<Timer<T>>[][] buckets;
+  private final List<Timer<T>> overflow = new ArrayList<>();
+  private long now; private int count;
+
+  @SuppressWarnings("unchecked")
+  TimingWheel(long tickMs, int size, int levels, long startMs) {
+    this.tick = tickMs; this.size = size;
+    this.span = new long[levels + 1];
+    span[0] = tickMs;
+    for (int i = 1; i <= levels; i++) span[i] = Math.multiplyExact(span[i - 1], size);
+    this.buckets = new List[levels][size];
+    this.now = startMs - Math.floorMod(startMs, tickMs);
+  }
+
+  long now() { return now; }
+  int size() { return count; }
+
+  /** Files the item; false (and nothing filed) when it is due before the next tick. */
+  boolean add(long dueMs, T item) {
+    if (dueMs < now + tick) return false;
+    file(new Timer<>(dueMs, item));
+    count++;
+    return true;
+  }
+
+  /** Moves time forward to nowMs, handing every item due by then to {@code fire}, tick by tick. */
+  void advance(long nowMs, Consumer<T> fire) {
+    int top = buckets.length;
+    while (now + tick <= nowMs) {
+      now += tick;
+      if (now % span[top] == 0 && !overflow.isEmpty()) {
+        var waiting = new ArrayList<>(overflow);
+        overflow.clear();
+        waiting.forEach(this::file);
+      }
+      for (int i = top - 1; i >= 1; i--) { // a new turn of level i-1 starts: bring level i's bucket down, top level first
+        if (now % span[i] != 0) continue;
+        int b = (int) ((now / span[i]) % size);
+        var moving = buckets[i][b];
+        buckets[i][b] = null;
+        if (moving != null) moving.forEach(this::file);
+      }
+      int b = (int) ((now / tick) % size);
+      var due = buckets[0][b];
+      buckets[0][b] = null;
+      if (due != null) for (var t : due) { count--; fire.accept(t.item()); }
+    }
+  }
+
+  private void file(Timer<T> t) {
+    for (int i = 0; i < buckets.length; i++) {
+      if (t.due() / span[i + 1] != now / span[i + 1]) continue; // not in the current turn of level i
+      int b = (int) ((t.due() / span[i]) % size);
+      if (buckets[i][b] == null) buckets[i][b] = new ArrayList<>();
+      buckets[i][b].add(t);
+      return;
+    }
+    overflow.add(t);
+  }
+}
+```
+
+## reminder/ReminderNotifier.java
+```java
+package com.odx.experts.reminder;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sends session reminders (email to the client, email and SMS to the expert, as the implementation sees fit). Called
+ * by {@link ReminderScheduler} with up to odx.reminders.batch-size notices; returns the ones delivered, the rest are
+ * retried once their claim lease runs out. Declare a bean of this type to replace the local stub.
+ */
+public interface ReminderNotifier {
+  record Notice(UUID sessionId, int leadMin, Instant startsAt, String expertName, String expertEmail, String expertPhone,
+                String userName, String userEmail) {}
+
+  Collection<Notice> send(List<Notice> notices);
+}
+```
+
+## reminder/StubReminderNotifier.java
+```java
+package com.odx.experts.reminder;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/** Local stand-in: delivers nothing, keeps the last notices in memory for inspection. */
+class StubReminderNotifier implements ReminderNotifier {
+  private static final int KEEP = 1000;
+  private final Deque<Notice> recent = new ArrayDeque<>();
+
+  @Override
+  public synchronized Collection<Notice> send(List<Notice> notices) {
+    for (var n : notices) { if (recent.size() == KEEP) recent.removeFirst(); recent.addLast(n); }
+    return notices;
+  }
+
+  synchronized List<Notice> recent() { return List.copyOf(recent); }
+}
+```
+
+## reminder/ReminderScheduler.java
+```java
+package com.odx.experts.reminder;
+
+import com.odx.experts.common.Constants;
+import com.odx.experts.observability.BackgroundFailures;
+import com.odx.experts.session.SessionsBookedEvent;
+import com.odx.experts.session.SlotsFreedEvent;
+import com.odx.experts.shard.ShardRouter;
+import com.odx.experts.shard.ShardUnavailableException;
+import com.odx.experts.util.TimeUtil;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Session reminders at each odx.reminders.leads before start, from a {@link TimingWheel} instead of a "what is due"
+ * query per minute. The wheel holds only reminders due within the next odx.reminders.window: a load pass reads the
+ * next stretch of upcoming sessions per lead (a range scan of sessions_upcoming_date), bookings and cancels on this pod
+ * update it through events, and bookings on other pods are picked up from created_at. Due reminders are claimed in
+ * reminder_sent (on the expert's shard) before the notifier is called, so pods and restarts never send one twice; a
+ * checkpoint on the primary records how far every due reminder has been claimed, and a restart reloads from there, so
+ * none is missed. A claim that was never marked sent (notifier failure, crash) is retried once its lease expires;
+ * notifier and shard failures are recorded as reminders.send background failures.
+ * Reminders whose time came before the booking, or after the session started, are not sent; after an outage only the
+ * latest overdue lead of a session goes out.
+ */
+@Component
+public class ReminderScheduler {
+  private static final Duration CHECKPOINT_EVERY = Duration.ofSeconds(10);
+  private static final long TICK_MS = 1000; private static final int WHEEL_SIZE = 64, LEVELS = 4; // about 194 days
+
+  record Key(UUID sessionId, int leadMin) {}
+  record Reminder(UUID sessionId, UUID expertId, UUID userId, int leadMin, Instant dueAt, Instant startsAt) {}
+  private record Row(UUID sessionId, UUID expertId, UUID userId, Instant startsAt, Instant createdAt) {}
+
+  private final JdbcTemplate jdbc; private final NamedParameterJdbcTemplate named; private final ShardRouter shards;
+  private final ReminderNotifier notifier; private final Clock clock;
+  private final boolean enabled; private final List<Duration> leads; private final Duration window, lease; private final int batchSize;
+
+  // guarded by this: the wheel, what is in it, and overdue reminders waiting for the next tick
+  private final TimingWheel<Reminder> wheel;
+  private final Map<Key, Reminder> pending = new HashMap<>(); // a wheel entry missing here was cancelled
+  private final List<Reminder> overdue = new ArrayList<>();
+  private volatile Instant loadedThrough;                      // null until the checkpoint has been read
+  private final Map<String, Instant> createdSeen = new HashMap<>();
+  private Instant lastCheckpoint = Instant.EPOCH;
+
+  public ReminderScheduler(JdbcTemplate jdbc, NamedParameterJdbcTemplate named, ShardRouter shards, ReminderNotifier notifier,
+                           Clock clock, ReminderProperties props) {
+    this.jdbc = jdbc; this.named = named; this.shards = shards; this.notifier = notifier; this.clock = clock;
+    this.enabled = props.enabled(); this.leads = props.leads(); this.window = props.window(); this.lease = props.lease();
+    this.batchSize = props.batchSize();
+    this.wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, LEVELS, clock.millis());
+  }
+
+  public synchronized int scheduled() { return pending.size(); }
+
+  /** Extends the loaded window, picks up other pods' bookings and retries stale claims. */
+  @Scheduled(fixedDelayString = "${odx.reminders.load-ms:5000}")
+  void load() {
+    if (!enabled) return;
+    var now = clock.instant();
+    if (loadedThrough == null) {
+      var through = shards.onShard(shards.primary(), () -> jdbc.query("select through from reminder_checkpoint where id = 1",
+        rs -> rs.next() ? rs.getTimestamp(1).toInstant() : null));
+      for (var shard : shards.shards()) createdSeen.put(shard, now);
+      loadedThrough = through == null ? now : through; // first start ever: nothing is owed from before it
+    }
+    var target = now.plus(window);
+    if (Duration.between(loadedThrough, target).compareTo(window.dividedBy(2)) >= 0) {
+      var from = loadedThrough;
+      for (var shard : shards.shards()) shards.onShard(shard, () -> { loadWindow(from, target, now); return null; });
+      loadedThrough = target;
+    }
+    for (var shard : shards.shards()) shards.onShard(shard, () -> { loadNew(shard, now); retryStale(now); return null; });
+  }
+
+  @Scheduled(fixedDelayString = "${odx.reminders.tick-ms:1000}")
+  void tick() {
+    if (!enabled || loadedThrough == null) return;
+    var now = clock.instant();
+    var due = new ArrayList<Reminder>();
+    synchronized (this) {
+      for (var r : overdue) if (pending.remove(key(r), r)) due.add(r);
+      overdue.clear();
+      wheel.advance(now.toEpochMilli(), r -> { if (pending.remove(key(r), r)) due.add(r); });
+    }
+    boolean complete = dispatch(due, now);
+    if (complete && !Duration.between(lastCheckpoint, now).minus(CHECKPOINT_EVERY).isNegative()) {
+      shards.onShard(shards.primary(), () -> jdbc.update("""
+          insert into reminder_checkpoint (id, through) values (1, ?)
+          on conflict (id) do update set through = greatest(reminder_checkpoint.through, excluded.through)""", Timestamp.from(now)));
+      lastCheckpoint = now;
+    }
+  }
+
+  @TransactionalEventListener
+  void onBooked(SessionsBookedEvent e) {
+    var horizon = loadedThrough;
+    if (!enabled || horizon == null) return; // the first load pass finds them
+    var now = clock.instant();
+    for (var s : e.sessions()) {
+      var row = new Row(s.sessionId(), e.expertId(), e.userId(), startsAt(e.date(), s.startMin()), now);
+      for (var lead : leads) if (!row.startsAt().minus(lead).isAfter(horizon)) add(row, lead, now);
+    }
+  }
+
+  @TransactionalEventListener
+  synchronized void onFreed(SlotsFreedEvent e) {
+    for (var s : e.slots()) for (var lead : leads) pending.remove(new Key(s.sessionId(), (int) lead.toMinutes()));
+  }
+
+  @Scheduled(fixedDelay = 3_600_000)
+  void purge() {
+    var before = Timestamp.from(clock.instant().minus(leads.get(0)).minus(Duration.ofDays(1)));
+    shards.fanOut(s -> jdbc.update("delete from reminder_sent where claimed_at < ?", before));
+  }
+
+  // reminders due in (from, to]: per lead, sessions starting in (from + lead, to + lead]
+  private void loadWindow(Instant from, Instant to, Instant now) {
+    var zone = ZoneId.systemDefault();
+    for (var lead : leads) {
+      var a = LocalDateTime.ofInstant(from.plus(lead), zone); var b = LocalDateTime.ofInstant(to.plus(lead), zone);
+      int aMin = a.getHour() * 60 + a.getMinute(), bMin = b.getHour() * 60 + b.getMinute();
+      for (var row : jdbc.query("""
+          select id, expert_id, user_id, date, start_min, created_at from sessions
+          where status = 'UPCOMING' and date between ? and ? and (date, start_min) > (?, ?) and (date, start_min) <= (?, ?)""",
+          this::row, a.toLocalDate(), b.toLocalDate(), a.toLocalDate(), aMin, b.toLocalDate(), bMin))
+        add(row, lead, now);
+    }
+  }
+
+  // sessions booked on other pods since the last pass, for leads whose reminders fall inside the loaded window
+  private void loadNew(String shard, Instant now) {
+    var since = createdSeen.get(shard);
+    var rows = jdbc.query("select id, expert_id, user_id, date, start_min, created_at from sessions where status = 'UPCOMING' and created_at > ?",
+      this::row, Timestamp.from(since.minus(Constants.POLL_OVERLAP)));
+    for (var row : rows) {
+      if (row.createdAt().isAfter(createdSeen.get(shard))) createdSeen.put(shard, row.createdAt());
+      for (var lead : leads) if (!row.startsAt().minus(lead).isAfter(loadedThrough)) add(row, lead, now);
+    }
+  }
+
+  private void retryStale(Instant now) {
+    jdbc.query("""
+        select s.id, s.expert_id, s.user_id, s.date, s.start_min, s.created_at, r.lead_min
+        from reminder_sent r join sessions s on s.id = r.session_id
+        where r.sent_at is null and r.claimed_at < ? and s.status = 'UPCOMING'""", rs -> {
+      add(row(rs, 0), Duration.ofMinutes(rs.getInt("lead_min")), now);
+    }, Timestamp.from(now.minus(lease)));
+  }
+
+  private void add(Row row, Duration lead, Instant now) {
+    var due = row.startsAt().minus(lead);
+    if (due.isBefore(row.createdAt()) || !row.startsAt().isAfter(now)) return;
+    if (!due.isAfter(now)) { // overdue (restart, retry): only the latest lead that has come due is still worth sending
+      for (var later : leads) if (later.compareTo(lead) < 0 && !row.startsAt().minus(later).isAfter(now)) return;
+    }
+    var r = new Reminder(row.sessionId(), row.expertId(), row.userId(), (int) lead.toMinutes(), due, row.startsAt());
+    synchronized (this) {
+      if (pending.putIfAbsent(key(r), r) != null) return;
+      if (!wheel.add(due.toEpochMilli(), r)) overdue.add(r);
+    }
+  }
+
+  /** Claims, notifies and marks sent, per shard and batch; false if some reminders must wait for a later tick. */
+  private boolean dispatch(List<Reminder> due, Instant now) {
+    if (due.isEmpty()) return true;
+    boolean complete = true;
+    var byShard = new HashMap<String, List<Reminder>>();
+    for (var r : due) {
+      try { byShard.computeIfAbsent(shards.shardOf(r.expertId()), k -> new ArrayList<>()).add(r); }
+      catch (ShardUnavailableException e) { requeue(List.of(r)); complete = false; } // expert mid-move
+    }
+    for (var e : byShard.entrySet()) {
+      var list = e.getValue();
+      for (int i = 0; i < list.size(); i += batchSize) {
+        var batch = list.subList(i, Math.min(list.size(), i + batchSize));
+        try { shards.onShard(e.getKey(), () -> { send(batch, now); return null; }); }
+        catch (RuntimeException ex) { // claims it did make are retried after the lease
+          BackgroundFailures.record("reminders.send", null, batch.size(), ex);
+          requeue(batch); complete = false;
+        }
+      }
+    }
+    return complete;
+  }
+
+  // back in front of the next tick; the checkpoint stays put until they are claimed
+  private synchronized void requeue(List<Reminder> rs) {
+    for (var r : rs) if (pending.putIfAbsent(key(r), r) == null) overdue.add(r);
+  }
+
+  private void send(List<Reminder> batch, Instant now) {
+    // claim: inserted, or taken over from a stale unsent claim; a session cancelled meanwhile claims nothing
+    var counts = jdbc.batchUpdate("""
+        insert into reminder_sent (session_id, lead_min, expert_id, claimed_at)
+        select id, ?, expert_id, now() from sessions where id = ? and status = 'UPCOMING'
+        on conflict (session_id, lead_min) do update set claimed_at = excluded.claimed_at
+          where reminder_sent.sent_at is null and reminder_sent.claimed_at < ?""",
+      batch.stream().map(r -> new Object[]{r.leadMin(), r.sessionId(), Timestamp.from(now.minus(lease))}).toList());
+    var claimed = new ArrayList<Reminder>();
+    for (int i = 0; i < counts.length; i++) if (counts[i] == 1) claimed.add(batch.get(i));
+    if (claimed.isEmpty()) return;
+
+    var experts = new HashMap<UUID, String[]>();
+    named.query("select id, name, email, phone from experts where id in (:ids)",
+      new MapSqlParameterSource("ids", claimed.stream().map(Reminder::expertId).distinct().toList()),
+      rs -> { experts.put(rs.getObject("id", UUID.class), new String[]{rs.getString("name"), rs.getString("email"), rs.getString("phone")}); });
+    var users = new HashMap<UUID, String[]>();
+    shards.onShard(shards.primary(), () -> { // users live on the primary
+      named.query("select id, name, email from users where id in (:ids)",
+        new MapSqlParameterSource("ids", claimed.stream().map(Reminder::userId).distinct().toList()),
+        rs -> { users.put(rs.getObject("id", UUID.class), new String[]{rs.getString("name"), rs.getString("email")}); });
+      return null;
+    });
+    var notices = new ArrayList<ReminderNotifier.Notice>(claimed.size());
+    for (var r : claimed) {
+      var ex = experts.getOrDefault(r.expertId(), new String[3]); var u = users.getOrDefault(r.userId(), new String[2]);
+      notices.add(new ReminderNotifier.Notice(r.sessionId(), r.leadMin(), r.startsAt(), ex[0], ex[1], ex[2], u[0], u[1]));
+    }
+
+    Collection<ReminderNotifier.Notice> delivered;
+    try { delivered = notifier.send(notices); }
+    catch (RuntimeException e) { // claims stay unsent: retried after the lease
+      BackgroundFailures.record("reminders.send", null, notices.size(), e);
+      delivered = List.of();
+    }
+    if (!delivered.isEmpty())
+      jdbc.batchUpdate("update reminder_sent set sent_at = now() where session_id = ? and lead_min = ?",
+        delivered.stream().map(n -> new Object[]{n.sessionId(), n.leadMin()}).toList());
+  }
+
+  private Row row(ResultSet rs, int i) throws SQLException {
+    var created = rs.getTimestamp("created_at");
+    return new Row(rs.getObject("id", UUID.class), rs.getObject("expert_id", UUID.class), rs.getObject("user_id", UUID.class),
+      startsAt(rs.getObject("date", LocalDate.class), rs.getInt("start_min")), created == null ? Instant.EPOCH : created.toInstant());
+  }
+
+  private static Instant startsAt(LocalDate date, int startMin) { return TimeUtil.atDateAndMinute(date, startMin, ZoneId.systemDefault()); }
+
+  private static Key key(Reminder r) { return new Key(r.sessionId(), r.leadMin()); }
+}
+```
+
+## reminder/ReminderConfig.java
+```java
+package com.odx.experts.reminder;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration @EnableConfigurationProperties(ReminderProperties.class)
+public class ReminderConfig {
+  // a real notifier (email/SMS gateway) is any other ReminderNotifier bean; without one, notices go to the stub
+  @Bean @ConditionalOnMissingBean(ReminderNotifier.class)
+  ReminderNotifier stubReminderNotifier() { return new StubReminderNotifier(); }
+}
+```
+
+## shard/ShardProperties.java
+```java
+package com.odx.experts.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * odx.shards.nodes: one Postgres per shard; the first node is the primary (users, client payments, shard directory).
+ * Empty = one database through spring.datasource, and every routing call runs inline.
+ */
+@ConfigurationProperties("odx.shards")
+public record ShardProperties(List<Node> nodes, Integer vnodes, Duration moveGrace) {
+  public record Node(String name, String url, String username, String password, Integer poolSize) {}
+
+  public ShardProperties {
+    nodes = nodes == null ? List.of() : List.copyOf(nodes);
+    if (vnodes == null) vnodes = 512;
+    if (moveGrace == null) moveGrace = Duration.ofSeconds(5); // > directory poll + longest request
+  }
+
+  /** Smallest shard pool; nodes without pool-size, and the single unsharded pool, have {@code defaultSize}. */
+  public int smallestPool(int defaultSize) {
+    return nodes.stream().mapToInt(n -> n.poolSize() == null ? defaultSize : n.poolSize()).min().orElse(defaultSize);
+  }
+}
+```
+
+## shard/ConsistentHashRing.java
+```java
+package com.odx.experts.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Each shard owns {@code vnodes} points on a 64-bit ring; a key belongs to the first point at or after its hash.
+ * Adding a shard only moves keys onto the new shard (about 1/n of them); removing one only moves its own keys.
+ */
+public final class ConsistentHashRing {
+  private final NavigableMap<Long, String> points = new TreeMap<>();
+  private final List<String> shards;
+
+  public ConsistentHashRing(List<String> shards, int vnodes) {
+    if (shards.isEmpty()) throw new IllegalArgumentException("At least one shard is required");
+    this.shards = List.copyOf(shards);
+    for (var s : this.shards) for (int i = 0; i < vnodes; i++) points.put(hash(s + "#" + i), s);
+  }
+
+  public List<String> shards() { return shards; }
+
+  public String owner(UUID key) {
+    var e = points.ceilingEntry(mix(key.getMostSignificantBits() ^ mix(key.getLeastSignificantBits())));
+    return (e == null ? points.firstEntry() : e).getValue();
+  }
+
+  private static long hash(String s) { // FNV-1a, then a finalizer so nearby names spread out
+    long h = 0xcbf29ce484222325L;
+    for (byte b : s.getBytes(StandardCharsets.UTF_8)) { h ^= b; h *= 0x100000001b3L; }
+    return mix(h);
+  }
+
+  private static long mix(long z) { // murmur3 fmix64
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return z ^ (z >>> 33);
+  }
+}
+```
+
+## shard/ShardRoutingDataSource.java
+```java
+package com.odx.experts.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/** Hands out connections from the current thread's shard (set by ShardRouter); unset = the primary shard. */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+  private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+  static String current() { return CURRENT.get(); }
+  static void set(String shard) { if (shard == null) CURRENT.remove(); else CURRENT.set(shard); }
+
+  @Override protected Object determineCurrentLookupKey() { return CURRENT.get(); }
+}
+```
+
+## shard/ShardUnavailableException.java
+```java
+package com.odx.experts.shard;
+
+/** The expert's data is being moved between shards; answered with 503 and Retry-After. */
+public class ShardUnavailableException extends RuntimeException {
+  public ShardUnavailableException(String message) { super(message); }
+}
+```
+
+## shard/ShardDirectory.java
+```java
+package com.odx.experts.shard;
+
+import com.odx.experts.common.Constants;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * expertId -> shard. The consistent-hash ring places experts; shard_directory rows (V9, on the primary) pin experts
+ * whose data still lives elsewhere, flag moves in progress and name the source a moved expert still has to be deleted
+ * from (V17). Pins are cached and re-read every odx.shards.directory-poll-ms; a null shard in a row means "unpinned,
+ * follow the ring".
+ */
+@Component
+public class ShardDirectory {
+  public static final String PRIMARY = "primary"; // shard name when odx.shards.nodes is empty
+
+  record Pin(String shard, boolean moving, String cleanupFrom) {}
+
+  private final ConsistentHashRing ring;
+  private final JdbcTemplate jdbc;
+  private final Map<UUID, Pin> pins = new ConcurrentHashMap<>();
+  private Instant watermark = Instant.EPOCH;
+
+  @Autowired
+  public ShardDirectory(ShardProperties props, JdbcTemplate jdbc) {
+    this(new ConsistentHashRing(props.nodes().isEmpty() ? List.of(PRIMARY) : props.nodes().stream().map(ShardProperties.Node::name).toList(),
+      props.vnodes()), jdbc);
+  }
+
+  private ShardDirectory(ConsistentHashRing ring, JdbcTemplate jdbc) { this.ring = ring; this.jdbc = jdbc; }
+
+  /** One database, nothing to route (tests, and deployments without odx.shards.nodes). */
+  public static ShardDirectory single() { return new ShardDirectory(new ConsistentHashRing(List.of(PRIMARY), 1), null); }
+
+  public List<String> shards() { return ring.shards(); }
+  public String primary() { return ring.shards().get(0); }
+  public boolean single() { return ring.shards().size() == 1; }
+  public String ringOwner(UUID expertId) { return ring.owner(expertId); }
+
+  /** Owning shard; null (an id the caller has not validated yet) goes to the primary. */
+  public String shardOf(UUID expertId) {
+    if (single() || expertId == null) return primary();
+    var pin = pins.get(expertId);
+    if (pin == null) return ring.owner(expertId);
+    if (pin.moving()) throw new ShardUnavailableException("Expert " + expertId + " is moving between shards; retry shortly");
+    return pin.shard();
+  }
+
+  Map<UUID, Pin> pins() { return Collections.unmodifiableMap(pins); }
+
+  // ShardMigrator writes the row on the primary and applies it here at once; other pods pick it up on their next poll
+  void apply(UUID expertId, String shard, boolean moving, String cleanupFrom) {
+    if (shard == null) pins.remove(expertId); else pins.put(expertId, new Pin(shard, moving, cleanupFrom));
+  }
+
+  // before any request is routed; runs on the primary (no shard selected on this thread)
+  @PostConstruct
+  synchronized void load() { if (!single()) refresh(); }
+
+  @Scheduled(fixedDelayString = "${odx.shards.directory-poll-ms:2000}")
+  synchronized void refresh() {
+    if (single()) return;
+    jdbc.query("select expert_id, shard, moving, cleanup_from, updated_at from shard_directory where updated_at > ?", rs -> {
+      var at = rs.getTimestamp("updated_at").toInstant();
+      if (at.isAfter(watermark)) watermark = at;
+      apply(rs.getObject("expert_id", UUID.class), rs.getString("shard"), rs.getBoolean("moving"), rs.getString("cleanup_from"));
+    }, Timestamp.from(watermark.minus(Constants.POLL_OVERLAP)));
+  }
+}
+```
+
+## shard/ShardRouter.java
+```java
+package com.odx.experts.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs work against a shard. Routing must happen before a transaction opens (the connection is taken at begin), so
+ * callers route at the edge: controllers wrap service calls in {@link #on}, /api/experts/{id}/** requests are routed
+ * by {@link ShardRoutingInterceptor}, background jobs route per expert or per shard. Switching shards inside an open
+ * transaction is a bug and fails fast. Cross-shard reads go through {@link #fanOut}, one virtual thread per shard.
+ */
+@Component
+public class ShardRouter {
+  private static final int OWNER_CACHE = 100_000;
+
+  private final ShardDirectory directory;
+  private final JdbcTemplate jdbc;
+  private final ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+  // purchase/session id -> expert id; never changes, so no invalidation (the expert's shard is looked up per call)
+  private final Map<UUID, UUID> owners = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<UUID, UUID> e) { return size() > OWNER_CACHE; }
+  });
+
+  public ShardRouter(ShardDirectory directory, JdbcTemplate jdbc) { this.directory = directory; this.jdbc = jdbc; }
+
+  public static ShardRouter unsharded() { return new ShardRouter(ShardDirectory.single(), null); }
+
+  public List<String> shards() { return directory.shards(); }
+  public String primary() { return directory.primary(); }
+  public String shardOf(UUID expertId) { return directory.shardOf(expertId); }
+
+  public <T> T on(UUID expertId, Supplier<T> body) { return onShard(directory.shardOf(expertId), body); }
+  public void run(UUID expertId, Runnable body) { on(expertId, () -> { body.run(); return null; }); }
+
+  public <T> T onShard(String shard, Supplier<T> body) {
+    if (directory.single()) return body.get();
+    var prev = enterShard(shard);
+    try { return body.get(); } finally { ShardRoutingDataSource.set(prev); }
+  }
+
+  /** Runs body once per shard in parallel; results in shard order. */
+  public <T> List<T> fanOut(Function<String, T> body) {
+    if (directory.single()) return Collections.singletonList(body.apply(primary()));
+    var futures = shards().stream().map(s -> CompletableFuture.supplyAsync(() -> onShard(s, () -> body.apply(s)), pool)).toList();
+    var out = new ArrayList<T>(futures.size());
+    for (var f : futures) {
+      try { out.add(f.join()); }
+      catch (CompletionException e) { if (e.getCause() instanceof RuntimeException r) throw r; throw e; }
+    }
+    return out;
+  }
+
+  public <T> List<T> fanOutConcat(Function<String, ? extends Collection<T>> body) {
+    var out = new ArrayList<T>();
+    fanOut(body).forEach(out::addAll);
+    return out;
+  }
+
+  /** Expert owning a purchase: parallel primary-key probes on every shard, then cached. Null when unsharded. */
+  public UUID expertOfPurchase(UUID purchaseId) { return probe("purchases", purchaseId, "Purchase not found"); }
+  public UUID expertOfSession(UUID sessionId) { return probe("sessions", sessionId, "Session not found"); }
+  public UUID expertOfWaitlistEntry(UUID entryId) { return probe("waitlist", entryId, "Waitlist entry not found"); }
+
+  private UUID probe(String table, UUID id, String missing) {
+    if (directory.single() || id == null) return null;
+    var known = owners.get(id);
+    if (known != null) return known;
+    var expert = fanOutConcat(s -> jdbc.query("select expert_id from " + table + " where id = ?", (rs, i) -> rs.getObject(1, UUID.class), id))
+      .stream().findFirst().orElseThrow(() -> new IllegalArgumentException(missing));
+    owners.put(id, expert);
+    return expert;
+  }
+
+  // request-scoped routing (ShardRoutingInterceptor); returns the previous shard for exit()
+  String enter(UUID expertId) { return directory.single() ? null : enterShard(directory.shardOf(expertId)); }
+  void exit(String prev) { if (!directory.single()) ShardRoutingDataSource.set(prev); }
+
+  private String enterShard(String shard) {
+    var prev = ShardRoutingDataSource.current();
+    var effective = prev == null ? primary() : prev;
+    if (!shard.equals(effective) && TransactionSynchronizationManager.isActualTransactionActive())
+      throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on " + effective);
+    ShardRoutingDataSource.set(shard);
+    return prev;
+  }
+}
+```
+
+## shard/ShardRoutingInterceptor.java
+```java
+package com.odx.experts.shard;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/** /api/experts/{id}/**: the whole request, transactions included, runs on the expert's shard. */
+class ShardRoutingInterceptor implements HandlerInterceptor {
+  private static final String PREV = ShardRoutingInterceptor.class.getName() + ".prev";
+  private final ShardRouter router;
+
+  ShardRoutingInterceptor(ShardRouter router) { this.router = router; }
+
+  @Override
+  public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) {
+    @SuppressWarnings("unchecked")
+    var vars = (Map<String, String>) req.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+    var id = vars == null ? null : vars.get("id");
+    if (id == null) return true;
+    UUID expertId;
+    try { expertId = UUID.fromString(id); } catch (IllegalArgumentException e) { return true; } // the controller rejects it
+    req.setAttribute(PREV, Optional.ofNullable(router.enter(expertId)));
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(HttpServletRequest req, HttpServletResponse res, Object handler, Exception ex) {
+    if (req.getAttribute(PREV) instanceof Optional<?> prev) router.exit((String) prev.orElse(null));
+  }
+}
+```
+
+## shard/ShardConfig.java
+```java
+package com.odx.experts.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+
+@Configuration @EnableConfigurationProperties(ShardProperties.class)
+public class ShardConfig implements WebMvcConfigurer {
+  private final ShardRouter router;
+
+  public ShardConfig(ShardRouter router) { this.router = router; }
+
+  /**
+   * With odx.shards.nodes set, the application DataSource routes per shard (Boot's own DataSource backs off). Boot's
+   * Flyway migrates the primary through it; the other shards get the same migrations here, so every shard has every
+   * table and global tables simply stay empty off the primary. Under Spring AOT the condition is fixed when the image
+   * is built (see the startup profile in pom.xml), so sharding cannot be switched on or off for an AOT build.
+   */
+  @Bean @Primary @ConditionalOnProperty(name = "odx.shards.nodes[0].url")
+  static DataSource dataSource(ShardProperties props, @Value("${spring.flyway.enabled:true}") boolean flyway,
+                               @Value("${odx.migrate:true}") boolean migrate,
+                               @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+    var targets = new LinkedHashMap<Object, Object>();
+    for (var n : props.nodes()) {
+      var ds = new HikariDataSource();
+      ds.setPoolName("shard-" + n.name()); ds.setJdbcUrl(n.url()); ds.setUsername(n.username()); ds.setPassword(n.password());
+      ds.setMaximumPoolSize(n.poolSize() == null ? poolSize : n.poolSize());
+      targets.put(n.name(), ds);
+    }
+    if (flyway && migrate) props.nodes().stream().skip(1)
+      .forEach(n -> Flyway.configure().dataSource((DataSource) targets.get(n.name())).locations("classpath:db/migration").load().migrate());
+    var routing = new ShardRoutingDataSource();
+    routing.setTargetDataSources(targets);
+    routing.setDefaultTargetDataSource(targets.get(props.nodes().get(0).name()));
+    routing.afterPropertiesSet();
+    return routing;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new ShardRoutingInterceptor(router)).addPathPatterns("/api/experts/*/**");
+  }
+}
+```
+
+## shard/ShardMigrator.java
+```java
+package com.odx.experts.shard;
+
+import com.odx.experts.reporting.RollupService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Resharding. Before changing odx.shards.nodes, {@link #pin} records where every expert lives today, so the new ring
+ * routes nothing to a shard that does not hold its data yet. {@link #rebalance} then moves pinned experts to their ring
+ * owner in batches: flag them moving (their requests get 503 for a few seconds), wait for every pod's directory to
+ * notice, copy their rows in one target transaction, repoint the directory, delete the source rows. A failed batch
+ * stays flagged; re-running it is safe (copies skip rows already present). Repointing keeps the pin with the source
+ * marked for cleanup, and the pin is dropped only once the source delete has committed; rebalance first retries any
+ * cleanup a failed run left, so no expert is ever left with a stray copy that fan-out reads would count twice.
+ *
+ * Rollup rows are not copied: the copied sessions and purchases re-create them through the V8 triggers, and a
+ * rebuild of the moved expert on the target, from its first session or purchase on, restores available minutes.
+ * Client balances and schedule entries follow the purchases and sessions the same way.
+ */
+@Service
+public class ShardMigrator {
+  // expert-keyed tables in copy order: the expert row first (trigger lookups), availability_version before the rows
+  // that bump it, so copied counters only grow and old slot ETags never match again
+  private static final List<String[]> TABLES = List.of(
+    new String[]{"experts", "id"}, new String[]{"availability_version", "expert_id"}, new String[]{"expert_next_slot", "expert_id"},
+    new String[]{"purchases", "expert_id"}, new String[]{"sessions", "expert_id"}, new String[]{"reminder_sent", "expert_id"}, new String[]{"waitlist", "expert_id"},
+    new String[]{"availability_window", "expert_id"},
+    new String[]{"availability_override", "expert_id"}, new String[]{"feedback", "expert_id"}, new String[]{"payouts", "expert_id"});
+
+  private final ShardRouter router; private final ShardDirectory directory; private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx; private final RollupService rollups; private final Clock clock; private final Duration grace;
+
+  public ShardMigrator(ShardRouter router, ShardDirectory directory, JdbcTemplate jdbc, TransactionTemplate tx, RollupService rollups,
+                       Clock clock, ShardProperties props) {
+    this.router = router; this.directory = directory; this.jdbc = jdbc; this.tx = tx; this.rollups = rollups; this.clock = clock;
+    this.grace = props.moveGrace();
+  }
+
+  public record Move(UUID expertId, String from, String to) {}
+  public record Result(int unpinned, int cleanedUp, List<Move> moved, Map<String, Integer> rowsCopied) {}
+
+  /** Pins every expert to the shard that holds it now. Returns experts pinned per shard. */
+  public synchronized Map<String, Integer> pin() {
+    var found = router.fanOut(s -> jdbc.queryForList("select id from experts", UUID.class));
+    var counts = new LinkedHashMap<String, Integer>();
+    for (int i = 0; i < found.size(); i++) {
+      // an expert awaiting cleanup is on two shards; its pin already names the one that serves it
+      var shard = router.shards().get(i); var ids = found.get(i).stream().filter(id -> !cleanupPending(id)).toList();
+      router.onShard(router.primary(), () -> jdbc.batchUpdate("""
+          insert into shard_directory (expert_id, shard, moving, cleanup_from, updated_at) values (?, ?, false, null, now())
+          on conflict (expert_id) do update set shard = excluded.shard, moving = false, cleanup_from = null, updated_at = now()""",
+        ids, 500, (ps, id) -> { ps.setObject(1, id); ps.setString(2, shard); }));
+      ids.forEach(id -> directory.apply(id, shard, false, null));
+      counts.put(shard, ids.size());
+    }
+    return counts;
+  }
+
+  /** Pinned experts whose ring owner is another shard. */
+  public List<Move> plan(int limit) {
+    return directory.pins().entrySet().stream()
+      .filter(e -> e.getValue().cleanupFrom() == null && !e.getValue().shard().equals(directory.ringOwner(e.getKey())))
+      .sorted(Map.Entry.comparingByKey()).limit(limit)
+      .map(e -> new Move(e.getKey(), e.getValue().shard(), directory.ringOwner(e.getKey()))).toList();
+  }
+
+  public synchronized Result rebalance(int limit) {
+    // source copies a failed run left behind go first; each is unpinned once its delete commits
+    int cleanedUp = 0;
+    for (var e : new ArrayList<>(directory.pins().entrySet())) {
+      if (e.getValue().cleanupFrom() != null) { cleanUp(e.getKey(), e.getValue().cleanupFrom()); cleanedUp++; }
+    }
+    // pins that already agree with the ring are dropped; the ring routes those experts by itself
+    int unpinned = 0;
+    for (var e : new ArrayList<>(directory.pins().entrySet())) {
+      if (!e.getValue().moving() && e.getValue().shard().equals(directory.ringOwner(e.getKey()))) { setPin(e.getKey(), null, false, null); unpinned++; }
+    }
+    var moves = new ArrayList<Move>();
+    for (var e : directory.pins().entrySet()) { // includes batches flagged by a failed run
+      var to = directory.ringOwner(e.getKey());
+      if (!e.getValue().shard().equals(to) && moves.size() < limit) moves.add(new Move(e.getKey(), e.getValue().shard(), to));
+    }
+    if (moves.isEmpty()) return new Result(unpinned, cleanedUp, List.of(), Map.of());
+
+    moves.forEach(m -> setPin(m.expertId(), m.from(), true, null));
+    sleep(grace); // in-flight requests drain and every pod's directory sees the flag
+    var copied = new LinkedHashMap<String, Integer>();
+    for (var m : moves) {
+      copy(m, copied);
+      setPin(m.expertId(), m.to(), false, m.from()); // served by the target from here on; the source copy goes next
+      router.onShard(m.to(), () -> rebuildRollups(m.expertId()));
+      cleanUp(m.expertId(), m.from());
+    }
+    return new Result(unpinned, cleanedUp, moves, copied);
+  }
+
+  // rollup rows go last: deleting the sessions and purchases fires the V8 triggers, which write to them
+  private void cleanUp(UUID expertId, String source) {
+    router.onShard(source, () -> tx.execute(st -> {
+      for (int i = TABLES.size() - 1; i >= 0; i--) jdbc.update("delete from " + TABLES.get(i)[0] + " where " + TABLES.get(i)[1] + " = ?", expertId);
+      jdbc.update("delete from rollup_expert where expert_id = ?", expertId);
+      return null;
+    }));
+    setPin(expertId, null, false, null); // now on its ring owner
+  }
+
+  // the triggers rebuilt the counters from the copied rows; available minutes come from a rebuild (if the nightly run
+  // holds the lock right now, it covers the recent days and older ones stay without available minutes)
+  private boolean rebuildRollups(UUID expertId) {
+    var today = LocalDate.now(clock);
+    var first = jdbc.queryForObject("""
+        select least((select min(date) from sessions where expert_id = ?),
+                     (select min((created_at at time zone 'UTC')::date) from purchases where expert_id = ?))""",
+      LocalDate.class, expertId, expertId);
+    return rollups.rebuildExpert(expertId, first == null || first.isAfter(today) ? today : first, today);
+  }
+
+  private boolean cleanupPending(UUID expertId) {
+    var pin = directory.pins().get(expertId);
+    return pin != null && pin.cleanupFrom() != null;
+  }
+
+  private void copy(Move m, Map<String, Integer> copied) {
+    // rows travel as JSON so enum, array and timestamp columns round-trip without per-type binding
+    var payload = new LinkedHashMap<String, String>();
+    router.onShard(m.from(), () -> {
+      for (var t : TABLES) payload.put(t[0], jdbc.queryForObject(
+        "select coalesce(json_agg(t), '[]')::text from " + t[0] + " t where " + t[1] + " = ?", String.class, m.expertId()));
+      return null;
+    });
+    router.onShard(m.to(), () -> tx.execute(st -> {
+      for (var t : TABLES) {
+        var cols = jdbc.queryForObject("""
+            select string_agg(quote_ident(column_name), ', ' order by ordinal_position) from information_schema.columns
+            where table_schema = current_schema() and table_name = ? and is_generated = 'NEVER'""", String.class, t[0]);
+        int n = jdbc.update("insert into " + t[0] + " (" + cols + ") select " + cols + " from json_populate_recordset(null::" + t[0]
+          + ", cast(? as json)) on conflict do nothing", payload.get(t[0]));
+        copied.merge(t[0], n, Integer::sum);
+      }
+      return null;
+    }));
+  }
+
+  private void setPin(UUID expertId, String shard, boolean moving, String cleanupFrom) {
+    router.onShard(router.primary(), () -> jdbc.update("""
+        insert into shard_directory (expert_id, shard, moving, cleanup_from, updated_at) values (?, ?, ?, ?, now())
+        on conflict (expert_id) do update set shard = excluded.shard, moving = excluded.moving, cleanup_from = excluded.cleanup_from,
+          updated_at = now()""",
+      expertId, shard, moving, cleanupFrom));
+    directory.apply(expertId, shard, moving, cleanupFrom);
+  }
+
+  private static void sleep(Duration d) {
+    try { Thread.sleep(d.toMillis()); }
+    catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new IllegalStateException("Interrupted while waiting for pods", e); }
+  }
+}
+```
+
+## shard/ShardController.java
+```java
+package com.odx.experts.shard;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@RestController @RequestMapping("/api/admin/shards") @RequiredArgsConstructor
+public class ShardController {
+  private final ShardRouter router;
+  private final ShardDirectory directory;
+  private final ShardMigrator migrator;
+
+  @GetMapping
+  public Map<String,Object> status() {
+    long moving = directory.pins().values().stream().filter(ShardDirectory.Pin::moving).count();
+    long cleanup = directory.pins().values().stream().filter(p -> p.cleanupFrom() != null).count();
+    return Map.of("shards", router.shards(), "primary", router.primary(), "pinned", directory.pins().size(), "moving", moving,
+      "cleanupPending", cleanup);
+  }
+
+  // run before adding/removing a node in odx.shards.nodes
+  @PostMapping("/pin") public Map<String, Integer> pin() { return migrator.pin(); }
+
+  @GetMapping("/plan") public List<ShardMigrator.Move> plan(@RequestParam(defaultValue = "100") int limit) { return migrator.plan(limit); }
+
+  @PostMapping("/rebalance")
+  public ShardMigrator.Result rebalance(@RequestParam(defaultValue = "50") int limit) {
+    if (limit < 1 || limit > 1000) throw new IllegalArgumentException("limit must be 1..1000");
+    return migrator.rebalance(limit);
+  }
+}
+```
+
+## dto/BookingDtos.java
+```java
+package com.odx.experts.dto;
+
+import java.time.LocalDate; import java.util.List; import java.util.UUID;
+
+public record Slot(int startMin, int endMin) {}
+public record BatchBookReq(UUID purchaseId, LocalDate date, List<Slot> slots) {}
+public record BookedSession(String sessionId, String link) {}
+public record BatchBookRes(List<BookedSession> sessions, double hoursDeducted, double hoursRemaining) {}
+```
+
+## dto/CancelDto.java
+```java
+package com.odx.experts.dto;
+
+import java.time.LocalDate; import java.util.List; import java.util.UUID;
+
+public record CancelDto(UUID byUserId, String reason) {}
+// expert-initiated: cancels every upcoming session of the expert dated from..to; override waives the 24h notice
+public record BulkCancelReq(UUID expertId, LocalDate from, LocalDate to, UUID byUserId, String reason, boolean override) {}
+public record BulkCancelRes(int cancelled, int purchasesRefunded, double hoursRefunded, List<String> sessionIds) {}
+```
+
+## dto/FeedbackDto.java
+```java
+package com.odx.experts.dto;
+
+import java.util.UUID;
+
+public record FeedbackReq(UUID purchaseId, int rating, String text, UUID userId) {}
+```
+
+---
+
+## util/TimeUtil.java
+```java
+package com.odx.experts.util;
+
+import java.time.*;
+
+public class TimeUtil {
+  public static int toMinutes(String hhmm) {
+    var p = hhmm.split(":"); return Integer.parseInt(p[0])*60 + Integer.parseInt(p[1]);
+  }
+  public static String toHHMM(int minutes) {
+    int h = minutes/60, m = minutes%60; return String.format("%02d:%02d", h, m);
+  }
+  public static boolean overlaps(int aStart, int aEnd, int bStart, int bEnd) {
+    return Math.max(aStart, bStart) < Math.min(aEnd, bEnd);
+  }
+  public static Instant atDateAndMinute(LocalDate date, int minute, ZoneId zone) {
+    return date.atStartOfDay(zone).plusMinutes(minute).toInstant();
+  }
+}
+```
+
+## util/ValidationUtil.java
+```java
+package com.odx.experts.util;
+
+import java.time.*;
+
+public class ValidationUtil {
+  public static void ensureFuture(LocalDate date, int startMin, Clock clock) {
+    var now = Instant.now(clock); var zoned = ZonedDateTime.ofInstant(now, ZoneId.systemDefault());
+    var today = zoned.toLocalDate();
+    if (date.isBefore(today)) throw new IllegalArgumentException("Cannot book past dates");
+    if (date.isEqual(today)) {
+      int nowMin = zoned.getHour()*60 + zoned.getMinute();
+      if (startMin <= nowMin) throw new IllegalArgumentException("Cannot book past time slots today");
+    }
+  }
+  public static void ensureCancelable(LocalDate date, int startMin, Clock clock) {
+    var start = TimeUtil.atDateAndMinute(date, startMin, ZoneId.systemDefault());
+    var diff = Duration.between(Instant.now(clock), start);
+    if (diff.toHours() < 24) throw new IllegalArgumentException("Cancellation allowed only ≥24h prior");
+  }
+  // expert-initiated cancels may waive the notice period, but never cancel a session that has started
+  public static void ensureCancelable(LocalDate date, int startMin, Clock clock, boolean waiveNotice) {
+    if (!waiveNotice) { ensureCancelable(date, startMin, clock); return; }
+    var start = TimeUtil.atDateAndMinute(date, startMin, ZoneId.systemDefault());
+    if (!start.isAfter(Instant.now(clock))) throw new IllegalArgumentException("Session has already started");
+  }
+}
+```
+
+---
+
+## expert/SlotService.java
+```java
+package com.odx.experts.expert;
+
+import com.odx.experts.common.Constants;
+import com.odx.experts.observability.QueryCounter;
+import com.odx.experts.observability.SlotComputationEvent;
+import com.odx.experts.session.SessionRepository;
+import com.odx.experts.util.TimeUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+@Service @RequiredArgsConstructor
+public class SlotService {
+  private final AvailabilityOverrideRepository overridesRepo;
+  private final AvailabilityWindowRepository windowRepo;
+  private final SessionRepository sessionRepo;
+
+  public List<int[]> slotsForDate(Expert ex, LocalDate date) {
+    var ev = new SlotComputationEvent(); ev.begin(); int q0 = QueryCounter.current();
+    String outcome = "ERROR"; List<int[]> out = null;
+    try {
+      out = compute(ex, date, ev);
+      outcome = "OK";
+      return out;
+    } finally {
+      if (ev.shouldCommit()) {
+        ev.expertId = String.valueOf(ex.getId()); ev.date = date.toString(); ev.slotCount = out == null ? 0 : out.size();
+        ev.queryCount = QueryCounter.current() - q0; ev.outcome = outcome; ev.commit();
+      }
+    }
+  }
+
+  private List<int[]> compute(Expert ex, LocalDate date, SlotComputationEvent ev) {
+    // existing sessions (not cancelled), and slots held for a waitlist entry: taken until it books or the hold
+    // expires (both bump availability_version)
+    var busy = new ArrayList<int[]>();
+    for (var r : sessionRepo.findBusy(ex.getId(), date, Constants.SLOT_MIN)) {
+      busy.add(new int[]{((Number) r[1]).intValue(), ((Number) r[2]).intValue()});
+      if (((Number) r[0]).intValue() == 0) ev.sessionCount++;
+    }
+
+    // manual windows else default/override
+    var manual = windowRepo.findByExpertIdAndDateOrderByStartMin(ex.getId(), date);
+    List<int[]> windows = new ArrayList<>();
+    if (!manual.isEmpty()) {
+      manual.forEach(w -> windows.add(new int[]{w.getStartMin(), w.getEndMin()}));
+    } else {
+      var ov = overridesRepo.findByExpertIdAndDate(ex.getId(), date).stream().findFirst().orElse(null);
+      boolean workday = true; String start = ex.getDayStart(), end = ex.getDayEnd();
+      if (ov != null) { workday = ov.isWorkday(); if (ov.getDayStart()!=null) start = ov.getDayStart(); if (ov.getDayEnd()!=null) end = ov.getDayEnd(); }
+      if (!workday) return List.of();
+      windows.add(new int[]{ TimeUtil.toMinutes(start), TimeUtil.toMinutes(end) });
+    }
+
+    List<int[]> out = new ArrayList<>();
+    for (var w : windows) {
+      for (int t = w[0]; t + Constants.SLOT_MIN <= w[1]; t += Constants.SLOT_MIN) {
+        final int st=t, en=t+Constants.SLOT_MIN;
+        boolean clash = busy.stream().anyMatch(b -> Math.max(st, b[0]) < Math.min(en, b[1]));
+        if (!clash) out.add(new int[]{st, en});
+      }
+    }
+    out.sort(Comparator.comparingInt(a -> a[0]));
+    return out;
+  }
+}
+```
+
+## expert/VersionCounters.java
+```java
+package com.odx.experts.expert;
+
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Cheap version counters behind the ETags of the catalogue and slot endpoints. They are bumped by the V3 triggers
+ * (sessions, availability windows/overrides, experts, feedback), so every writer is covered, including other pods and
+ * manual SQL. Reading one is a primary-key lookup and never runs the slot computation.
+ */
+@Component @RequiredArgsConstructor
+public class VersionCounters {
+  private final JdbcTemplate jdbc;
+  private final ShardRouter shards;
+
+  /** Summed over shards: each counter only grows, so the sum moves whenever any shard's catalogue does. */
+  public long catalogue() {
+    return shards.fanOut(s -> jdbc.queryForObject("select version from catalogue_version where id = 1", Long.class))
+      .stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * Catalogue version (expert hours live on the expert row) and the sum of per-day versions in [from, to], both from
+   * the expert's shard (the caller runs routed, see shard/ShardRoutingInterceptor).
+   */
+  public String slotsTag(UUID expertId, LocalDate from, LocalDate to) {
+    // per-day versions only ever grow and rows are never deleted, so the sum changes on every bump in the range
+    return jdbc.queryForObject("""
+        select c.version || '.' || coalesce((select sum(v.version) from availability_version v
+                                             where v.expert_id = ? and v.date between ? and ?), 0)
+        from catalogue_version c where c.id = 1""", String.class, expertId, from, to);
+  }
+}
+```
+
+## expert/SlotBitmap.java
+```java
+package com.odx.experts.expert;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.odx.experts.common.Constants.SLOT_MIN;
+
+/**
+ * Compact slot wire format. Per day: {"date","origin","cells","bits"} where bit i of the hex mask (most significant
+ * nibble first) means the cell [origin + i*30, origin + (i+1)*30) is free. A day has at most 48 cells, so the mask is
+ * one long and is written straight into the output buffer. Windows off the half-hour grid (e.g. 09:15) produce an
+ * extra entry for the same date with their own origin; a closed day is a single entry with cells = 0.
+ */
+public final class SlotBitmap {
+  public static final String MEDIA_TYPE = "application/vnd.odx.slot-bitmap+json";
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private SlotBitmap() {}
+
+  public static boolean requested(String format, String accept) {
+    return "bitmap".equalsIgnoreCase(format) || (accept != null && accept.contains(MEDIA_TYPE));
+  }
+
+  public static void begin(StringBuilder out) { out.append("{\"slotMin\":").append(SLOT_MIN).append(",\"days\":["); }
+  public static void end(StringBuilder out) { out.append("]}"); }
+
+  /** Appends the entries for one day; {@code slots} is {@link SlotService#slotsForDate} output (sorted, 30 min each). */
+  public static void writeDay(StringBuilder out, LocalDate date, List<int[]> slots, boolean firstDay) {
+    if (slots.isEmpty()) { entry(out, date, 0, 0, 0L, firstDay); return; }
+    int residues = 0; // grids present, keyed by start % 30 (almost always just one)
+    for (var s : slots) residues |= 1 << (s[0] % SLOT_MIN);
+    boolean first = firstDay;
+    for (int r = 0; r < SLOT_MIN; r++) {
+      if ((residues & (1 << r)) == 0) continue;
+      int origin = Integer.MAX_VALUE;
+      for (var s : slots) if (s[0] % SLOT_MIN == r && s[0] < origin) origin = s[0];
+      long bits = 0; int cells = 0;
+      for (var s : slots) {
+        if (s[0] % SLOT_MIN != r) continue;
+        int i = (s[0] - origin) / SLOT_MIN; bits |= 1L << i; cells = Math.max(cells, i + 1);
+      }
+      entry(out, date, origin, cells, bits, first); first = false;
+    }
+  }
+
+  private static void entry(StringBuilder out, LocalDate date, int origin, int cells, long bits, boolean first) {
+    if (!first) out.append(',');
+    out.append("{\"date\":\"").append(date).append("\",\"origin\":").append(origin)
+       .append(",\"cells\":").append(cells).append(",\"bits\":\"");
+    for (int k = (cells + 3) / 4 - 1; k >= 0; k--) out.append(HEX[(int) (bits >>> (4 * k)) & 0xF]);
+    out.append("\"}");
+  }
+}
+```
+
+## expert/NextSlotIndex.java
+```java
+package com.odx.experts.expert;
+
+import com.odx.experts.common.Constants;
+import com.odx.experts.feedback.FeedbackRepository;
+import com.odx.experts.shard.ShardRouter;
+import com.odx.experts.shard.ShardUnavailableException;
+import com.odx.experts.util.TimeUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory "next free slot" per expert, ranked per domain by (earliest slot, rating desc). Top-K reads walk the head
+ * of a skip list, so they cost O(K) whatever the catalogue size. The index is kept fresh incrementally:
+ * availability_version bumps (bookings, cancels, windows, overrides) re-resolve only the experts whose earliest slot
+ * could have moved; catalogue bumps refresh ratings and working hours; a tick re-resolves entries whose slot started.
+ * Entries are flushed to expert_next_slot periodically, stamped with the time they were resolved, so a restart replays
+ * only availability changes from then on instead of rescanning the whole catalogue.
+ * With several shards the index spans all of them: one watermark per shard, each expert resolved on its own shard.
+ */
+@Component @RequiredArgsConstructor
+public class NextSlotIndex {
+  private static final int HORIZON_DAYS = 60;
+
+  private final ExpertRepository experts;
+  private final FeedbackRepository feedbacks;
+  private final SlotService slots;
+  private final VersionCounters versions;
+  private final JdbcTemplate jdbc;
+  private final ShardRouter shards;
+  private final Clock clock;
+
+  public record Entry(UUID expertId, String name, Domain domain, double rating, LocalDate date, int startMin, Instant at) {}
+
+  private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::at)
+    .thenComparing(Comparator.comparingDouble(Entry::rating).reversed()).thenComparing(Entry::expertId);
+
+  private final Map<UUID, Expert> catalogue = new ConcurrentHashMap<>();
+  private final Map<UUID, Double> ratings = new ConcurrentHashMap<>();
+  private final Map<UUID, Entry> byExpert = new ConcurrentHashMap<>();
+  private final Map<Domain, NavigableSet<Entry>> ranked = newRanked();
+  private final Map<UUID, Instant> resolvedAt = new ConcurrentHashMap<>(); // availability read as of; persisted as updated_at
+  private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+  private volatile boolean loaded;
+  // scheduler thread only: availability_version and experts.updated_at watermarks per shard
+  private final Map<String, Instant> watermarks = new HashMap<>(); private final Map<String, Instant> expertsSeen = new HashMap<>();
+  private long catalogueSeen = -1;
+
+  private record CatalogueChanges(List<Expert> experts, Map<UUID, Double> ratings) {}
+
+  public List<Entry> soonest(Domain domain, int k) {
+    var out = new ArrayList<Entry>(k);
+    for (var e : ranked.get(domain)) { if (out.size() == k) break; out.add(e); }
+    return out;
+  }
+
+  // first run happens on the scheduler thread, so startup does not wait for the index
+  @Scheduled(fixedDelayString = "${odx.next-slot.poll-ms:5000}")
+  void poll() {
+    if (!loaded) { load(); return; }
+    if (versions.catalogue() != catalogueSeen) reloadCatalogue(false).forEach(this::recompute);
+    for (var shard : shards.shards()) {
+      var since = watermarks.getOrDefault(shard, Instant.EPOCH).minus(Constants.POLL_OVERLAP);
+      shards.onShard(shard, () -> {
+        jdbc.query("""
+            select expert_id, min(date) as first_date, max(updated_at) as last_at from availability_version
+            where updated_at > ? group by expert_id""", rs -> {
+          var id = rs.getObject("expert_id", UUID.class);
+          var first = rs.getObject("first_date", LocalDate.class);
+          var at = rs.getTimestamp("last_at").toInstant();
+          if (at.isAfter(watermarks.getOrDefault(shard, Instant.EPOCH))) watermarks.put(shard, at);
+          var cur = byExpert.get(id);
+          if (cur == null || !first.isAfter(cur.date())) recompute(id); // later days cannot beat the current next slot
+        }, Timestamp.from(since));
+        return null;
+      });
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${odx.next-slot.expire-ms:60000}")
+  void expire() {
+    if (!loaded) return;
+    var now = clock.instant();
+    // due ids first, then each re-resolved (strictly after now) at most once: an expert that cannot be resolved this
+    // pass (mid-move) keeps its stale entry and is retried on the next pass, instead of spinning on the same head
+    var due = new ArrayList<UUID>();
+    for (var set : ranked.values()) {
+      for (var e : set) { if (e.at().isAfter(now)) break; due.add(e.expertId()); }
+    }
+    due.forEach(this::recompute);
+  }
+
+  @Scheduled(fixedDelayString = "${odx.next-slot.persist-ms:60000}")
+  void persist() {
+    if (dirty.isEmpty()) return;
+    var ids = new ArrayList<>(dirty); ids.forEach(dirty::remove);
+    var byShard = new HashMap<String, List<UUID>>();
+    for (var id : ids) {
+      try { byShard.computeIfAbsent(shards.shardOf(id), k -> new ArrayList<>()).add(id); }
+      catch (ShardUnavailableException e) { dirty.add(id); } // mid-move: next round
+    }
+    var flushAt = clock.instant();
+    byShard.forEach((shard, group) -> shards.onShard(shard, () -> jdbc.batchUpdate("""
+        insert into expert_next_slot (expert_id, next_date, next_start_min, next_at, updated_at) values (?, ?, ?, ?, ?)
+        on conflict (expert_id) do update set next_date = excluded.next_date, next_start_min = excluded.next_start_min,
+          next_at = excluded.next_at, updated_at = excluded.updated_at""", group, 500, (ps, id) -> {
+      var e = byExpert.get(id);
+      ps.setObject(1, id);
+      ps.setObject(2, e == null ? null : e.date());
+      ps.setObject(3, e == null ? null : e.startMin());
+      ps.setTimestamp(4, e == null ? null : Timestamp.from(e.at()));
+      // when the entry was resolved, not now: a change landing between resolve and flush is replayed after a restart.
+      // Only ids unknown to the catalogue have none, and load() skips their rows.
+      ps.setTimestamp(5, Timestamp.from(resolvedAt.getOrDefault(id, flushAt)));
+    })));
+  }
+
+  private void load() {
+    var fresh = reloadCatalogue(true);
+    var restored = new HashSet<UUID>();
+    for (var shard : shards.shards()) {
+      Instant[] oldest = { null };
+      shards.onShard(shard, () -> {
+        jdbc.query("select expert_id, next_date, next_start_min, next_at, updated_at from expert_next_slot", rs -> {
+          var id = rs.getObject("expert_id", UUID.class);
+          var ex = catalogue.get(id);
+          if (ex == null) return;
+          restored.add(id);
+          var at = rs.getTimestamp("updated_at").toInstant();
+          if (oldest[0] == null || at.isBefore(oldest[0])) oldest[0] = at;
+          resolvedAt.put(id, at);
+          var next = rs.getTimestamp("next_at");
+          if (next != null) put(id, entry(ex, rs.getObject("next_date", LocalDate.class), rs.getInt("next_start_min"), next.toInstant()));
+        });
+        return null;
+      });
+      // replay every availability change since the shard's oldest persisted entry
+      watermarks.put(shard, oldest[0] == null ? clock.instant() : oldest[0]);
+    }
+    dirty.clear();
+    // experts never persisted are resolved now
+    fresh.stream().filter(id -> !restored.contains(id)).forEach(this::recompute);
+    loaded = true;
+  }
+
+  /**
+   * Refreshes names, domains, ratings and hours; returns experts whose next slot must be (re)resolved. The full pass
+   * (first load) reads every expert; later passes read only experts whose updated_at moved, which V16 also bumps on
+   * new feedback. Experts are never deleted except by shard/ShardMigrator, whose copy is an insert on the target
+   * shard, so an incremental pass sees the move and nothing is ever dropped.
+   */
+  private Set<UUID> reloadCatalogue(boolean full) {
+    catalogueSeen = versions.catalogue();
+    var since = new HashMap<String, Instant>();
+    for (var shard : shards.shards()) since.put(shard, expertsSeen.getOrDefault(shard, Instant.EPOCH).minus(Constants.POLL_OVERLAP));
+    var perShard = shards.fanOut(s -> {
+      var changed = full ? experts.findAll() : experts.findByUpdatedAtAfter(since.get(s));
+      var avg = new HashMap<UUID, Double>();
+      if (!changed.isEmpty()) {
+        var ids = changed.stream().map(Expert::getId).toList();
+        (full ? feedbacks.averageRatings() : feedbacks.averageRatings(ids)).forEach(r -> avg.put(r.getExpertId(), r.getRating()));
+      }
+      return new CatalogueChanges(changed, avg);
+    });
+    var stale = new HashSet<UUID>();
+    for (int i = 0; i < perShard.size(); i++) {
+      var shard = shards.shards().get(i);
+      for (var ex : perShard.get(i).experts()) {
+        var at = ex.getUpdatedAt();
+        if (at != null && at.isAfter(expertsSeen.getOrDefault(shard, Instant.EPOCH))) expertsSeen.put(shard, at);
+        ratings.put(ex.getId(), perShard.get(i).ratings().getOrDefault(ex.getId(), ex.getBaseRating()));
+        var prev = catalogue.put(ex.getId(), ex);
+        var cur = byExpert.get(ex.getId());
+        if (prev == null || !hours(prev).equals(hours(ex))) stale.add(ex.getId());
+        else if (cur != null) put(ex.getId(), entry(ex, cur.date(), cur.startMin(), cur.at())); // relabel rating/name/domain
+      }
+    }
+    return stale;
+  }
+
+  void recompute(UUID expertId) {
+    var ex = catalogue.get(expertId);
+    if (ex == null) { resolvedAt.remove(expertId); put(expertId, null); return; }
+    var asOf = clock.instant(); // before reading: a change committed during resolve lands after asOf and is replayed
+    Entry next;
+    try { next = shards.on(expertId, () -> resolve(ex)); }
+    catch (ShardUnavailableException e) { return; } // mid-move: the copy bumps availability_version on the target shard
+    resolvedAt.put(expertId, asOf);
+    put(expertId, next);
+  }
+
+  private Entry resolve(Expert ex) {
+    var zone = ZoneId.systemDefault(); var now = clock.instant(); var today = LocalDate.ofInstant(now, zone);
+    for (int i = 0; i < HORIZON_DAYS; i++) {
+      var d = today.plusDays(i);
+      for (var s : slots.slotsForDate(ex, d)) {
+        var at = TimeUtil.atDateAndMinute(d, s[0], zone);
+        if (at.isAfter(now)) return entry(ex, d, s[0], at);
+      }
+    }
+    return null;
+  }
+
+  private void put(UUID id, Entry next) {
+    byExpert.compute(id, (k, old) -> {
+      if (old != null) ranked.get(old.domain()).remove(old);
+      if (next != null) ranked.get(next.domain()).add(next);
+      return next;
+    });
+    dirty.add(id);
+  }
+
+  private Entry entry(Expert ex, LocalDate date, int startMin, Instant at) {
+    return new Entry(ex.getId(), ex.getName(), ex.getDomain(), ratings.getOrDefault(ex.getId(), ex.getBaseRating()), date, startMin, at);
+  }
+
+  private static String hours(Expert ex) { return ex.getDayStart() + "-" + ex.getDayEnd() + "/" + ex.getWorkdays(); }
+
+  private static Entry first(NavigableSet<Entry> set) { try { return set.first(); } catch (NoSuchElementException e) { return null; } }
+
+  private static Map<Domain, NavigableSet<Entry>> newRanked() {
+    var m = new EnumMap<Domain, NavigableSet<Entry>>(Domain.class);
+    for (var d : Domain.values()) m.put(d, new ConcurrentSkipListSet<>(ORDER));
+    return m;
+  }
+}
+```
+
+## expert/AvailabilityService.java
+```java
+package com.odx.experts.expert;
+
+import com.odx.experts.common.Constants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+
+@Service @RequiredArgsConstructor
+public class AvailabilityService {
+  private static final int MAX_RANGE_DAYS = 366;
+  private final AvailabilityWindowRepository windows;
+
+  /** Adds one window to a day, merged with what the day already has (no duplicate slots from overlaps). */
+  @Transactional
+  public void addWindow(UUID expertId, LocalDate date, int startMin, int endMin) {
+    validate(startMin, endMin);
+    var day = new ArrayList<int[]>();
+    windows.findByExpertIdAndDateOrderByStartMin(expertId, date).forEach(w -> day.add(new int[]{w.getStartMin(), w.getEndMin()}));
+    day.add(new int[]{startMin, endMin});
+    replaceDays(expertId, Map.of(date, day));
+  }
+
+  /** Replaces the windows of every day in {@code byDay}: one bulk delete, then one batched insert of merged windows. */
+  @Transactional
+  public int replaceDays(UUID expertId, Map<LocalDate, List<int[]>> byDay) {
+    if (byDay.isEmpty()) return 0;
+    List<AvailabilityWindow> rows = new ArrayList<>();
+    byDay.forEach((date, ranges) -> merge(ranges).forEach(r ->
+      rows.add(AvailabilityWindow.builder().expertId(expertId).date(date).startMin(r[0]).endMin(r[1]).build())));
+    windows.deleteByExpertIdAndDateIn(expertId, byDay.keySet());
+    windows.saveAll(rows);
+    return rows.size();
+  }
+
+  /** Expands weekdays (0=Sun..6=Sat, as in {@code Expert.workdays}) x time ranges over [from, to] into per-day ranges. */
+  public static Map<LocalDate, List<int[]>> expand(LocalDate from, LocalDate to, Collection<Integer> weekdays, List<int[]> ranges) {
+    if (to.isBefore(from)) throw new IllegalArgumentException("to is before from");
+    if (from.plusDays(MAX_RANGE_DAYS).isBefore(to)) throw new IllegalArgumentException("Range longer than " + MAX_RANGE_DAYS + " days");
+    ranges.forEach(r -> validate(r[0], r[1]));
+    var days = new BitSet(7);
+    for (var w : weekdays) {
+      if (w == null || w < 0 || w > 6) throw new IllegalArgumentException("Weekday must be 0 (Sun) to 6 (Sat), got " + w);
+      days.set(w);
+    }
+    Map<LocalDate, List<int[]>> out = new TreeMap<>();
+    for (var d = from; !d.isAfter(to); d = d.plusDays(1)) {
+      if (days.get(d.getDayOfWeek().getValue() % 7)) out.put(d, new ArrayList<>(ranges));
+    }
+    return out;
+  }
+
+  /** Sorts and merges overlapping or touching [start, end) ranges. */
+  public static List<int[]> merge(List<int[]> ranges) {
+    var sorted = new ArrayList<>(ranges);
+    sorted.sort(Comparator.comparingInt(r -> r[0]));
+    List<int[]> out = new ArrayList<>();
+    for (var r : sorted) {
+      var last = out.isEmpty() ? null : out.get(out.size() - 1);
+      if (last != null && r[0] <= last[1]) last[1] = Math.max(last[1], r[1]);
+      else out.add(new int[]{r[0], r[1]});
+    }
+    return out;
+  }
+
+  static void validate(int startMin, int endMin) {
+    if (startMin < 0 || endMin > 24 * 60) throw new IllegalArgumentException("Window must be within the day");
+    if (endMin - startMin < Constants.SLOT_MIN) throw new IllegalArgumentException("Minimum window 30 minutes");
+  }
+}
+```
+
+## expert/SlotFlights.java
+```java
+package com.odx.experts.expert;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight for read-path slot computations: concurrent requests for the same (expert, date, version) share one
+ * in-flight {@link SlotService#slotsForDate} call. The version is the availability counter the caller already read
+ * for its ETag, so a booking committed mid-flight bumps it and later arrivals start a fresh computation instead of
+ * joining a stale one. Nothing is cached once the flight lands. Results are shared between callers: treat them as
+ * read-only. Booking validation keeps calling SlotService directly inside its transaction.
+ */
+@Component @RequiredArgsConstructor
+public class SlotFlights {
+  private final SlotService slots;
+
+  private record Key(UUID expertId, LocalDate date, String version) {}
+  private final ConcurrentHashMap<Key, CompletableFuture<List<int[]>>> inFlight = new ConcurrentHashMap<>();
+
+  public List<int[]> slotsForDate(Expert ex, LocalDate date, String version) {
+    var key = new Key(ex.getId(), date, version);
+    var mine = new CompletableFuture<List<int[]>>();
+    var leader = inFlight.putIfAbsent(key, mine);
+    if (leader != null) return join(leader);
+    try {
+      var res = List.copyOf(slots.slotsForDate(ex, date));
+      mine.complete(res);
+      return res;
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  int inFlightCount() { return inFlight.size(); }
+
+  private static List<int[]> join(CompletableFuture<List<int[]>> f) {
+    try { return f.join(); }
+    catch (CompletionException e) { if (e.getCause() instanceof RuntimeException r) throw r; throw e; }
+  }
+}
+```
+
+## expert/ExpertController.java
+```java
+package com.odx.experts.expert;
+
+import com.odx.experts.common.ConditionalGet;
+import com.odx.experts.feedback.FeedbackRepository;
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// /{id}/** endpoints (availability, slots) run on the expert's shard via shard/ShardRoutingInterceptor;
+// the catalogue and search fan out over all shards
+@RestController @RequestMapping("/api/experts") @RequiredArgsConstructor
+public class ExpertController {
+  private static final int MAX_RANGE_DAYS = 31;
+  private static final Comparator<ExpertRepository.SearchHit> SEARCH_ORDER =
+    Comparator.comparing(ExpertRepository.SearchHit::getRank, Comparator.reverseOrder()).thenComparing(ExpertRepository.SearchHit::getId);
+
+  private final ExpertRepository experts;
+  private final AvailabilityService availability;
+  private final FeedbackRepository feedbacks;
+  private final SlotFlights slots;
+  private final VersionCounters versions;
+  private final NextSlotIndex nextSlots;
+  private final ShardRouter shards;
+
+  @GetMapping
+  public ResponseEntity<List<Map<String,Object>>> list(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    var etag = ConditionalGet.etag("c" + versions.catalogue());
+    if (ConditionalGet.matches(ifNoneMatch, etag)) return ConditionalGet.notModified(etag);
+    return ConditionalGet.ok(etag).body(shards.fanOutConcat(s -> experts.findAll().stream().map(e -> {
+      var fb = feedbacks.findByExpertId(e.getId());
+      double avg = fb.isEmpty()? e.getBaseRating() : fb.stream().mapToInt(f->f.getRating()).average().orElse(e.getBaseRating());
+      return Map.<String,Object>of(
+        "id", e.getId(), "name", e.getName(), "domain", e.getDomain(),
+        "description", e.getDescription(), "experience", e.getExperience(),
+        "rating", avg, "rate", e.getHourlyRate()
+      );
+    }).collect(Collectors.toList())));
+  }
+
+  // "who in CYBER can see me soonest": earliest free slot first, then rating
+  @GetMapping("/soonest")
+  public List<NextSlotIndex.Entry> soonest(@RequestParam Domain domain, @RequestParam(defaultValue = "5") int k) {
+    if (k < 1 || k > 50) throw new IllegalArgumentException("k must be 1..50");
+    return nextSlots.soonest(domain, k);
+  }
+
+  // full-text search over name/description/experience: GET /api/experts/search?q=gst+audit&domain=TAX&limit=20&after=<next>
+  @GetMapping("/search")
+  public Map<String,Object> search(@RequestParam String q, @RequestParam(required = false) Domain domain,
+                                   @RequestParam(defaultValue = "20") int limit, @RequestParam(required = false) String after) {
+    if (q.isBlank()) throw new IllegalArgumentException("q is required");
+    if (limit < 1 || limit > 100) throw new IllegalArgumentException("limit must be 1..100");
+    Float afterRank = null; UUID afterId = null;
+    if (after != null) { // cursor = "<rank>:<id>" of the last row of the previous page
+      var i = after.indexOf(':');
+      if (i < 0) throw new IllegalArgumentException("Bad cursor");
+      afterRank = Float.parseFloat(after.substring(0, i)); afterId = UUID.fromString(after.substring(i + 1));
+    }
+    // each shard returns its own first page past the cursor; merged in the same (rank desc, id) order
+    Float rank = afterRank; UUID id = afterId;
+    var hits = shards.fanOutConcat(s -> experts.search(q, domain == null ? null : domain.name(), rank, id, limit))
+      .stream().sorted(SEARCH_ORDER).limit(limit).toList();
+    var last = hits.isEmpty() ? null : hits.get(hits.size() - 1);
+    var res = new LinkedHashMap<String,Object>();
+    res.put("items", hits);
+    res.put("next", hits.size() < limit ? null : last.getRank() + ":" + last.getId());
+    return res;
+  }
+
+  public record WindowReq(String startHHmm, String endHHmm) {}
+
+  @PostMapping("/{id}/availability/{date}")
+  public ResponseEntity<?> addWindow(@PathVariable UUID id, @PathVariable String date, @RequestBody WindowReq req) {
+    var d = LocalDate.parse(date);
+    var start = com.odx.experts.util.TimeUtil.toMinutes(req.startHHmm());
+    var end = com.odx.experts.util.TimeUtil.toMinutes(req.endHHmm());
+    availability.addWindow(id, d, start, end);
+    return ResponseEntity.ok(Map.of("ok", true));
+  }
+
+  public record DatedWindowReq(LocalDate date, String startHHmm, String endHHmm) {}
+  // recurrence (weekdays 0=Sun..6=Sat x ranges over [from, to]) and/or explicit windows; listed days are replaced
+  public record BulkWindowsReq(LocalDate from, LocalDate to, List<Integer> weekdays, List<WindowReq> ranges, List<DatedWindowReq> windows) {}
+
+  @PutMapping("/{id}/availability")
+  public ResponseEntity<?> replaceWindows(@PathVariable UUID id, @RequestBody BulkWindowsReq req) {
+    Map<LocalDate, List<int[]>> byDay = new TreeMap<>();
+    if (req.ranges() != null && !req.ranges().isEmpty()) {
+      if (req.from() == null || req.to() == null || req.weekdays() == null) throw new IllegalArgumentException("Recurrence needs from, to and weekdays");
+      var ranges = req.ranges().stream().map(r -> new int[]{ com.odx.experts.util.TimeUtil.toMinutes(r.startHHmm()), com.odx.experts.util.TimeUtil.toMinutes(r.endHHmm()) }).toList();
+      AvailabilityService.expand(req.from(), req.to(), req.weekdays(), ranges).forEach((d, rs) -> byDay.computeIfAbsent(d, k -> new ArrayList<>()).addAll(rs));
+    }
+    if (req.windows() != null) for (var w : req.windows()) {
+      int start = com.odx.experts.util.TimeUtil.toMinutes(w.startHHmm()), end = com.odx.experts.util.TimeUtil.toMinutes(w.endHHmm());
+      AvailabilityService.validate(start, end);
+      byDay.computeIfAbsent(w.date(), k -> new ArrayList<>()).add(new int[]{start, end});
+    }
+    if (byDay.isEmpty()) throw new IllegalArgumentException("Nothing to set");
+    int rows = availability.replaceDays(id, byDay);
+    return ResponseEntity.ok(Map.of("ok", true, "days", byDay.size(), "windows", rows));
+  }
+
+  // JSON list of {startMin,endMin} by default; ?format=bitmap or Accept: SlotBitmap.MEDIA_TYPE for the compact form
+  @GetMapping("/{id}/slots/{date}")
+  public ResponseEntity<?> slots(@PathVariable UUID id, @PathVariable String date,
+                                 @RequestParam(required = false) String format,
+                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    var d = LocalDate.parse(date);
+    boolean compact = SlotBitmap.requested(format, accept);
+    var version = versions.slotsTag(id, d, d);
+    var etag = ConditionalGet.etag("s" + version + (compact ? ".b" : ".j"));
+    if (ConditionalGet.matches(ifNoneMatch, etag)) return ConditionalGet.notModified(etag);
+    var ex = experts.findById(id).orElseThrow();
+    var res = slots.slotsForDate(ex, d, version);
+    if (compact) {
+      var out = new StringBuilder(96); SlotBitmap.begin(out); SlotBitmap.writeDay(out, d, res, true); SlotBitmap.end(out);
+      return bitmap(etag, out);
+    }
+    return ConditionalGet.ok(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+      .body(res.stream().map(a -> Map.of("startMin", a[0], "endMin", a[1])).toList());
+  }
+
+  // multi-day view: GET /api/experts/{id}/slots?from=YYYY-MM-DD&days=7[&format=bitmap]
+  @GetMapping("/{id}/slots")
+  public ResponseEntity<?> slotsRange(@PathVariable UUID id, @RequestParam String from, @RequestParam(defaultValue = "7") int days,
+                                      @RequestParam(required = false) String format,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    if (days < 1 || days > MAX_RANGE_DAYS) throw new IllegalArgumentException("days must be 1.." + MAX_RANGE_DAYS);
+    var start = LocalDate.parse(from);
+    boolean compact = SlotBitmap.requested(format, accept);
+    var tag = versions.slotsTag(id, start, start.plusDays(days - 1));
+    var version = "r" + start + "+" + days + "." + tag; // changes whenever any day of this range changes
+    var etag = ConditionalGet.etag("r" + days + "." + tag + (compact ? ".b" : ".j"));
+    if (ConditionalGet.matches(ifNoneMatch, etag)) return ConditionalGet.notModified(etag);
+    var ex = experts.findById(id).orElseThrow();
+    if (compact) {
+      var out = new StringBuilder(16 + days * 64); SlotBitmap.begin(out);
+      for (int i = 0; i < days; i++) { var d = start.plusDays(i); SlotBitmap.writeDay(out, d, slots.slotsForDate(ex, d, version), i == 0); }
+      SlotBitmap.end(out);
+      return bitmap(etag, out);
+    }
+    List<Map<String,Object>> res = new ArrayList<>(days);
+    for (int i = 0; i < days; i++) {
+      var d = start.plusDays(i);
+      res.add(Map.of("date", d.toString(), "slots", slots.slotsForDate(ex, d, version).stream().map(a -> Map.of("startMin", a[0], "endMin", a[1])).toList()));
+    }
+    return ConditionalGet.ok(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(res);
+  }
+
+  private static ResponseEntity<String> bitmap(String etag, StringBuilder out) {
+    return ConditionalGet.ok(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+      .contentType(MediaType.parseMediaType(SlotBitmap.MEDIA_TYPE)).body(out.toString());
+  }
+}
+```
+
+---
+
+## session/BookingService.java
+```java
+package com.odx.experts.session;
+
+import com.odx.experts.common.Constants;
+import com.odx.experts.dto.*;
+import com.odx.experts.expert.*;
+import com.odx.experts.observability.BookingEvent;
+import com.odx.experts.observability.QueryCounter;
+import com.odx.experts.purchase.Purchase;
+import com.odx.experts.purchase.PurchaseRepository;
+import com.odx.experts.util.TimeUtil;
+import com.odx.experts.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+@Service @RequiredArgsConstructor
+public class BookingService {
+  private final PurchaseRepository purchases;
+  private final ExpertRepository experts;
+  private final SessionRepository sessions;
+  private final SlotService slotService;
+  private final Clock clock;
+  private final ApplicationEventPublisher events; // SlotsFreedEvent -> waitlist/WaitlistService; both -> reminder/ReminderScheduler
+
+  @Transactional
+  public BatchBookRes book(BatchBookReq req, UUID userId) {
+    var ev = new BookingEvent(); ev.begin(); int q0 = QueryCounter.current();
+    String outcome = "ERROR"; BatchBookRes res = null;
+    try {
+      res = doBook(req, userId, ev);
+      outcome = "OK";
+      return res;
+    } catch (IllegalArgumentException e) {
+      outcome = "REJECTED"; throw e;
+    } finally {
+      if (ev.shouldCommit()) {
+        ev.operation = "book"; ev.date = String.valueOf(req.date()); ev.slotCount = req.slots() == null ? 0 : req.slots().size();
+        ev.sessionCount = res == null ? 0 : res.sessions().size(); ev.queryCount = QueryCounter.current() - q0; ev.outcome = outcome;
+        ev.commit();
+      }
+    }
+  }
+
+  private BatchBookRes doBook(BatchBookReq req, UUID userId, BookingEvent ev) {
+    var purchase = purchases.findById(req.purchaseId()).orElseThrow(() -> new IllegalArgumentException("Purchase not found"));
+    if (!purchase.getUserId().equals(userId)) throw new IllegalArgumentException("Purchase does not belong to user");
+    var expert = experts.findById(purchase.getExpertId()).orElseThrow();
+    if (ev.isEnabled()) ev.expertId = expert.getId().toString();
+
+    // validations: future slots, in available slots, enough hours
+    var available = slotService.slotsForDate(expert, req.date());
+    double requiredHours = req.slots().size() * (Constants.SLOT_MIN/60.0);
+    if (requiredHours - purchase.getHoursRemaining() > 1e-6) throw new IllegalArgumentException("Not enough hours remaining");
+
+    List<BookedSession> created = new ArrayList<>(); List<SessionsBookedEvent.Booked> booked = new ArrayList<>();
+    for (var s : req.slots()) {
+      ValidationUtil.ensureFuture(req.date(), s.startMin(), clock);
+      boolean ok = available.stream().anyMatch(a -> a[0]==s.startMin() && a[1]==s.endMin());
+      if (!ok) throw new IllegalArgumentException("One or more slots are no longer available");
+      var entity = Session.builder()
+        .userId(userId).expertId(expert.getId()).purchaseId(purchase.getId())
+        .date(req.date()).startMin(s.startMin()).endMin(s.endMin())
+        .status(SessionStatus.UPCOMING) // link: provisioned after commit by meeting/MeetingLinkWorker
+        .createdAt(Instant.now(clock)).build();
+      sessions.save(entity);
+      created.add(new BookedSession(entity.getId().toString(), entity.getLink()));
+      booked.add(new SessionsBookedEvent.Booked(entity.getId(), s.startMin()));
+    }
+    events.publishEvent(new SessionsBookedEvent(expert.getId(), userId, req.date(), booked));
+
+    purchase.setHoursRemaining(Math.max(0, purchase.getHoursRemaining() - requiredHours));
+    purchases.save(purchase);
+    return new BatchBookRes(created, requiredHours, purchase.getHoursRemaining());
+  }
+
+  @Transactional
+  public void cancel(UUID sessionId, UUID byUserId, String reason) {
+    var ev = new BookingEvent(); ev.begin(); int q0 = QueryCounter.current();
+    String outcome = "ERROR"; Session s = null;
+    try {
+      s = sessions.findLockedById(sessionId).orElseThrow(() -> new IllegalArgumentException("Session not found"));
+      outcome = doCancel(s, byUserId, reason) ? "OK" : "NOOP";
+    } catch (IllegalArgumentException e) {
+      outcome = "REJECTED"; throw e;
+    } finally {
+      if (ev.shouldCommit()) {
+        ev.operation = "cancel"; ev.slotCount = 1; ev.sessionCount = "OK".equals(outcome) ? 1 : 0;
+        if (s != null) { ev.expertId = String.valueOf(s.getExpertId()); ev.date = String.valueOf(s.getDate()); }
+        ev.queryCount = QueryCounter.current() - q0; ev.outcome = outcome; ev.commit();
+      }
+    }
+  }
+
+  private boolean doCancel(Session s, UUID byUserId, String reason) {
+    ValidationUtil.ensureCancelable(s.getDate(), s.getStartMin(), clock);
+    if (s.getStatus() == SessionStatus.CANCELLED) return false;
+    s.setStatus(SessionStatus.CANCELLED); s.setCancelledBy(byUserId); s.setCancelledAt(Instant.now(clock)); s.setCancelReason(reason);
+    sessions.save(s);
+    // refund
+    var p = purchases.findById(s.getPurchaseId()).orElseThrow();
+    double mins = (s.getEndMin() - s.getStartMin());
+    p.setHoursRemaining(Math.min(p.getPackageHours(), p.getHoursRemaining() + mins/60.0));
+    purchases.save(p);
+    events.publishEvent(new SlotsFreedEvent(s.getExpertId(), List.of(new SlotsFreedEvent.Freed(s.getDate(), s.getStartMin(), s.getEndMin(), s.getId()))));
+    return true;
+  }
+
+  /**
+   * Cancels every upcoming session of an expert in [from, to] in one transaction: one set-based session update and
+   * one refund update per purchase (not per session). Sessions that have already started are left for completion.
+   */
+  @Transactional
+  public BulkCancelRes cancelRange(BulkCancelReq req) {
+    var ev = new BookingEvent(); ev.begin(); int q0 = QueryCounter.current();
+    String outcome = "ERROR"; BulkCancelRes res = null;
+    try {
+      res = doCancelRange(req);
+      outcome = res.cancelled() > 0 ? "OK" : "NOOP";
+      return res;
+    } catch (IllegalArgumentException e) {
+      outcome = "REJECTED"; throw e;
+    } finally {
+      if (ev.shouldCommit()) {
+        ev.operation = "bulk-cancel"; ev.expertId = String.valueOf(req.expertId()); ev.date = req.from() + ".." + req.to();
+        ev.slotCount = ev.sessionCount = res == null ? 0 : res.cancelled();
+        ev.queryCount = QueryCounter.current() - q0; ev.outcome = outcome; ev.commit();
+      }
+    }
+  }
+
+  private BulkCancelRes doCancelRange(BulkCancelReq req) {
+    if (req.expertId() == null || req.from() == null || req.to() == null) throw new IllegalArgumentException("expertId, from and to are required");
+    if (req.to().isBefore(req.from())) throw new IllegalArgumentException("to must not be before from");
+    if (ChronoUnit.DAYS.between(req.from(), req.to()) >= Constants.MAX_BULK_CANCEL_DAYS)
+      throw new IllegalArgumentException("Range too large (max " + Constants.MAX_BULK_CANCEL_DAYS + " days)");
+    var now = Instant.now(clock);
+    var affected = sessions.findByExpertIdAndDateBetweenAndStatusOrderByDateAscStartMinAsc(req.expertId(), req.from(), req.to(), SessionStatus.UPCOMING)
+      .stream().filter(s -> TimeUtil.atDateAndMinute(s.getDate(), s.getStartMin(), ZoneId.systemDefault()).isAfter(now)).toList();
+    // all-or-nothing: one session inside the notice period rejects the whole range unless overridden
+    for (var s : affected) ValidationUtil.ensureCancelable(s.getDate(), s.getStartMin(), clock, req.override());
+    if (affected.isEmpty()) return new BulkCancelRes(0, 0, 0, List.of());
+
+    // the rows are locked, so every one should flip; refunds below assume exactly that, otherwise roll back
+    int updated = sessions.cancelAll(affected.stream().map(Session::getId).toList(), req.byUserId(), now, req.reason());
+    if (updated != affected.size()) throw new IllegalStateException("Sessions changed while cancelling; retry");
+    Map<UUID, Integer> minutesByPurchase = new LinkedHashMap<>();
+    for (var s : affected) minutesByPurchase.merge(s.getPurchaseId(), s.getEndMin() - s.getStartMin(), Integer::sum);
+    minutesByPurchase.forEach((purchaseId, mins) -> purchases.refund(purchaseId, mins / 60.0));
+    events.publishEvent(new SlotsFreedEvent(req.expertId(),
+      affected.stream().map(s -> new SlotsFreedEvent.Freed(s.getDate(), s.getStartMin(), s.getEndMin(), s.getId())).toList()));
+
+    int total = minutesByPurchase.values().stream().mapToInt(Integer::intValue).sum();
+    return new BulkCancelRes(affected.size(), minutesByPurchase.size(), total / 60.0,
+      affected.stream().map(s -> s.getId().toString()).toList());
+  }
+}
+```
+
+## session/SessionController.java
+```java
+package com.odx.experts.session;
+
+import com.odx.experts.auth.Caller;
+import com.odx.experts.dto.*;
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+// every call runs on the owning expert's shard; purchases and sessions are located by a cached probe
+@RestController @RequestMapping("/api/sessions") @RequiredArgsConstructor
+public class SessionController {
+  private final BookingService booking;
+  private final ShardRouter shards;
+
+  @PostMapping("/batch-book/{userId}")
+  public ResponseEntity<BatchBookRes> book(@PathVariable UUID userId, @RequestBody BatchBookReq req) {
+    return ResponseEntity.ok(shards.on(shards.expertOfPurchase(req.purchaseId()), () -> booking.book(req, userId)));
+  }
+
+  @PostMapping("/{id}/cancel")
+  public ResponseEntity<?> cancel(@PathVariable UUID id, @RequestBody CancelDto dto) {
+    Caller.checkUser(dto.byUserId());
+    shards.run(shards.expertOfSession(id), () -> booking.cancel(id, dto.byUserId(), dto.reason()));
+    return ResponseEntity.ok().build();
+  }
+
+  @PostMapping("/bulk-cancel")
+  public ResponseEntity<BulkCancelRes> bulkCancel(@RequestBody BulkCancelReq req) {
+    Caller.checkExpert(req.expertId()); Caller.checkUser(req.byUserId());
+    return ResponseEntity.ok(shards.on(req.expertId(), () -> booking.cancelRange(req)));
+  }
+}
+```
+
+## session/SessionCompletionJob.java
+```java
+package com.odx.experts.session;
+
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Marks sessions COMPLETED once they have ended (wall-clock in the server zone, as ValidationUtil reads them), in
+ * batches on every shard. Feedback, settlement dues and the schedule projection key off COMPLETED; the V11 trigger
+ * moves each schedule entry, and the rollup and availability triggers see a status change that nets to zero.
+ * Pods may overlap: rows another pod is updating are skipped and picked up next time.
+ * Off unless odx.schedule.auto-complete is true: COMPLETED is what SettlementService pays out and
+ * /api/admin/expert-earnings reports, so enabling it bills every session that ended, not only those marked held.
+ */
+@Component @RequiredArgsConstructor
+@ConditionalOnProperty(name = "odx.schedule.auto-complete", havingValue = "true")
+public class SessionCompletionJob {
+  private static final int BATCH = 1000;
+
+  private final JdbcTemplate jdbc;
+  private final ShardRouter shards;
+  private final Clock clock;
+
+  @Scheduled(fixedDelayString = "${odx.schedule.complete-poll-ms:60000}")
+  public void run() { shards.fanOut(s -> completeEnded()); }
+
+  int completeEnded() {
+    var now = ZonedDateTime.ofInstant(clock.instant(), ZoneId.systemDefault());
+    var today = now.toLocalDate(); int nowMin = now.getHour() * 60 + now.getMinute();
+    int total = 0, n;
+    do {
+      n = jdbc.update("""
+          update sessions set status = 'COMPLETED'
+          where id in (select id from sessions where status = 'UPCOMING' and (date < ? or (date = ? and end_min <= ?))
+                       limit ? for update skip locked)""", today, today, nowMin, BATCH);
+      total += n;
+    } while (n == BATCH);
+    return total;
+  }
+}
+```
+
+## session/SlotsFreedEvent.java
+```java
+package com.odx.experts.session;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/** Slots a cancel gave back; published inside the cancelling transaction, handled once it commits (waitlist matching, reminders). */
+public record SlotsFreedEvent(UUID expertId, List<Freed> slots) {
+  public record Freed(LocalDate date, int startMin, int endMin, UUID sessionId) {}
+}
+```
+
+## session/SessionsBookedEvent.java
+```java
+package com.odx.experts.session;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/** Sessions a batch-book created; published inside the booking transaction, handled once it commits (reminders). */
+public record SessionsBookedEvent(UUID expertId, UUID userId, LocalDate date, List<Booked> sessions) {
+  public record Booked(UUID sessionId, int startMin) {}
+}
+```
+
+---
+
+## purchase/PurchaseController.java
+```java
+package com.odx.experts.purchase;
+
+import com.odx.experts.auth.Caller;
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.Map; import java.util.UUID;
+
+@RestController @RequestMapping("/api/purchases") @RequiredArgsConstructor
+public class PurchaseController {
+  private final PurchaseRepository purchases;
+  private final ShardRouter shards;
+
+  public record BuyReq(UUID userId, UUID expertId, int packageHours, int hourlyRate) {}
+
+  @PostMapping
+  public ResponseEntity<Map<String,Object>> buy(@RequestBody BuyReq req){
+    Caller.checkUser(req.userId());
+    int amount = req.packageHours * req.hourlyRate;
+    var p = shards.on(req.expertId(), () -> purchases.save(Purchase.builder() // purchases live on the expert's shard
+      .userId(req.userId()).expertId(req.expertId())
+      .packageHours(req.packageHours()).hoursRemaining(req.packageHours())
+      .amount(amount).createdAt(Instant.now()).build()));
+    return ResponseEntity.ok(Map.of("purchaseId", p.getId(), "amount", amount));
+  }
+}
+```
+
+---
+
+## feedback/FeedbackController.java
+```java
+package com.odx.experts.feedback;
+
+import com.odx.experts.auth.Caller;
+import com.odx.experts.dto.FeedbackReq;
+import com.odx.experts.purchase.PurchaseRepository;
+import com.odx.experts.session.SessionRepository;
+import com.odx.experts.session.SessionStatus;
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController @RequestMapping("/api/feedback") @RequiredArgsConstructor
+public class FeedbackController {
+  private final FeedbackRepository repo; private final PurchaseRepository purchases; private final SessionRepository sessions;
+  private final ShardRouter shards;
+
+  @PostMapping
+  public ResponseEntity<?> submit(@RequestBody FeedbackReq req){
+    Caller.checkUser(req.userId());
+    return shards.on(shards.expertOfPurchase(req.purchaseId()), () -> doSubmit(req)); // feedback sits with the purchase
+  }
+
+  private ResponseEntity<?> doSubmit(FeedbackReq req){
+    var p = purchases.findById(req.purchaseId()).orElseThrow();
+    if (!p.getUserId().equals(req.userId())) throw new IllegalArgumentException("Purchase does not belong to user");
+    if (p.getHoursRemaining() > 1e-6) throw new IllegalArgumentException("Feedback allowed after package hours are fully used");
+    var sess = sessions.findByPurchaseId(p.getId());
+    boolean allDone = sess.stream().allMatch(s -> s.getStatus() != SessionStatus.UPCOMING);
+    if (!allDone) throw new IllegalArgumentException("Feedback allowed after all sessions are completed");
+    if (repo.existsByPurchaseIdAndUserId(p.getId(), req.userId())) throw new IllegalArgumentException("Feedback already submitted");
+    repo.save(Feedback.builder().userId(req.userId()).expertId(p.getExpertId()).purchaseId(p.getId())
+      .rating(req.rating()).text(req.text()).createdAt(Instant.now()).build());
+    return ResponseEntity.ok().build();
+  }
+}
+```
+
+---
+
+## billing/SettlementService.java
+```java
+package com.odx.experts.billing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Month-end settlement: dues for every expert from one grouped query, all payouts written as one JDBC batch in one
+ * transaction. A period settles once; the settlements row is the idempotency guard (a concurrent or repeated run
+ * gets the stored report back). With several shards each shard settles its own experts under its own settlements row
+ * and {@link #merge} combines the per-shard reports.
+ */
+@Service @RequiredArgsConstructor
+public class SettlementService {
+  private static final LocalDate NO_CUTOFF = LocalDate.of(9999, 12, 31);
+  private final JdbcTemplate jdbc;
+  private final Clock clock;
+
+  public record Dues(UUID expertId, String name, int earned, int paid, int due) {}
+  public record Line(UUID expertId, String name, int amount) {}
+  public record Report(String period, boolean alreadySettled, Instant createdAt, int expertCount, int total, List<Line> payouts) {}
+
+  /** Earned (completed sessions up to {@code cutoff}, null = all) vs everything paid so far, per expert. */
+  public List<Dues> dues(LocalDate cutoff) {
+    return jdbc.query("""
+        with earned as (
+          select s.expert_id, round(sum((s.end_min - s.start_min) / 60.0 * e.hourly_rate))::int as earned
+          from sessions s join experts e on e.id = s.expert_id
+          where s.status = 'COMPLETED' and s.date <= ?
+          group by s.expert_id),
+        paid as (select expert_id, sum(amount)::int as paid from payouts group by expert_id)
+        select e.id, e.name, coalesce(er.earned, 0) as earned, coalesce(p.paid, 0) as paid
+        from experts e left join earned er on er.expert_id = e.id left join paid p on p.expert_id = e.id
+        order by e.name, e.id""",
+      (rs, i) -> {
+        int earned = rs.getInt("earned"), paid = rs.getInt("paid");
+        return new Dues(rs.getObject("id", UUID.class), rs.getString("name"), earned, paid, Math.max(0, earned - paid));
+      }, cutoff == null ? NO_CUTOFF : cutoff);
+  }
+
+  /** Settles a finished month ("2025-09"): pays every positive due for sessions dated up to its last day. */
+  @Transactional
+  public Report settle(String period) {
+    var month = YearMonth.parse(period);
+    var cutoff = month.atEndOfMonth();
+    if (!cutoff.isBefore(LocalDate.now(clock))) throw new IllegalArgumentException("Period " + period + " has not ended");
+    var now = Instant.now(clock);
+    // claim the period first: a second run blocks here until the first commits, then sees the conflict
+    int claimed = jdbc.update("insert into settlements (period, created_at, expert_count, total) values (?, ?, 0, 0) on conflict (period) do nothing",
+      period, Timestamp.from(now));
+    if (claimed == 0) return report(period, true);
+
+    var lines = dues(cutoff).stream().filter(d -> d.due() > 0).map(d -> new Line(d.expertId(), d.name(), d.due())).toList();
+    jdbc.batchUpdate("insert into payouts (expert_id, amount, created_at, note, settlement_period) values (?, ?, ?, ?, ?)",
+      lines, 500, (ps, l) -> {
+        ps.setObject(1, l.expertId()); ps.setInt(2, l.amount()); ps.setTimestamp(3, Timestamp.from(now));
+        ps.setString(4, "Settlement " + period); ps.setString(5, period);
+      });
+    int total = lines.stream().mapToInt(Line::amount).sum();
+    jdbc.update("update settlements set expert_count = ?, total = ? where period = ?", lines.size(), total, period);
+    return new Report(period, false, now, lines.size(), total, lines);
+  }
+
+  public Report report(String period, boolean alreadySettled) {
+    return find(period, alreadySettled).orElseThrow(() -> new IllegalArgumentException("Period " + period + " is not settled"));
+  }
+
+  public Optional<Report> find(String period, boolean alreadySettled) {
+    var head = jdbc.query("select created_at, expert_count, total from settlements where period = ?",
+      (rs, i) -> new Object[]{ rs.getTimestamp("created_at").toInstant(), rs.getInt("expert_count"), rs.getInt("total") }, period);
+    if (head.isEmpty()) return Optional.empty();
+    var lines = jdbc.query("""
+        select p.expert_id, e.name, p.amount from payouts p join experts e on e.id = p.expert_id
+        where p.settlement_period = ? order by e.name, p.expert_id""",
+      (rs, i) -> new Line(rs.getObject("expert_id", UUID.class), rs.getString("name"), rs.getInt("amount")), period);
+    var h = head.get(0);
+    return Optional.of(new Report(period, alreadySettled, (Instant) h[0], (int) h[1], (int) h[2], lines));
+  }
+
+  public static Report merge(String period, List<Report> parts) {
+    if (parts.isEmpty()) throw new IllegalArgumentException("Period " + period + " is not settled");
+    var lines = parts.stream().flatMap(r -> r.payouts().stream())
+      .sorted(Comparator.comparing(Line::name).thenComparing(Line::expertId)).toList();
+    return new Report(period, parts.stream().allMatch(Report::alreadySettled),
+      parts.stream().map(Report::createdAt).min(Comparator.naturalOrder()).orElseThrow(),
+      parts.stream().mapToInt(Report::expertCount).sum(), parts.stream().mapToInt(Report::total).sum(), lines);
+  }
+}
+```
+
+## billing/ClientStatementService.java
+```java
+package com.odx.experts.billing;
+
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Per-client statement: billed (purchases), paid (client payments), outstanding and hours left. Pages are keyset on
+ * username over users (primary shard); the page's figures are then summed from every shard, since purchases live with
+ * their expert. {@code live} aggregates purchases/payments for the page's users only; otherwise figures come straight
+ * from client_balance, which V7 triggers keep current on every purchase/payment write.
+ */
+@Service @RequiredArgsConstructor
+public class ClientStatementService {
+  private final JdbcTemplate jdbc;
+  private final ShardRouter shards;
+
+  public record Row(UUID userId, String username, String name, long billed, long paid, long outstanding, double hoursRemaining) {}
+
+  private record Client(UUID id, String username, String name) {}
+  private record Part(UUID id, long billed, long paid, double hours) {}
+
+  public List<Row> page(boolean live, String afterUsername, int limit) {
+    var page = shards.onShard(shards.primary(), () -> jdbc.query("""
+        select id, username, name from users
+        where role = 'CLIENT' and (cast(? as text) is null or username > cast(? as text))
+        order by username limit ?""",
+      (rs, i) -> new Client(rs.getObject("id", UUID.class), rs.getString("username"), rs.getString("name")), afterUsername, afterUsername, limit));
+    if (page.isEmpty()) return List.of();
+
+    var ids = page.stream().map(Client::id).toArray(UUID[]::new);
+    PreparedStatementSetter bindIds = ps -> {
+      var arr = ps.getConnection().createArrayOf("uuid", ids);
+      for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) ps.setArray(i, arr);
+    };
+    var sql = live ? """
+        select user_id as id, sum(amount) as billed, 0 as paid, sum(hours_remaining) as hours
+        from purchases where user_id = any(?) group by user_id
+        union all
+        select user_id, 0, sum(amount), 0 from client_payments where user_id = any(?) group by user_id"""
+      : "select user_id as id, billed, paid, hours_remaining as hours from client_balance where user_id = any(?)";
+    var parts = shards.fanOutConcat(s -> jdbc.query(sql, bindIds,
+      (rs, i) -> new Part(rs.getObject("id", UUID.class), rs.getLong("billed"), rs.getLong("paid"), rs.getDouble("hours"))));
+
+    var sums = new HashMap<UUID, Part>();
+    for (var p : parts) sums.merge(p.id(), p, (a, b) -> new Part(a.id(), a.billed() + b.billed(), a.paid() + b.paid(), a.hours() + b.hours()));
+    return page.stream().map(c -> {
+      var p = sums.getOrDefault(c.id(), new Part(c.id(), 0, 0, 0));
+      return new Row(c.id(), c.username(), c.name(), p.billed(), p.paid(), p.billed() - p.paid(),
+        Math.round(p.hours() * 100) / 100.0); // trigger deltas accumulate float noise
+    }).toList();
+  }
+}
+```
+
+## billing/AdminController.java
+```java
+package com.odx.experts.billing;
+
+import com.odx.experts.observability.AdminAggregationEvent;
+import com.odx.experts.observability.QueryCounter;
+import com.odx.experts.shard.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.*; import java.util.function.Supplier; import java.util.stream.Collectors;
+
+@RestController @RequestMapping("/api/admin") @RequiredArgsConstructor
+public class AdminController {
+  private final PayoutRepository payouts; private final ClientPaymentRepository clientPays; private final SettlementService settlements;
+  private final ClientStatementService statements;
+  private final ShardRouter shards;
+
+  public record PayoutReq(UUID expertId, int amount, String note) {}
+  public record ClientPayReq(UUID userId, int amount, String note) {}
+
+  @PostMapping("/payouts") public ResponseEntity<?> payout(@RequestBody PayoutReq r){ shards.run(r.expertId(), () -> payouts.save(Payout.builder().expertId(r.expertId()).amount(r.amount()).note(r.note()).createdAt(Instant.now()).build())); return ResponseEntity.ok().build(); }
+  // client payments, like users, live on the primary shard
+  @PostMapping("/client-payments") public ResponseEntity<?> clientPay(@RequestBody ClientPayReq r){ clientPays.save(ClientPayment.builder().userId(r.userId()).amount(r.amount()).note(r.note()).createdAt(Instant.now()).build()); return ResponseEntity.ok().build(); }
+
+  @GetMapping("/expert-earnings")
+  public List<Map<String,Object>> expertEarnings(){
+    // one grouped query per shard, in parallel (same numbers as before: completed sessions x rate, minus all payouts)
+    return aggregation("expert-earnings", () -> shards.fanOutConcat(s -> settlements.dues(null)).stream()
+      .sorted(Comparator.comparing(SettlementService.Dues::name).thenComparing(SettlementService.Dues::expertId)).map(d ->
+      Map.<String,Object>of("expertId", d.expertId(), "name", d.name(), "earned", d.earned(), "paid", d.paid(), "due", d.due())
+    ).collect(Collectors.toList()));
+  }
+
+  // month-end run: POST /api/admin/settlements/2025-09 pays every expert with dues in one batch; repeat calls return the same report
+  @PostMapping("/settlements/{period}")
+  public SettlementService.Report settle(@PathVariable String period) {
+    var ev = new AdminAggregationEvent(); ev.begin(); int q0 = QueryCounter.current();
+    var report = SettlementService.merge(period, shards.fanOut(s -> settlements.settle(period)));
+    if (ev.shouldCommit()) { ev.report = "settlement"; ev.rowCount = report.expertCount(); ev.queryCount = QueryCounter.current() - q0; ev.outcome = report.alreadySettled() ? "NOOP" : "OK"; ev.commit(); }
+    return report;
+  }
+
+  @GetMapping("/settlements/{period}")
+  public SettlementService.Report settlement(@PathVariable String period) {
+    return SettlementService.merge(period, shards.fanOutConcat(s -> settlements.find(period, true).stream().toList()));
+  }
+
+  // client side of the books: GET /api/admin/client-statements?limit=50&after=<next>; source=live recomputes from purchases/payments
+  @GetMapping("/client-statements")
+  public Map<String,Object> clientStatements(@RequestParam(defaultValue = "balance") String source,
+                                             @RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) String after) {
+    if (!source.equals("balance") && !source.equals("live")) throw new IllegalArgumentException("source must be balance or live");
+    if (limit < 1 || limit > 500) throw new IllegalArgumentException("limit must be 1..500");
+    var rows = aggregation("client-statements", () -> statements.page(source.equals("live"), after, limit));
+    var res = new LinkedHashMap<String,Object>();
+    res.put("items", rows);
+    res.put("next", rows.size() < limit ? null : rows.get(rows.size() - 1).username());
+    return res;
+  }
+
+  // wraps an admin report in a JFR AdminAggregationEvent (row and SQL statement counts)
+  private static <T> List<T> aggregation(String report, Supplier<List<T>> body) {
+    var ev = new AdminAggregationEvent(); ev.begin(); int q0 = QueryCounter.current();
+    String outcome = "ERROR"; List<T> rows = null;
+    try {
+      rows = body.get(); outcome = "OK";
+      return rows;
+    } finally {
+      if (ev.shouldCommit()) {
+        ev.report = report; ev.rowCount = rows == null ? 0 : rows.size(); ev.queryCount = QueryCounter.current() - q0; ev.outcome = outcome;
+        ev.commit();
+      }
+    }
+  }
+}
+```
+
+---
+
+## db/migration/V1__init.sql
+```sql
+create type role as enum ('CLIENT','EXPERT','ADMIN');
+create type session_status as enum ('UPCOMING','COMPLETED','CANCELLED');
+create type domain as enum ('CYBER','TAX','CORE','PROCURE','REG');
+
+create table users (
+  id uuid primary key default gen_random_uuid(),
+  username text unique not null,
+  password text not null,
+  name text not null,
+  email text not null,
+  role role not null,
+  active boolean not null default true,
+  expert_id uuid
+);
+
+create table experts (
+  id uuid primary key default gen_random_uuid(),
+  name text not null,
+  domain domain not null,
+  description text,
+  experience text,
+  base_rating double precision default 4.5,
+  hourly_rate integer not null,
+  phone text, email text,
+  day_start text default '09:00',
+  day_end text default '17:00',
+  workdays text default '1,2,3,4,5'
+);
+
+create table availability_override (
+  id uuid primary key default gen_random_uuid(),
+  expert_id uuid not null,
+  date date not null,
+  workday boolean not null default true,
+  day_start text,
+  day_end text
+);
+
+create table availability_window (
+  id uuid primary key default gen_random_uuid(),
+  expert_id uuid not null,
+  date date not null,
+  start_min integer not null,
+  end_min integer not null
+);
+
+create table purchases (
+  id uuid primary key default gen_random_uuid(),
+  user_id uuid not null,
+  expert_id uuid not null,
+  package_hours integer not null,
+  hours_remaining double precision not null,
+  amount integer not null,
+  created_at timestamptz not null
+);
+
+create table sessions (
+  id uuid primary key default gen_random_uuid(),
+  user_id uuid not null,
+  expert_id uuid not null,
+  purchase_id uuid not null,
+  date date not null,
+  start_min integer not null,
+  end_min integer not null,
+  link text,
+  status session_status not null,
+  cancel_reason text,
+  cancelled_by uuid,
+  cancelled_at timestamptz,
+  created_at timestamptz
+);
+
+create table feedback (
+  id uuid primary key default gen_random_uuid(),
+  user_id uuid not null,
+  expert_id uuid not null,
+  purchase_id uuid not null,
+  rating integer not null,
+  text text,
+  created_at timestamptz
+);
+
+create table payouts (
+  id uuid primary key default gen_random_uuid(),
+  expert_id uuid not null,
+  amount integer not null,
+  created_at timestamptz,
+  note text
+);
+
+create table client_payments (
+  id uuid primary key default gen_random_uuid(),
+  user_id uuid not null,
+  amount integer not null,
+  created_at timestamptz,
+  note text
+);
+```
+
+## db/migration/V2__uuid_v7_defaults.sql
+```sql
+-- Time-ordered ids for rows inserted outside Hibernate (psql seeds, scripts). Same layout as common/UuidV7:
+-- take a random v4 uuid, overwrite the first 48 bits with unix millis and flip the version nibble 4 -> 7.
+-- Column types stay uuid, so existing v4 rows are untouched and keep sorting/joining as before.
+create or replace function uuid_generate_v7() returns uuid as $$
+  select encode(
+    set_bit(set_bit(
+      overlay(uuid_send(gen_random_uuid())
+              placing substring(int8send(floor(extract(epoch from clock_timestamp()) * 1000)::bigint) from 3)
+              from 1 for 6),
+      52, 1), 53, 1),
+    'hex')::uuid;
+$$ language sql volatile;
+
+alter table users                 alter column id set default uuid_generate_v7();
+alter table experts               alter column id set default uuid_generate_v7();
+alter table availability_override alter column id set default uuid_generate_v7();
+alter table availability_window   alter column id set default uuid_generate_v7();
+alter table purchases             alter column id set default uuid_generate_v7();
+alter table sessions              alter column id set default uuid_generate_v7();
+alter table feedback              alter column id set default uuid_generate_v7();
+alter table payouts               alter column id set default uuid_generate_v7();
+alter table client_payments       alter column id set default uuid_generate_v7();
+```
+
+## db/migration/V3__version_counters.sql
+```sql
+-- Version counters for ETags (expert/VersionCounters). Maintained by triggers so no write path can forget a bump.
+create table availability_version (
+  expert_id  uuid not null,
+  date       date not null,
+  version    bigint not null default 1,
+  updated_at timestamptz not null default now(),
+  primary key (expert_id, date)
+);
+create index availability_version_updated_at on availability_version (updated_at);
+
+create table catalogue_version (
+  id         smallint primary key default 1 check (id = 1),
+  version    bigint not null,
+  updated_at timestamptz not null default now()
+);
+insert into catalogue_version (id, version) values (1, 1);
+
+create function bump_availability(e uuid, d date) returns void as $$
+  insert into availability_version (expert_id, date) values (e, d)
+  on conflict (expert_id, date) do update set version = availability_version.version + 1, updated_at = now();
+$$ language sql;
+
+create function availability_changed() returns trigger as $$
+begin
+  if tg_op <> 'INSERT' then perform bump_availability(old.expert_id, old.date); end if;
+  if tg_op = 'INSERT' or (tg_op = 'UPDATE' and (new.expert_id, new.date) is distinct from (old.expert_id, old.date)) then
+    perform bump_availability(new.expert_id, new.date);
+  end if;
+  return null;
+end $$ language plpgsql;
+
+create function catalogue_changed() returns trigger as $$
+begin
+  update catalogue_version set version = version + 1, updated_at = now() where id = 1;
+  return null;
+end $$ language plpgsql;
+
+-- sessions: only changes that move or free a slot (not link/notes updates)
+create trigger sessions_availability after insert or delete or update of status, date, start_min, end_min, expert_id
+  on sessions for each row execute function availability_changed();
+create trigger window_availability after insert or update or delete
+  on availability_window for each row execute function availability_changed();
+create trigger override_availability after insert or update or delete
+  on availability_override for each row execute function availability_changed();
+
+create trigger experts_catalogue after insert or update or delete on experts for each statement execute function catalogue_changed();
+create trigger feedback_catalogue after insert or update or delete on feedback for each statement execute function catalogue_changed();
+```
+
+## db/migration/V4__expert_next_slot.sql
+```sql
+-- Periodic snapshot of expert/NextSlotIndex so restarts resume from here instead of rescanning every expert.
+create table expert_next_slot (
+  expert_id      uuid primary key,
+  next_date      date,
+  next_start_min integer,
+  next_at        timestamptz, -- null: nothing free within the search horizon
+  updated_at     timestamptz not null
+);
+```
+
+## db/migration/V5__expert_search.sql
+```sql
+-- Full-text search for GET /api/experts/search. Weighted so name hits outrank description, then experience.
+alter table experts add column search tsvector generated always as (
+  setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+  setweight(to_tsvector('english', coalesce(description, '')), 'B') ||
+  setweight(to_tsvector('english', coalesce(experience, '')), 'C')
+) stored;
+create index experts_search_gin on experts using gin (search);
+create index experts_domain on experts (domain);
+-- per-expert rating lookups (search page rows, catalogue list)
+create index feedback_expert_id on feedback (expert_id);
+```
+
+## db/migration/V6__settlements.sql
+```sql
+-- Month-end settlement runs (billing/SettlementService). One row per period doubles as the idempotency guard.
+create table settlements (
+  period       text primary key, -- YYYY-MM
+  created_at   timestamptz not null,
+  expert_count integer not null,
+  total        integer not null
+);
+
+alter table payouts add column settlement_period text;
+create unique index payouts_settlement_expert on payouts (settlement_period, expert_id) where settlement_period is not null;
+create index payouts_expert_id on payouts (expert_id);
+-- dues aggregate reads completed sessions per expert
+create index sessions_expert_status_date on sessions (expert_id, status, date);
+```
+
+## db/migration/V7__client_balance.sql
+```sql
+-- Per-client running totals for GET /api/admin/client-statements (billing/ClientStatementService).
+-- Row triggers apply deltas, so the report reads one row per client instead of aggregating history.
+create table client_balance (
+  user_id         uuid primary key,
+  billed          bigint not null default 0,
+  paid            bigint not null default 0,
+  hours_remaining double precision not null default 0,
+  updated_at      timestamptz not null default now()
+);
+
+insert into client_balance (user_id, billed, hours_remaining)
+  select user_id, sum(amount), sum(hours_remaining) from purchases group by user_id;
+insert into client_balance (user_id, paid)
+  select user_id, sum(amount) from client_payments group by user_id
+  on conflict (user_id) do update set paid = excluded.paid;
+
+create function client_balance_add(u uuid, b bigint, p bigint, h double precision) returns void as $$
+  insert into client_balance (user_id, billed, paid, hours_remaining) values (u, b, p, h)
+  on conflict (user_id) do update set billed = client_balance.billed + excluded.billed, paid = client_balance.paid + excluded.paid,
+    hours_remaining = client_balance.hours_remaining + excluded.hours_remaining, updated_at = now();
+$$ language sql;
+
+create function purchases_balance() returns trigger as $$
+begin
+  if tg_op <> 'INSERT' then perform client_balance_add(old.user_id, -old.amount, 0, -old.hours_remaining); end if;
+  if tg_op <> 'DELETE' then perform client_balance_add(new.user_id, new.amount, 0, new.hours_remaining); end if;
+  return null;
+end $$ language plpgsql;
+
+create function client_payments_balance() returns trigger as $$
+begin
+  if tg_op <> 'INSERT' then perform client_balance_add(old.user_id, 0, -old.amount, 0); end if;
+  if tg_op <> 'DELETE' then perform client_balance_add(new.user_id, 0, new.amount, 0); end if;
+  return null;
+end $$ language plpgsql;
+
+-- bookings and refunds touch hours_remaining only; other purchase columns don't move the balance
+create trigger purchases_balance after insert or delete or update of user_id, amount, hours_remaining
+  on purchases for each row execute function purchases_balance();
+create trigger client_payments_balance after insert or delete or update of user_id, amount
+  on client_payments for each row execute function client_payments_balance();
+
+-- source=live aggregates per page of users
+create index purchases_user_id on purchases (user_id);
+create index client_payments_user_id on client_payments (user_id);
+```
+
+## db/migration/V8__rollups.sql
+```sql
+-- Dashboard rollups (reporting/RollupService). grain: D = day, W = ISO week (Monday), M = month; bucket = period start.
+-- Session and purchase triggers add deltas to all three grains; available_min and drift fixes come from the nightly run.
+create table rollup_expert (
+  grain           char(1) not null check (grain in ('D', 'W', 'M')),
+  bucket          date not null,
+  expert_id       uuid not null,
+  domain          domain not null,
+  revenue         bigint not null default 0,  -- purchases.amount, by purchase day (UTC)
+  booked_min      integer not null default 0, -- every session booked for the day, cancelled or not
+  booked_count    integer not null default 0,
+  cancelled_min   integer not null default 0,
+  cancelled_count integer not null default 0,
+  available_min   integer not null default 0, -- bookable minutes, same rule as expert/SlotService
+  primary key (grain, bucket, expert_id)
+);
+create index rollup_expert_domain on rollup_expert (grain, domain, bucket);
+
+create function hhmm_minutes(t text) returns integer as $$
+  select split_part(t, ':', 1)::integer * 60 + split_part(t, ':', 2)::integer;
+$$ language sql immutable;
+
+create function rollup_add(e uuid, d date, rev bigint, bmin integer, bcnt integer, cmin integer, ccnt integer) returns void as $$
+  insert into rollup_expert (grain, bucket, expert_id, domain, revenue, booked_min, booked_count, cancelled_min, cancelled_count)
+  select g.grain, g.bucket, x.id, x.domain, rev, bmin, bcnt, cmin, ccnt
+  from experts x,
+       (values ('D', d), ('W', date_trunc('week', d)::date), ('M', date_trunc('month', d)::date)) g(grain, bucket)
+  where x.id = e
+  on conflict (grain, bucket, expert_id) do update set revenue = rollup_expert.revenue + excluded.revenue,
+    booked_min = rollup_expert.booked_min + excluded.booked_min, booked_count = rollup_expert.booked_count + excluded.booked_count,
+    cancelled_min = rollup_expert.cancelled_min + excluded.cancelled_min, cancelled_count = rollup_expert.cancelled_count + excluded.cancelled_count;
+$$ language sql;
+
+create function sessions_rollup() returns trigger as $$
+declare c integer;
+begin
+  if tg_op <> 'INSERT' then
+    c := case when old.status = 'CANCELLED' then 1 else 0 end;
+    perform rollup_add(old.expert_id, old.date, 0, -(old.end_min - old.start_min), -1, -c * (old.end_min - old.start_min), -c);
+  end if;
+  if tg_op <> 'DELETE' then
+    c := case when new.status = 'CANCELLED' then 1 else 0 end;
+    perform rollup_add(new.expert_id, new.date, 0, new.end_min - new.start_min, 1, c * (new.end_min - new.start_min), c);
+  end if;
+  return null;
+end $$ language plpgsql;
+
+create function purchases_rollup() returns trigger as $$
+begin
+  if tg_op <> 'INSERT' then perform rollup_add(old.expert_id, (old.created_at at time zone 'UTC')::date, -old.amount, 0, 0, 0, 0); end if;
+  if tg_op <> 'DELETE' then perform rollup_add(new.expert_id, (new.created_at at time zone 'UTC')::date, new.amount, 0, 0, 0, 0); end if;
+  return null;
+end $$ language plpgsql;
+
+create trigger sessions_rollup after insert or delete or update of status, date, start_min, end_min, expert_id
+  on sessions for each row execute function sessions_rollup();
+-- hours_remaining changes on every booking/refund but does not move revenue
+create trigger purchases_rollup after insert or delete or update of amount, expert_id, created_at
+  on purchases for each row execute function purchases_rollup();
+```
+
+## db/migration/V9__shard_directory.sql
+```sql
+-- Shard directory (shard/ShardDirectory), used on the primary shard: experts pinned away from their ring owner.
+-- shard null = unpinned, follow the ring; the row stays so pods polling on updated_at see the unpin.
+create table shard_directory (
+  expert_id  uuid primary key,
+  shard      text,
+  moving     boolean not null default false, -- ShardMigrator is copying this expert; requests get 503
+  updated_at timestamptz not null default now()
+);
+create index shard_directory_updated_at on shard_directory (updated_at);
+```
+
+## db/migration/V10__token_revocation.sql
+```sql
+-- Revoked bearer tokens (auth/TokenService), on the primary shard. Pods keep the unexpired ids in memory and poll
+-- created_at for new rows; a row is useless once its token has expired and is purged a day later.
+create table token_revocation (
+  token_id   bigint primary key,
+  user_id    uuid not null,
+  expires_at timestamptz not null,
+  created_at timestamptz not null default now()
+);
+create index token_revocation_created_at on token_revocation (created_at);
+create index token_revocation_expires_at on token_revocation (expires_at);
+```
+
+## db/migration/V11__schedule.sql
+```sql
+-- "My schedule" projection (schedule/ScheduleService), on each expert's shard: one row per session (state = status)
+-- and one per purchase (state PACKAGE, date = purchase day in UTC). Row triggers keep it in step with bookings,
+-- cancels, refunds, completion and expert renames; a page is one range scan of one of the two indexes below.
+create table schedule_entry (
+  id              uuid primary key,          -- session id, or purchase id for PACKAGE rows
+  state           text not null check (state in ('PACKAGE', 'UPCOMING', 'COMPLETED', 'CANCELLED')),
+  user_id         uuid not null,
+  expert_id       uuid not null,
+  expert_name     text,
+  domain          domain,
+  purchase_id     uuid not null,
+  date            date not null,
+  start_min       integer not null default 0,
+  end_min         integer not null default 0,
+  link            text,
+  package_hours   integer,                   -- PACKAGE rows only
+  hours_remaining double precision           -- PACKAGE rows only
+);
+
+insert into schedule_entry (id, state, user_id, expert_id, expert_name, domain, purchase_id, date, package_hours, hours_remaining)
+  select p.id, 'PACKAGE', p.user_id, p.expert_id, x.name, x.domain, p.id, (p.created_at at time zone 'UTC')::date, p.package_hours, p.hours_remaining
+  from purchases p left join experts x on x.id = p.expert_id;
+insert into schedule_entry (id, state, user_id, expert_id, expert_name, domain, purchase_id, date, start_min, end_min, link)
+  select s.id, s.status::text, s.user_id, s.expert_id, x.name, x.domain, s.purchase_id, s.date, s.start_min, s.end_min, s.link
+  from sessions s left join experts x on x.id = s.expert_id;
+
+create index schedule_entry_user on schedule_entry (user_id, state, date, start_min, id);
+create index schedule_entry_expert on schedule_entry (expert_id, date, start_min, id);
+
+create function schedule_session() returns trigger as $$
+declare n text; d domain;
+begin
+  if tg_op = 'DELETE' then delete from schedule_entry where id = old.id; return null; end if;
+  select name, domain into n, d from experts where id = new.expert_id;
+  insert into schedule_entry (id, state, user_id, expert_id, expert_name, domain, purchase_id, date, start_min, end_min, link)
+  values (new.id, new.status::text, new.user_id, new.expert_id, n, d, new.purchase_id, new.date, new.start_min, new.end_min, new.link)
+  on conflict (id) do update set state = excluded.state, user_id = excluded.user_id, expert_id = excluded.expert_id,
+    expert_name = excluded.expert_name, domain = excluded.domain, date = excluded.date, start_min = excluded.start_min,
+    end_min = excluded.end_min, link = excluded.link;
+  return null;
+end $$ language plpgsql;
+
+create function schedule_purchase() returns trigger as $$
+declare n text; d domain;
+begin
+  if tg_op = 'DELETE' then delete from schedule_entry where id = old.id; return null; end if;
+  select name, domain into n, d from experts where id = new.expert_id;
+  insert into schedule_entry (id, state, user_id, expert_id, expert_name, domain, purchase_id, date, package_hours, hours_remaining)
+  values (new.id, 'PACKAGE', new.user_id, new.expert_id, n, d, new.id, (new.created_at at time zone 'UTC')::date, new.package_hours, new.hours_remaining)
+  on conflict (id) do update set user_id = excluded.user_id, expert_id = excluded.expert_id, expert_name = excluded.expert_name,
+    domain = excluded.domain, package_hours = excluded.package_hours, hours_remaining = excluded.hours_remaining;
+  return null;
+end $$ language plpgsql;
+
+create function schedule_expert() returns trigger as $$
+begin
+  update schedule_entry set expert_name = new.name, domain = new.domain where expert_id = new.id;
+  return null;
+end $$ language plpgsql;
+
+create trigger schedule_session after insert or delete or update of status, date, start_min, end_min, link, user_id, expert_id
+  on sessions for each row execute function schedule_session();
+create trigger schedule_purchase after insert or delete or update of package_hours, hours_remaining, user_id, expert_id
+  on purchases for each row execute function schedule_purchase();
+create trigger schedule_expert after update of name, domain on experts for each row
+  when (old.name is distinct from new.name or old.domain is distinct from new.domain) execute function schedule_expert();
+
+-- session/SessionCompletionJob
+create index sessions_upcoming_date on sessions (date) where status = 'UPCOMING';
+```
+
+## db/migration/V12__idempotency.sql
+```sql
+-- Idempotency-Key outcomes (idempotency/IdempotencyStore), on the primary shard. status is null while the first request
+-- runs (locked_until = its lease); afterwards the row holds the response that retries get back until expires_at.
+create table idempotency_key (
+  id           text primary key,        -- "<userId or ->:<key>"
+  request_hash bytea not null,          -- SHA-256 of method, path, query and body
+  status       smallint,
+  content_type text,
+  body         bytea,
+  locked_until timestamptz,
+  expires_at   timestamptz not null,
+  created_at   timestamptz not null default now()
+);
+create index idempotency_key_expires_at on idempotency_key (expires_at);
+```
+
+## db/migration/V13__waitlist.sql
+```sql
+-- Waitlist (waitlist/WaitlistService), on each expert's shard. WaitlistIndex keeps the WAITING rows in memory and
+-- follows updated_at; a HELD row blocks its slot in SlotService, so entering or leaving HELD bumps availability.
+create table waitlist (
+  id              uuid primary key default uuid_generate_v7(),
+  user_id         uuid not null,
+  expert_id       uuid not null,
+  purchase_id     uuid not null references purchases(id),
+  date            date not null,
+  from_min        int,
+  to_min          int,
+  priority        int not null default 0,
+  auto_book       boolean not null default false,
+  state           text not null check (state in ('WAITING', 'HELD', 'BOOKED', 'LEFT', 'EXPIRED')),
+  held_start_min  int,
+  hold_expires_at timestamptz,
+  session_id      uuid,
+  created_at      timestamptz not null default now(),
+  updated_at      timestamptz not null default now(),
+  check ((from_min is null) = (to_min is null))
+);
+create index waitlist_updated_at on waitlist (updated_at);
+create index waitlist_user on waitlist (user_id, date);
+create unique index waitlist_active on waitlist (user_id, expert_id, date) where state in ('WAITING', 'HELD');
+-- one hold per slot: pods matching the same freed slot cannot both hold it
+create unique index waitlist_held_slot on waitlist (expert_id, date, held_start_min) where state = 'HELD';
+create index waitlist_hold_expiry on waitlist (hold_expires_at) where state = 'HELD';
+
+create function waitlist_hold_changed() returns trigger as $$
+begin
+  if tg_op <> 'INSERT' and old.state = 'HELD' then perform bump_availability(old.expert_id, old.date); end if;
+  if tg_op <> 'DELETE' and new.state = 'HELD' then perform bump_availability(new.expert_id, new.date); end if;
+  return null;
+end $$ language plpgsql;
+
+create trigger waitlist_availability after insert or delete or update of state, held_start_min
+  on waitlist for each row execute function waitlist_hold_changed();
+```
+
+## db/migration/V14__meeting_links.sql
+```sql
+-- Meeting links are provisioned after booking (meeting/MeetingLinkWorker): new sessions commit with link = null.
+-- link_next_at is the next attempt (or the claim lease while the provider is called); null = due now.
+alter table sessions add column link_attempts smallint not null default 0;
+alter table sessions add column link_next_at timestamptz;
+create index sessions_link_pending on sessions (created_at) where link is null and status = 'UPCOMING';
+```
+
+## db/migration/V15__reminders.sql
+```sql
+-- Session reminders (reminder/ReminderScheduler). A row is the claim on one reminder (session, minutes before start),
+-- taken before the notifier is called; sent_at is set once it delivered. A claim left unsent past its lease is retried.
+create table reminder_sent (
+  session_id uuid not null,
+  lead_min integer not null,
+  expert_id uuid not null, -- moves with the expert (shard/ShardMigrator)
+  claimed_at timestamptz not null,
+  sent_at timestamptz,
+  primary key (session_id, lead_min)
+);
+create index reminder_sent_unsent on reminder_sent (claimed_at) where sent_at is null;
+create index reminder_sent_claimed on reminder_sent (claimed_at);
+
+-- every reminder due up to `through` has been claimed; a restart reloads the wheel from here (read on the primary)
+create table reminder_checkpoint (
+  id smallint primary key check (id = 1),
+  through timestamptz not null
+);
+
+-- bookings made on other pods, for reminders inside the window a pod has already loaded
+create index sessions_upcoming_created on sessions (created_at) where status = 'UPCOMING';
+```
+
+## db/migration/V16__expert_updated_at.sql
+```sql
+-- experts.updated_at: expert/NextSlotIndex reloads only experts changed since its last pass, not the whole catalogue.
+-- Set on insert too, so an expert copied to another shard (shard/ShardMigrator) shows up there as changed.
+alter table experts add column updated_at timestamptz not null default now();
+create index experts_updated_at on experts (updated_at);
+
+create function experts_touch() returns trigger as $$
+begin
+  new.updated_at := now();
+  return new;
+end $$ language plpgsql;
+create trigger experts_touch before insert or update on experts for each row execute function experts_touch();
+
+-- a rating change is a change of the expert (its average is part of the ranking)
+create function feedback_touch_expert() returns trigger as $$
+begin
+  if tg_op <> 'INSERT' then update experts set updated_at = now() where id = old.expert_id; end if;
+  if tg_op <> 'DELETE' then update experts set updated_at = now() where id = new.expert_id; end if;
+  return null;
+end $$ language plpgsql;
+create trigger feedback_touch_expert after insert or delete or update of rating, expert_id on feedback
+  for each row execute function feedback_touch_expert();
+```
+
+## db/migration/V17__shard_cleanup.sql
+```sql
+-- Source shard still holding a moved expert's rows (shard/ShardMigrator). The pin stays until the delete there commits,
+-- so a failed cleanup is retried by the next rebalance instead of leaving a second copy behind unnoticed.
+alter table shard_directory add column cleanup_from text;
+```
+
+## db/migration/V18__idle_transaction_timeout.sql
+```sql
+-- A transaction left idle this long is ended: together with spring.transaction.default-timeout it bounds how late a
+-- commit can land behind its updated_at/created_at stamps, which pollers re-read for (common/Constants.POLL_OVERLAP).
+-- Applies to new connections; runs on every shard like the other migrations.
+do $$ begin
+  execute format('alter database %I set idle_in_transaction_session_timeout = %L', current_database(), '60s');
+end $$;
+```
+
+---
+
+## Test: common/UuidV7Test.java
+```java
+package com.odx.experts.common;
+
+import org.junit.jupiter.api.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+  @Test void versionVariantAndTimestamp(){
+    var id = UuidV7.next(1_725_609_600_000L);
+    assertEquals(7, id.version()); assertEquals(2, id.variant());
+    assertTrue(UuidV7.timestampOf(id) >= 1_725_609_600_000L);
+    assertEquals(-1, UuidV7.timestampOf(UUID.randomUUID()));
+  }
+
+  @Test void strictlyIncreasingWithinSameMillisAndClockSkew(){
+    long now = System.currentTimeMillis() + 60_000; UUID prev = UuidV7.next(now);
+    for (int i = 0; i < 10_000; i++) {
+      var next = UuidV7.next(i % 3 == 0 ? now - 5 : now); // same ms and a clock step back
+      assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), prev.getMostSignificantBits()) > 0);
+      prev = next;
+    }
+  }
+
+  @Test void generatorKeepsAssignedIds(){
+    var gen = new UuidV7Generator(); var legacy = UUID.randomUUID();
+    assertTrue(gen.allowAssignedIdentifiers());
+    assertEquals(legacy, gen.generate(null, null, legacy, org.hibernate.generator.EventType.INSERT));
+    assertEquals(7, ((UUID) gen.generate(null, null, null, org.hibernate.generator.EventType.INSERT)).version());
+  }
+}
+```
+
+## Test: expert/SlotBitmapTest.java
+```java
+package com.odx.experts.expert;
+
+import org.junit.jupiter.api.*; import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*;
+
+class SlotBitmapTest {
+  private final LocalDate d = LocalDate.parse("2025-09-10");
+
+  @Test void encodesFreeCellsFromOrigin(){
+    var out = new StringBuilder();
+    // 09:00, 09:30, 10:30 free (10:00 booked) -> cells 0,1,3 -> 0b1011
+    SlotBitmap.writeDay(out, d, List.of(new int[]{540,570}, new int[]{570,600}, new int[]{630,660}), true);
+    assertEquals("{\"date\":\"2025-09-10\",\"origin\":540,\"cells\":4,\"bits\":\"b\"}", out.toString());
+  }
+
+  @Test void closedDayAndOffGridWindow(){
+    var out = new StringBuilder();
+    SlotBitmap.writeDay(out, d, List.of(), true);
+    SlotBitmap.writeDay(out, d, List.of(new int[]{540,570}, new int[]{555,585}), false);
+    assertEquals("{\"date\":\"2025-09-10\",\"origin\":0,\"cells\":0,\"bits\":\"\"}"
+      + ",{\"date\":\"2025-09-10\",\"origin\":540,\"cells\":1,\"bits\":\"1\"}"
+      + ",{\"date\":\"2025-09-10\",\"origin\":555,\"cells\":1,\"bits\":\"1\"}", out.toString());
+  }
+
+  @Test void selectedByQueryOrAccept(){
+    assertTrue(SlotBitmap.requested("bitmap", null));
+    assertTrue(SlotBitmap.requested(null, SlotBitmap.MEDIA_TYPE + ", application/json"));
+    assertFalse(SlotBitmap.requested(null, "application/json"));
+  }
+}
+```
+
+## Test: expert/AvailabilityServiceTest.java
+```java
+package com.odx.experts.expert;
+
+import org.junit.jupiter.api.*; import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class AvailabilityServiceTest {
+  @Test void mergesOverlappingAndTouchingWindows(){
+    var merged = AvailabilityService.merge(List.of(new int[]{600,660}, new int[]{540,600}, new int[]{630,720}, new int[]{840,900}));
+    assertEquals(2, merged.size());
+    assertArrayEquals(new int[]{540,720}, merged.get(0)); assertArrayEquals(new int[]{840,900}, merged.get(1));
+  }
+
+  @Test void expandsWeekdaysOverRange(){
+    // 2025-09-01 is a Monday; Mon+Wed over two weeks -> 4 days
+    var days = AvailabilityService.expand(LocalDate.parse("2025-09-01"), LocalDate.parse("2025-09-14"), List.of(1, 3), List.<int[]>of(new int[]{540,720}));
+    assertEquals(List.of(LocalDate.parse("2025-09-01"), LocalDate.parse("2025-09-03"), LocalDate.parse("2025-09-08"), LocalDate.parse("2025-09-10")), new ArrayList<>(days.keySet()));
+  }
+
+  @Test void rejectsWeekdaysOutsideTheWeek(){
+    var from = LocalDate.parse("2025-09-01"); var to = LocalDate.parse("2025-09-14"); var ranges = List.<int[]>of(new int[]{540,720});
+    assertThrows(IllegalArgumentException.class, () -> AvailabilityService.expand(from, to, List.of(-1), ranges));
+    assertThrows(IllegalArgumentException.class, () -> AvailabilityService.expand(from, to, List.of(1, 7), ranges));
+    assertThrows(IllegalArgumentException.class, () -> AvailabilityService.expand(from, to, Arrays.asList(1, null), ranges));
+  }
+
+  @Test void replaceDaysDeletesOnceAndSavesMergedBatch(){
+    var repo = mock(AvailabilityWindowRepository.class); var svc = new AvailabilityService(repo); var ex = UUID.randomUUID();
+    var d = LocalDate.parse("2025-09-10");
+    int rows = svc.replaceDays(ex, Map.of(d, List.of(new int[]{540,600}, new int[]{570,630})));
+    assertEquals(1, rows);
+    verify(repo).deleteByExpertIdAndDateIn(ex, Set.of(d));
+    verify(repo).saveAll(argThat(ws -> ws instanceof List<?> l && l.size() == 1));
+  }
+}
+```
+
+## Test: admission/TokenBucketTest.java
+```java
+package com.odx.experts.admission;
+
+import org.junit.jupiter.api.*; import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+  @Test void admitsBurstThenRefillsAtRate(){
+    long t = 1_000_000_000L; var b = new TokenBucket(2, 3, t); // 2/s, burst 3
+    assertEquals(0, b.tryAcquire(t)); assertEquals(0, b.tryAcquire(t)); assertEquals(0, b.tryAcquire(t));
+    long wait = b.tryAcquire(t);
+    assertEquals(500_000_000L, wait);                 // next token in 1/rate
+    assertEquals(0, b.tryAcquire(t + wait));
+    assertFalse(b.isFull(t + wait));
+    assertTrue(b.isFull(t + 3_000_000_000L));
+  }
+
+  @Test void releaseReturnsTheToken(){
+    long t = 1_000_000_000L; var b = new TokenBucket(2, 1, t);
+    assertEquals(0, b.tryAcquire(t)); assertTrue(b.tryAcquire(t) > 0);
+    b.release();
+    assertTrue(b.isFull(t));
+    assertEquals(0, b.tryAcquire(t));
+  }
+}
+```
+
+## Test: admission/AdmissionInterceptorTest.java
+```java
+package com.odx.experts.admission;
+
+import com.odx.experts.shard.ShardProperties;
+import org.junit.jupiter.api.*; import org.springframework.mock.web.*; import org.springframework.web.servlet.HandlerMapping;
+import java.util.*; import java.util.concurrent.atomic.AtomicInteger; import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionInterceptorTest {
+  private static final double SLOW = 0.1; // one token per 10s: nothing refills during a test
+
+  @Test void anonymousCallersAreKeyedByAddressNotByHeader() throws Exception {
+    var slots = new AdmissionInterceptor("slots", new AdmissionProperties.Budget(SLOW, 1, 0, 0), new AtomicInteger(), 100);
+    assertTrue(call(slots, null, "u1"));
+    assertFalse(call(slots, null, "u2")); // same address, another X-User-Id
+    assertEquals(1, slots.shedUser.sum());
+  }
+
+  @Test void expertShedGivesTheUserTokenBack() throws Exception {
+    var slots = new AdmissionInterceptor("slots", new AdmissionProperties.Budget(SLOW, 2, SLOW, 1), new AtomicInteger(), 100);
+    assertTrue(call(slots, "e1", null));
+    assertFalse(call(slots, "e1", null)); // hot expert: refused, user token returned
+    assertTrue(call(slots, "e2", null));  // so the user's second token is still there
+    assertFalse(call(slots, "e3", null));
+    assertEquals(1, slots.shedExpert.sum()); assertEquals(1, slots.shedUser.sum());
+  }
+
+  @Test void concurrencyShedGivesBothTokensBack() throws Exception {
+    var slots = new AdmissionInterceptor("slots", new AdmissionProperties.Budget(SLOW, 1, SLOW, 1), new AtomicInteger(), 0);
+    assertFalse(call(slots, "e1", null));
+    assertEquals(1, slots.shedConcurrency.sum());
+    slots.sweep(); // full buckets are dropped: neither token was spent
+    assertEquals(0, slots.stats().get("trackedUsers")); assertEquals(0, slots.stats().get("trackedExperts"));
+  }
+
+  @Test void limitDefaultsToTheSmallestConnectionPool(){
+    var budget = new AdmissionProperties.Budget(0, 0, 0, 0);
+    var derived = new AdmissionProperties(true, 0, budget, budget);
+    var nodes = List.of(new ShardProperties.Node("s0", "jdbc:s0", "u", "p", 8), new ShardProperties.Node("s1", "jdbc:s1", "u", "p", null));
+    assertEquals(20, limit(new AdmissionConfig(derived, new ShardProperties(null, null, null), 20)));
+    assertEquals(8, limit(new AdmissionConfig(derived, new ShardProperties(nodes, null, null), 20)));
+    assertEquals(64, limit(new AdmissionConfig(new AdmissionProperties(true, 64, budget, budget), new ShardProperties(nodes, null, null), 20)));
+  }
+
+  private static Object limit(AdmissionConfig c) { return ((Map<?, ?>) c.stats().get(2)).get("maxConcurrent"); }
+
+  private static boolean call(AdmissionInterceptor guard, String expertId, String userHeader) throws Exception {
+    var req = new MockHttpServletRequest("GET", "/api/experts/x/slots/2025-09-10");
+    req.setRemoteAddr("203.0.113.7");
+    if (userHeader != null) req.addHeader("X-User-Id", userHeader);
+    req.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, expertId == null ? Map.of() : Map.of("id", expertId));
+    var res = new MockHttpServletResponse();
+    boolean admitted = guard.preHandle(req, res, null);
+    if (admitted) guard.afterCompletion(req, res, null, null);
+    else assertEquals(429, res.getStatus());
+    return admitted;
+  }
+}
+```
+
+## Test: auth/PasswordHasherTest.java
+```java
+package com.odx.experts.auth;
+
+import org.junit.jupiter.api.*; import java.util.concurrent.*; import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+  @Test void hashesVerifyAndLegacyRowsAskForUpgrade() throws Exception {
+    var h = new PasswordHasher(1_000, 1, 8);
+    var stored = h.hash("s3cret").get();
+    assertTrue(stored.startsWith("pbkdf2-sha256$1000$"), stored);
+    assertTrue(h.matches("s3cret", stored).get()); assertFalse(h.matches("wrong", stored).get());
+    assertNotEquals(stored, h.hash("s3cret").get());                // fresh salt every time
+    assertFalse(h.needsUpgrade(stored));
+    assertTrue(h.matches("pw", "pw").get()); assertTrue(h.needsUpgrade("pw")); // legacy plaintext row
+    assertTrue(new PasswordHasher(2_000, 1, 8).needsUpgrade(stored)); // iteration count raised since
+    assertFalse(h.matches("pw", null).get());                          // unknown username
+  }
+
+  @Test void fullQueueIsRefusedRatherThanBlockingTheCaller(){
+    var h = new PasswordHasher(5_000_000, 1, 1); // ~seconds per hash: one running, one queued, the third refused
+    h.hash("a"); h.hash("b");
+    assertThrows(RejectedExecutionException.class, () -> h.hash("c"));
+    h.shutdown();
+  }
+}
+```
+
+## Test: auth/TokenServiceTest.java
+```java
+package com.odx.experts.auth;
+
+import org.junit.jupiter.api.*; import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate; import org.springframework.jdbc.core.RowCallbackHandler;
+import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class TokenServiceTest {
+  private static final AuthProperties PROPS = new AuthProperties(true, "test-secret-0123456789abcdef-0123456789", Duration.ofHours(1), null, null, null);
+  private final Clock clock = Clock.fixed(Instant.parse("2025-09-01T08:00:00Z"), ZoneId.of("UTC"));
+  private final TokenService tokens = loaded(new TokenService(PROPS, mock(JdbcTemplate.class), clock));
+  private final User expert = User.builder().id(UUID.randomUUID()).username("e1").role(Role.EXPERT).expertId(UUID.randomUUID()).build();
+
+  @Test void failsClosedUntilRevocationsAreLoaded(){
+    var jdbc = mock(JdbcTemplate.class); var fresh = new TokenService(PROPS, jdbc, clock);
+    verifyNoInteractions(jdbc);                  // constructing reads nothing: starts without a database
+    var token = fresh.issue(expert).token();
+    assertNull(fresh.verify(token));
+    fresh.run(null);                             // before readiness, not on the first scheduler tick
+    assertNotNull(fresh.verify(token));
+  }
+
+  @Test void startsClosedWhenThePrimaryIsDownAndOpensOnTheNextPoll(){
+    var jdbc = mock(JdbcTemplate.class); var fresh = new TokenService(PROPS, jdbc, clock);
+    doThrow(new CannotGetJdbcConnectionException("primary down")).doNothing()
+      .when(jdbc).query(anyString(), any(RowCallbackHandler.class), any(Object.class));
+    var token = fresh.issue(expert).token();
+    fresh.run(null);
+    assertNull(fresh.verify(token));
+    fresh.refresh();
+    assertNotNull(fresh.verify(token));
+  }
+
+  @Test void roundTripsThePrincipal(){
+    var t = tokens.issue(expert);
+    assertEquals(120, t.token().length());
+    var p = tokens.verify(t.token());
+    assertEquals(expert.getId(), p.userId()); assertEquals(Role.EXPERT, p.role()); assertEquals(expert.getExpertId(), p.expertId());
+    assertEquals(Instant.parse("2025-09-01T09:00:00Z"), t.expiresAt());
+    var client = tokens.verify(tokens.issue(User.builder().id(UUID.randomUUID()).role(Role.CLIENT).build()).token());
+    assertNull(client.expertId());
+  }
+
+  @Test void rejectsForgedExpiredAndRevokedTokens(){
+    var token = tokens.issue(expert).token();
+    var forged = (token.charAt(30) == 'A' ? 'B' : 'A') + "";
+    assertNull(tokens.verify(token.substring(0, 30) + forged + token.substring(31)));
+    assertNull(loaded(new TokenService(new AuthProperties(true, "another-secret-0123456789abcdef-012345", null, null, null, null),
+      mock(JdbcTemplate.class), clock)).verify(token));
+    assertNull(tokens.verify("not a token")); assertNull(tokens.verify(null));
+    assertNull(loaded(new TokenService(PROPS, mock(JdbcTemplate.class), Clock.offset(clock, Duration.ofMinutes(61)))).verify(token));
+    tokens.revoke(tokens.verify(token));
+    assertNull(tokens.verify(token));
+    assertThrows(IllegalArgumentException.class, () -> new TokenService(new AuthProperties(true, "short", null, null, null, null), null, clock));
+  }
+
+  // verify benchmark (mvn -Pbench test): per-request cost of authentication on one thread; prints ns/op
+  @Test @Tag("bench") void verifyTiming(){
+    var token = tokens.issue(expert).token();
+    for (int i = 0; i < 50_000; i++) tokens.verify(token); // warm-up
+    int n = 500_000; long t0 = System.nanoTime();
+    for (int i = 0; i < n; i++) assertNotNull(tokens.verify(token));
+    System.out.printf("token verify: %d ns/op%n", (System.nanoTime() - t0) / n);
+  }
+
+  private static TokenService loaded(TokenService t) { t.refresh(); return t; }
+}
+```
+
+## Test: idempotency/IdempotencyStoreTest.java
+```java
+package com.odx.experts.idempotency;
+
+import org.junit.jupiter.api.*; import org.springframework.jdbc.core.JdbcTemplate;
+import java.nio.charset.StandardCharsets; import java.time.*; import java.util.concurrent.*; import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+  private final AtomicInteger writes = new AtomicInteger();
+  private final JdbcTemplate jdbc = new JdbcTemplate() { // every insert claims: no other pod holds the key
+    @Override public int update(String sql, Object... args) { writes.incrementAndGet(); return 1; }
+  };
+  private final IdempotencyStore store = new IdempotencyStore(jdbc,
+    new IdempotencyProperties(true, null, null, null, Duration.ofSeconds(5), 100), Clock.systemUTC());
+  private final byte[] hash = "h1".getBytes(StandardCharsets.UTF_8);
+
+  @Test void duplicateWaitsForTheOriginalAndGetsItsResponse() throws Exception {
+    assertEquals(IdempotencyStore.Kind.OWNED, store.acquire("u:k", hash).kind());
+    var retry = CompletableFuture.supplyAsync(() -> {
+      try { return store.acquire("u:k", hash); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+    });
+    Thread.sleep(100);
+    assertFalse(retry.isDone());                                   // parked on the in-flight original
+    store.complete("u:k", hash, 200, "application/json", "{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+    var out = retry.get(2, TimeUnit.SECONDS);
+    assertEquals(IdempotencyStore.Kind.REPLAY, out.kind()); assertEquals(200, out.stored().status());
+    assertEquals("{\"ok\":true}", new String(out.stored().body(), StandardCharsets.UTF_8));
+  }
+
+  @Test void finishedKeysReplayFromMemoryAndRejectADifferentRequest() throws Exception {
+    store.acquire("u:k", hash); store.complete("u:k", hash, 201, null, new byte[0]);
+    int before = writes.get();
+    assertEquals(IdempotencyStore.Kind.REPLAY, store.acquire("u:k", hash).kind());
+    assertEquals(before, writes.get());                            // no DB round trip
+    assertEquals(IdempotencyStore.Kind.MISMATCH, store.acquire("u:k", "h2".getBytes(StandardCharsets.UTF_8)).kind());
+  }
+
+  @Test void releasedKeyRunsAgain() throws Exception {
+    store.acquire("u:k", hash);
+    var retry = CompletableFuture.supplyAsync(() -> {
+      try { return store.acquire("u:k", hash); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+    });
+    Thread.sleep(100);
+    store.release("u:k");                                          // e.g. the original got a 503
+    assertEquals(IdempotencyStore.Kind.OWNED, retry.get(2, TimeUnit.SECONDS).kind());
+  }
+}
+```
+
+## Test: shard/ConsistentHashRingTest.java
+```java
+package com.odx.experts.shard;
+
+import com.odx.experts.common.UuidV7;
+import org.junit.jupiter.api.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+  @Test void spreadsTimeOrderedIdsEvenly(){
+    var ring = new ConsistentHashRing(List.of("s0", "s1", "s2"), 512);
+    var counts = new HashMap<String, Integer>();
+    for (int i = 0; i < 30_000; i++) counts.merge(ring.owner(UuidV7.next()), 1, Integer::sum);
+    assertEquals(3, counts.size());
+    counts.values().forEach(c -> assertTrue(c > 8_000 && c < 12_000, counts.toString()));
+  }
+
+  @Test void addingAShardOnlyMovesKeysOntoIt(){
+    var before = new ConsistentHashRing(List.of("s0", "s1", "s2"), 512);
+    var after = new ConsistentHashRing(List.of("s0", "s1", "s2", "s3"), 512);
+    int moved = 0, n = 20_000;
+    for (int i = 0; i < n; i++) {
+      var k = UUID.randomUUID();
+      if (!before.owner(k).equals(after.owner(k))) { assertEquals("s3", after.owner(k)); moved++; }
+    }
+    assertTrue(moved > n / 8 && moved < n * 3 / 8, "moved " + moved); // ~1/4
+  }
+
+  @Test void placementIsDeterministic(){
+    var k = UUID.randomUUID();
+    assertEquals(new ConsistentHashRing(List.of("a", "b"), 64).owner(k), new ConsistentHashRing(List.of("a", "b"), 64).owner(k));
+    assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 64));
+  }
+}
+```
+
+## Test: shard/ShardMigratorTest.java
+```java
+package com.odx.experts.shard;
+
+import com.odx.experts.reporting.RollupService;
+import org.junit.jupiter.api.*; import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException; import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.*;
+import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class ShardMigratorTest {
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  private final TransactionTemplate tx = mock(TransactionTemplate.class);
+  private final RollupService rollups = mock(RollupService.class);
+  private final Clock clock = Clock.fixed(Instant.parse("2025-09-10T02:30:00Z"), ZoneId.of("UTC"));
+  private final ShardProperties props = new ShardProperties(
+    List.of(new ShardProperties.Node("a", "jdbc:a", "u", "p", 2), new ShardProperties.Node("b", "jdbc:b", "u", "p", 2)), 64, Duration.ZERO);
+  private final ShardDirectory directory = new ShardDirectory(props, jdbc);
+  private final ShardMigrator migrator = new ShardMigrator(new ShardRouter(directory, jdbc), directory, jdbc, tx, rollups, clock, props);
+  private final UUID expert = UUID.randomUUID();
+  private String owner, source;
+
+  @BeforeEach void setup(){
+    when(tx.execute(any())).thenAnswer(i -> i.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    when(jdbc.queryForObject(contains("json_agg"), eq(String.class), any())).thenReturn("[]");
+    when(jdbc.queryForObject(contains("information_schema"), eq(String.class), any())).thenReturn("id");
+    when(jdbc.queryForObject(contains("least("), eq(LocalDate.class), any(), any())).thenReturn(LocalDate.parse("2025-06-01"));
+    owner = directory.ringOwner(expert); source = owner.equals("a") ? "b" : "a";
+    directory.apply(expert, source, false, null); // pinned away from its ring owner, as pin() leaves it
+  }
+
+  @Test void sourceCopyIsDeletedBeforeThePinIsDropped(){
+    var r = migrator.rebalance(10);
+    assertEquals(List.of(new ShardMigrator.Move(expert, source, owner)), r.moved());
+    InOrder order = inOrder(jdbc, rollups);
+    order.verify(jdbc).update(startsWith("insert into shard_directory"), eq(expert), eq(owner), eq(false), eq(source));
+    order.verify(rollups).rebuildExpert(expert, LocalDate.parse("2025-06-01"), LocalDate.parse("2025-09-10"));
+    order.verify(jdbc).update("delete from sessions where expert_id = ?", expert);
+    order.verify(jdbc).update("delete from rollup_expert where expert_id = ?", expert);
+    order.verify(jdbc).update(startsWith("insert into shard_directory"), eq(expert), isNull(), eq(false), isNull());
+    assertFalse(directory.pins().containsKey(expert));
+  }
+
+  @Test void aFailedCleanupStaysPendingAndTheNextRebalanceFinishesIt(){
+    when(jdbc.update("delete from rollup_expert where expert_id = ?", expert))
+      .thenThrow(new DataAccessResourceFailureException("source down")).thenReturn(4);
+    assertThrows(DataAccessResourceFailureException.class, () -> migrator.rebalance(10));
+    assertEquals(new ShardDirectory.Pin(owner, false, source), directory.pins().get(expert));
+    assertEquals(owner, directory.shardOf(expert)); // already served by the target
+    assertTrue(migrator.plan(10).isEmpty());
+
+    var r = migrator.rebalance(10);
+    assertEquals(1, r.cleanedUp()); assertTrue(r.moved().isEmpty());
+    assertFalse(directory.pins().containsKey(expert));
+    verify(jdbc, times(1)).update(startsWith("insert into experts "), anyString()); // copied once
+    verify(jdbc, times(2)).update("delete from experts where id = ?", expert);
+  }
+}
+```
+
+## Test: billing/SettlementServiceTest.java
+```java
+package com.odx.experts.billing;
+
+import org.junit.jupiter.api.*; import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.*;
+import java.sql.ResultSet; import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class SettlementServiceTest {
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  private final Clock clock = Clock.fixed(Instant.parse("2025-10-05T08:00:00Z"), ZoneId.of("UTC"));
+  private final SettlementService svc = new SettlementService(jdbc, clock);
+  private final UUID a = UUID.randomUUID(), b = UUID.randomUUID(), c = UUID.randomUUID();
+
+  @SafeVarargs private void dues(LocalDate cutoff, Map<String, Object>... rows) {
+    when(jdbc.query(contains("with earned"), ArgumentMatchers.<RowMapper<SettlementService.Dues>>any(), eq(cutoff))).thenAnswer(i -> {
+      var mapper = i.<RowMapper<SettlementService.Dues>>getArgument(1); var out = new ArrayList<SettlementService.Dues>();
+      for (var r : rows) out.add(mapper.mapRow(row(r), out.size()));
+      return out;
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test void settlesEachPositiveDueOfTheMonth(){
+    dues(LocalDate.parse("2025-09-30"),
+      Map.of("id", a, "name", "Asha", "earned", 500, "paid", 200),
+      Map.of("id", b, "name", "Bo", "earned", 300, "paid", 300),
+      Map.of("id", c, "name", "Chen", "earned", 100, "paid", 150)); // overpaid: nothing due, never negative
+    when(jdbc.update(startsWith("insert into settlements"), any(), any())).thenReturn(1);
+
+    var r = svc.settle("2025-09");
+    assertFalse(r.alreadySettled());
+    assertEquals(List.of(new SettlementService.Line(a, "Asha", 300)), r.payouts());
+    assertEquals(1, r.expertCount()); assertEquals(300, r.total());
+    verify(jdbc).batchUpdate(startsWith("insert into payouts"), eq(r.payouts()), eq(500), any(ParameterizedPreparedStatementSetter.class));
+    verify(jdbc).update(startsWith("update settlements"), eq(1), eq(300), eq("2025-09"));
+  }
+
+  @Test void cutoffIsTheLastDayOfThePeriod(){
+    dues(LocalDate.parse("2025-08-31"), Map.of("id", a, "name", "Asha", "earned", 700, "paid", 0));
+    when(jdbc.update(startsWith("insert into settlements"), any(), any())).thenReturn(1);
+    assertEquals(700, svc.settle("2025-08").total());
+    assertThrows(IllegalArgumentException.class, () -> svc.settle("2025-10")); // not ended yet
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test void resettlingReturnsTheStoredReportWithoutPaying(){
+    var at = Instant.parse("2025-10-01T00:05:00Z");
+    when(jdbc.update(startsWith("insert into settlements"), any(), any())).thenReturn(0); // period already claimed
+    when(jdbc.query(contains("from settlements"), ArgumentMatchers.<RowMapper<Object[]>>any(), eq("2025-09")))
+      .thenReturn(List.<Object[]>of(new Object[]{at, 1, 300}));
+    when(jdbc.query(contains("settlement_period = ?"), ArgumentMatchers.<RowMapper<SettlementService.Line>>any(), eq("2025-09")))
+      .thenReturn(List.of(new SettlementService.Line(a, "Asha", 300)));
+
+    var r = svc.settle("2025-09");
+    assertTrue(r.alreadySettled());
+    assertEquals(at, r.createdAt()); assertEquals(300, r.total()); assertEquals(1, r.payouts().size());
+    verify(jdbc, never()).query(contains("with earned"), ArgumentMatchers.<RowMapper<Object>>any(), ArgumentMatchers.<Object>any());
+    verify(jdbc, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test void shardReportsMergeIntoOnePeriodTotal(){
+    var t = Instant.parse("2025-10-01T00:05:00Z");
+    var s1 = new SettlementService.Report("2025-09", true, t, 1, 300, List.of(new SettlementService.Line(b, "Bo", 300)));
+    var s2 = new SettlementService.Report("2025-09", false, t.minusSeconds(5), 2, 450,
+      List.of(new SettlementService.Line(a, "Asha", 200), new SettlementService.Line(c, "Chen", 250)));
+    var m = SettlementService.merge("2025-09", List.of(s1, s2));
+    assertEquals(3, m.expertCount()); assertEquals(750, m.total());
+    assertEquals(List.of("Asha", "Bo", "Chen"), m.payouts().stream().map(SettlementService.Line::name).toList());
+    assertFalse(m.alreadySettled()); assertEquals(t.minusSeconds(5), m.createdAt());
+    assertThrows(IllegalArgumentException.class, () -> SettlementService.merge("2025-09", List.of()));
+  }
+
+  private static ResultSet row(Map<String, Object> values) { return mock(ResultSet.class, i -> values.get(i.<String>getArgument(0))); }
+}
+```
+
+## Test: billing/ClientStatementServiceTest.java
+```java
+package com.odx.experts.billing;
+
+import com.odx.experts.shard.ShardRouter;
+import org.junit.jupiter.api.*; import org.mockito.ArgumentCaptor; import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.*;
+import java.sql.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class ClientStatementServiceTest {
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  private final ClientStatementService svc = new ClientStatementService(jdbc, ShardRouter.unsharded());
+  private final UUID ann = UUID.randomUUID(), bob = UUID.randomUUID(), cat = UUID.randomUUID();
+
+  @BeforeEach void setup(){
+    answer(when(jdbc.query(contains("from users"), ArgumentMatchers.<RowMapper<Object>>any(), any(), any(), any())), 1, List.of(
+      Map.of("id", ann, "username", "ann", "name", "Ann"), Map.of("id", bob, "username", "bob", "name", "Bob"),
+      Map.of("id", cat, "username", "cat", "name", "Cat")));
+    // live: one row per source table and user (union all); balance: one trigger-maintained row per user
+    answer(when(jdbc.query(contains("from purchases"), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<Object>>any())), 2, List.of(
+      part(ann, 1000, 0, 2.5), part(bob, 600, 0, 1.0), part(ann, 0, 400, 0), part(bob, 0, 600, 0)));
+    answer(when(jdbc.query(contains("from client_balance"), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<Object>>any())), 2, List.of(
+      part(ann, 1000, 400, 2.5000000001), part(bob, 600, 600, 1.0))); // trigger deltas leave float noise
+  }
+
+  @Test void liveAndBalanceFiguresAgree(){
+    var balance = svc.page(false, null, 50);
+    assertEquals(svc.page(true, null, 50), balance);
+    assertEquals(List.of("ann", "bob", "cat"), balance.stream().map(ClientStatementService.Row::username).toList());
+    var a = balance.get(0);
+    assertEquals(1000, a.billed()); assertEquals(400, a.paid()); assertEquals(600, a.outstanding()); assertEquals(2.5, a.hoursRemaining());
+    assertEquals(0, balance.get(1).outstanding());
+    assertEquals(new ClientStatementService.Row(cat, "cat", "Cat", 0, 0, 0, 0.0), balance.get(2)); // nothing bought yet
+  }
+
+  @Test void liveQueryBindsThePageToBothTables() throws Exception {
+    svc.page(true, "a", 50);
+    var setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+    verify(jdbc).query(contains("from purchases"), setter.capture(), ArgumentMatchers.<RowMapper<Object>>any());
+    var ps = mock(PreparedStatement.class, RETURNS_DEEP_STUBS); var arr = mock(java.sql.Array.class);
+    when(ps.getConnection().createArrayOf(eq("uuid"), any())).thenReturn(arr);
+    when(ps.getParameterMetaData().getParameterCount()).thenReturn(2);
+    setter.getValue().setValues(ps);
+    verify(ps).setArray(1, arr); verify(ps).setArray(2, arr);
+  }
+
+  @Test void emptyPageReadsNoFigures(){
+    doReturn(List.of()).when(jdbc).query(contains("from users"), ArgumentMatchers.<RowMapper<Object>>any(), any(), any(), any());
+    assertEquals(List.of(), svc.page(false, "zzz", 50));
+    verify(jdbc, never()).query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<Object>>any());
+  }
+
+  // runs the service's own row mapper over the given rows, so private row records stay private
+  private static void answer(org.mockito.stubbing.OngoingStubbing<List<Object>> call, int mapperArg, List<Map<String, Object>> rows) {
+    call.thenAnswer(i -> {
+      var mapper = i.<RowMapper<Object>>getArgument(mapperArg); var out = new ArrayList<>();
+      for (var r : rows) out.add(mapper.mapRow(mock(ResultSet.class, a -> r.get(a.<String>getArgument(0))), out.size()));
+      return out;
+    });
+  }
+
+  private static Map<String, Object> part(UUID id, long billed, long paid, double hours) {
+    return Map.of("id", id, "billed", billed, "paid", paid, "hours", hours);
+  }
+}
+```
+
+## Test: reporting/RollupServiceTest.java
+```java
+package com.odx.experts.reporting;
+
+import com.odx.experts.shard.ShardRouter;
+import org.junit.jupiter.api.*; import org.mockito.ArgumentCaptor; import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate; import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.*; import org.springframework.transaction.support.*;
+import java.sql.ResultSet; import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class RollupServiceTest {
+  private final NamedParameterJdbcTemplate jdbc = mock(NamedParameterJdbcTemplate.class);
+  private final JdbcTemplate raw = mock(JdbcTemplate.class);
+  private final TransactionTemplate tx = mock(TransactionTemplate.class);
+  private final Clock clock = Clock.fixed(Instant.parse("2025-09-10T02:30:00Z"), ZoneId.of("UTC"));
+  private final RollupService svc = new RollupService(jdbc, ShardRouter.unsharded(), tx, clock, 7, 400);
+  private final UUID expert = UUID.randomUUID();
+
+  @BeforeEach void setup(){
+    when(jdbc.getJdbcTemplate()).thenReturn(raw);
+    when(tx.execute(any())).thenAnswer(i -> i.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    when(raw.queryForObject(startsWith("select pg_try_advisory_xact_lock"), eq(Boolean.class), any())).thenReturn(true);
+    when(raw.queryForList(startsWith("select id from experts"), eq(UUID.class), any(), any(), any())).thenReturn(List.of(expert));
+    when(jdbc.queryForObject(contains("with days"), any(SqlParameterSource.class), ArgumentMatchers.<RowMapper<int[]>>any())).thenReturn(new int[]{3, 2});
+  }
+
+  private List<SqlParameterSource> batches(int n) {
+    var params = ArgumentCaptor.forClass(SqlParameterSource.class);
+    verify(jdbc, times(n)).queryForObject(contains("with days"), params.capture(), ArgumentMatchers.<RowMapper<int[]>>any());
+    return params.getAllValues();
+  }
+
+  @Test void partialSumsAddUpBeforeRatesAreTaken() throws Exception {
+    var d = LocalDate.parse("2025-09-08");
+    // one (bucket, key) in two partial rows, as two shards return it: rates come from the sums, not an average
+    var rows = List.of(row(d, "TAX", 1000, 4, 1, 120, 30, 480), row(d, "TAX", 500, 2, 1, 60, 30, 240));
+    when(jdbc.query(anyString(), any(SqlParameterSource.class), ArgumentMatchers.<RowMapper<Object>>any())).thenAnswer(i -> {
+      var mapper = i.<RowMapper<Object>>getArgument(2); var out = new ArrayList<>();
+      for (var rs : rows) out.add(mapper.mapRow(rs, out.size()));
+      return out;
+    });
+    var b = svc.query(RollupService.Grain.WEEK, true, d, d.plusDays(6), null, null);
+    assertEquals(1, b.size());
+    var t = b.get(0);
+    assertEquals(1500, t.revenue()); assertEquals(6, t.bookedSessions()); assertEquals(2, t.cancelledSessions());
+    assertEquals(3.0, t.bookedHours(), 1e-9); assertEquals(1.0, t.cancelledHours(), 1e-9); assertEquals(12.0, t.availableHours(), 1e-9);
+    assertEquals(2 / 6.0, t.cancellationRate(), 1e-9);
+    assertEquals((180 - 60) / 720.0, t.utilization(), 1e-9);
+    assertThrows(IllegalArgumentException.class, () -> svc.query(RollupService.Grain.DAY, false, d, d.plusDays(400), null, null));
+  }
+
+  @Test void rebuildWidensToWholeWeeksAndMonthsWithoutLockingRawTables(){
+    var r = svc.rebuild(LocalDate.parse("2025-08-10"), LocalDate.parse("2025-08-10"));
+    assertEquals(LocalDate.parse("2025-07-28"), r.from()); // Monday of the week holding August 1
+    assertEquals(LocalDate.parse("2025-08-31"), r.to());   // Sunday of the week holding August 31
+    assertEquals(3, r.dayRowsCorrected()); assertEquals(2, r.periodRowsWritten());
+    var p = batches(1).get(0);
+    assertEquals(r.from(), p.getValue("from")); assertEquals(r.to(), p.getValue("to")); assertEquals(List.of(expert), p.getValue("ids"));
+    verify(raw, never()).execute(anyString()); // no lock table, no lock_timeout: writers never wait for a reconcile
+  }
+
+  @Test void onlyClosedDaysAreRecomputed(){
+    var r = svc.rebuild(LocalDate.parse("2025-09-01"), LocalDate.parse("2025-09-10"));
+    assertEquals(LocalDate.parse("2025-09-08"), r.to()); // today is the 10th: the 9th and 10th are still open
+    assertEquals(LocalDate.parse("2025-09-08"), batches(1).get(0).getValue("to"));
+  }
+
+  @Test void expertsGoInBatchesEachInItsOwnTransaction(){
+    var first = new ArrayList<UUID>(); for (int i = 0; i < 200; i++) first.add(UUID.randomUUID());
+    first.sort(Comparator.naturalOrder());
+    when(raw.queryForList(startsWith("select id from experts"), eq(UUID.class), any(), any(), any())).thenReturn(first, List.of(expert));
+    var r = svc.rebuild(LocalDate.parse("2025-08-10"), LocalDate.parse("2025-08-10"));
+    assertEquals(6, r.dayRowsCorrected());
+    var p = batches(2);
+    assertEquals(first, p.get(0).getValue("ids")); assertEquals(List.of(expert), p.get(1).getValue("ids"));
+    verify(raw).queryForList(startsWith("select id from experts"), eq(UUID.class), eq(first.get(199)), eq(first.get(199)), eq(200)); // keyset
+    verify(tx, times(2)).execute(any());
+  }
+
+  @Test void nightlyReconcilesRecentDaysAndPrunesOldDayRows(){
+    when(jdbc.update(startsWith("delete from rollup_expert"), any(SqlParameterSource.class))).thenReturn(12);
+    svc.nightly();
+    var p = ArgumentCaptor.forClass(SqlParameterSource.class);
+    verify(jdbc).update(startsWith("delete from rollup_expert where grain = 'D'"), p.capture());
+    assertEquals(LocalDate.parse("2025-09-10").minusDays(400), p.getValue().getValue("cutoff"));
+    assertEquals(12, svc.lastRun().dayRowsPruned());
+    assertEquals(LocalDate.parse("2025-09-01"), svc.lastRun().from()); // 7 days back, widened to the month
+    assertEquals(LocalDate.parse("2025-09-08"), svc.lastRun().to());
+  }
+
+  @Test void aRunAlreadyInProgressIsLeftAlone(){
+    when(raw.queryForObject(startsWith("select pg_try_advisory_xact_lock"), eq(Boolean.class), any())).thenReturn(false);
+    svc.nightly();
+    assertNull(svc.lastRun());
+    verify(jdbc, never()).update(anyString(), any(SqlParameterSource.class));
+    verify(jdbc, never()).queryForObject(contains("with days"), any(SqlParameterSource.class), ArgumentMatchers.<RowMapper<int[]>>any());
+    assertThrows(IllegalArgumentException.class, () -> svc.rebuild(LocalDate.parse("2025-08-01"), LocalDate.parse("2025-08-02")));
+    assertFalse(svc.rebuildExpert(expert, LocalDate.parse("2025-08-01"), LocalDate.parse("2025-08-02")));
+  }
+
+  private static ResultSet row(LocalDate bucket, String key, long revenue, int booked, int cancelled,
+                               long bookedMin, long cancelledMin, long availableMin) throws Exception {
+    var rs = mock(ResultSet.class);
+    when(rs.getObject("bucket", LocalDate.class)).thenReturn(bucket); when(rs.getString("key")).thenReturn(key);
+    when(rs.getLong("revenue")).thenReturn(revenue);
+    when(rs.getInt("booked_count")).thenReturn(booked); when(rs.getInt("cancelled_count")).thenReturn(cancelled);
+    when(rs.getLong("booked_min")).thenReturn(bookedMin); when(rs.getLong("cancelled_min")).thenReturn(cancelledMin);
+    when(rs.getLong("available_min")).thenReturn(availableMin);
+    return rs;
+  }
+}
+```
+
+## Test: schedule/ScheduleServiceTest.java
+```java
+package com.odx.experts.schedule;
+
+import com.odx.experts.shard.ShardRouter;
+import org.junit.jupiter.api.*; import org.mockito.ArgumentCaptor; import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.RowMapper; import org.springframework.jdbc.core.namedparam.*;
+import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class ScheduleServiceTest {
+  private final LocalDate d = LocalDate.parse("2025-09-10");
+
+  @Test void mergesShardPagesInPostgresOrder(){
+    var low = entry(d, 600, new UUID(1, 0)); var high = entry(d, 600, new UUID(0x8000_0000_0000_0000L, 0)); // negative as a signed long
+    assertTrue(ScheduleService.ORDER.compare(low, high) < 0);
+    assertTrue(ScheduleService.ORDER.compare(entry(d, 570, high.id()), low) < 0);
+    assertTrue(ScheduleService.ORDER.compare(entry(d.minusDays(1), 900, high.id()), low) < 0);
+  }
+
+  @Test void nextPageStartsStrictlyAfterTheCursor(){
+    var jdbc = mock(NamedParameterJdbcTemplate.class);
+    var sql = ArgumentCaptor.forClass(String.class); var params = ArgumentCaptor.forClass(SqlParameterSource.class);
+    when(jdbc.query(sql.capture(), params.capture(), ArgumentMatchers.<RowMapper<ScheduleService.Entry>>any())).thenReturn(List.of());
+    var svc = new ScheduleService(jdbc, ShardRouter.unsharded());
+    var last = entry(d, 600, UUID.randomUUID());
+
+    svc.forUser(UUID.randomUUID(), ScheduleService.State.CANCELLED, d, last.cursor(), 20); // history: newest first
+    assertTrue(sql.getValue().contains("(date, start_min, id) < (:afterDate, :afterMin, :afterId)"), sql.getValue());
+    assertTrue(sql.getValue().endsWith("order by date desc, start_min desc, id desc limit :limit"));
+    assertEquals(last.id(), params.getValue().getValue("afterId")); assertEquals(600, params.getValue().getValue("afterMin"));
+
+    svc.forUser(UUID.randomUUID(), ScheduleService.State.UPCOMING, d, null, 20);
+    assertTrue(sql.getValue().contains("date >= :from") && !sql.getValue().contains(":afterId"));
+    assertThrows(IllegalArgumentException.class, () -> svc.forUser(UUID.randomUUID(), ScheduleService.State.UPCOMING, d, "garbage", 20));
+  }
+
+  private static ScheduleService.Entry entry(LocalDate date, int start, UUID id) {
+    return new ScheduleService.Entry(id, "UPCOMING", null, null, null, null, null, date, start, start + 30, null, null, null);
+  }
+}
+```
+
+## Test: waitlist/WaitlistIndexTest.java
+```java
+package com.odx.experts.waitlist;
+
+import com.odx.experts.shard.ShardRouter;
+import org.junit.jupiter.api.*; import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistIndexTest {
+  private final WaitlistIndex index = new WaitlistIndex(null, ShardRouter.unsharded(), Clock.systemUTC());
+  private final UUID expert = UUID.randomUUID(); private final LocalDate d = LocalDate.parse("2025-09-10");
+  private final Instant t0 = Instant.parse("2025-09-01T08:00:00Z");
+
+  @Test void firstComeFirstServedWithinTheRangePriorityFirst(){
+    var early = waiter(600, 720, 0, t0); var late = waiter(null, null, 0, t0.plusSeconds(60)); var vip = waiter(660, 690, 5, t0.plusSeconds(120));
+    List.of(late, vip, early).forEach(index::add);
+    assertEquals(early.id(), index.best(expert, d, 600).id());
+    assertEquals(late.id(), index.best(expert, d, 540).id());  // outside early's range
+    assertEquals(vip.id(), index.best(expert, d, 660).id());
+    assertEquals(early.id(), index.best(expert, d, 690).id()); // a 30-min slot at 690 ends after vip's 11:30
+    assertNull(index.best(expert, d.plusDays(1), 600));
+  }
+
+  @Test void removedEntriesAreSkippedEverywhere(){
+    var a = waiter(null, null, 0, t0); var b = waiter(540, 720, 0, t0.plusSeconds(1));
+    index.add(a); index.add(b);
+    index.remove(a.id());
+    assertEquals(b.id(), index.best(expert, d, 600).id());
+    assertNull(index.best(expert, d, 300));
+    assertFalse(index.waiting(a.id())); assertTrue(index.waiting(b.id()));
+  }
+
+  @Test void aDayGoesWithItsLastWaiter(){
+    var a = waiter(null, null, 0, t0); var b = waiter(600, 660, 0, t0.plusSeconds(1));
+    index.add(a); index.add(b);
+    index.remove(a.id()); index.remove(a.id()); // a repeated remove does not count twice
+    assertEquals(1, index.daysIndexed());
+    index.remove(b.id());
+    assertEquals(0, index.daysIndexed());
+    assertNull(index.best(expert, d, 600));
+    index.add(a); // a day can fill up again
+    assertEquals(a.id(), index.best(expert, d, 600).id());
+  }
+
+  @Test void crowdedDayMatchesAScanOfAllWaiters(){
+    var rnd = new Random(7); var all = new ArrayList<WaitlistIndex.Waiter>();
+    for (int i = 0; i < 2_000; i++) {
+      int from = 480 + 30 * rnd.nextInt(16);
+      var w = waiter(from, from + 30 * (1 + rnd.nextInt(8)), rnd.nextInt(3), t0.plusMillis(rnd.nextInt(1_000)));
+      all.add(w); index.add(w);
+    }
+    for (int slot = 450; slot <= 960; slot += 30) {
+      int s = slot;
+      var expected = all.stream().filter(w -> w.firstStart() <= s && s <= w.lastStart()).min(WaitlistIndex.ORDER).orElse(null);
+      assertEquals(expected, index.best(expert, d, slot), "slot " + slot);
+    }
+  }
+
+  // matching benchmark (mvn -Pbench test): best-candidate lookups against one crowded day; prints ns/op
+  @Test @Tag("bench") void matchingTiming(){
+    var rnd = new Random(7);
+    for (int i = 0; i < 100_000; i++) { int from = 480 + 30 * rnd.nextInt(16); index.add(waiter(from, from + 30 * (1 + rnd.nextInt(8)), rnd.nextInt(3), t0.plusMillis(i))); }
+    int n = 200_000; long t = System.nanoTime();
+    for (int i = 0; i < n; i++) assertNotNull(index.best(expert, d, 480 + 30 * (i % 16)));
+    System.out.printf("waitlist best(): %d ns/op over %d waiters%n", (System.nanoTime() - t) / n, index.size());
+  }
+
+  private WaitlistIndex.Waiter waiter(Integer from, Integer to, int priority, Instant at) {
+    return WaitlistIndex.waiter(WaitlistEntry.builder().id(UUID.randomUUID()).userId(UUID.randomUUID()).expertId(expert)
+      .purchaseId(UUID.randomUUID()).date(d).fromMin(from).toMin(to).priority(priority).state(WaitlistState.WAITING).createdAt(at).build());
+  }
+}
+```
+
+## Test: meeting/MeetingLinkWorkerTest.java
+```java
+package com.odx.experts.meeting;
+
+import com.odx.experts.observability.BackgroundFailures; import com.odx.experts.shard.ShardRouter;
+import org.junit.jupiter.api.*; import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate; import org.springframework.jdbc.core.RowMapper;
+import java.time.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class MeetingLinkWorkerTest {
+  private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+  private final MeetingProperties props = new MeetingProperties(2, null, Duration.ofSeconds(5), Duration.ofMinutes(10));
+  private final MeetingProvider.Meeting ok = meeting(), bad = meeting();
+
+  @BeforeEach void setup(){
+    when(jdbc.query(anyString(), ArgumentMatchers.<RowMapper<MeetingLinkWorker.Due>>any(), any(), any(), any()))
+      .thenReturn(List.of(new MeetingLinkWorker.Due(ok, 0), new MeetingLinkWorker.Due(bad, 3)));
+  }
 
-create table availability_window (
-  id uuid primary key default gen_random_uuid(),
-  expert_id uuid not null,
-  date date not null,
-  start_min integer not null,
-  end_min integer not null
-);
+  @Test void writesReturnedLinksAndRetriesTheRest(){
+    var worker = new MeetingLinkWorker(jdbc, ShardRouter.unsharded(), ms -> Map.of(ok.sessionId(), "https://meet.example.com/abc"), Clock.systemUTC(), props);
+    assertEquals(2, worker.provisionBatch());
+    verify(jdbc).batchUpdate(startsWith("update sessions set link = ?"), argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[1].equals(ok.sessionId())));
+    verify(jdbc).batchUpdate(startsWith("update sessions set link_attempts"), argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[1].equals(bad.sessionId())));
+  }
 
-create table purchases (
-  id uuid primary key default gen_random_uuid(),
-  user_id uuid not null,
-  expert_id uuid not null,
-  package_hours integer not null,
-  hours_remaining double precision not null,
-  amount integer not null,
-  created_at timestamptz not null
-);
+  @Test void providerOutageBacksOffTheWholeBatch(){
+    var worker = new MeetingLinkWorker(jdbc, ShardRouter.unsharded(), ms -> { throw new IllegalStateException("down"); }, Clock.systemUTC(), props);
+    long failures = BackgroundFailures.counts().getOrDefault("meetings.provision", 0L);
+    worker.provisionBatch();
+    assertEquals(failures + 1, BackgroundFailures.counts().get("meetings.provision"));
+    verify(jdbc, never()).batchUpdate(startsWith("update sessions set link = ?"), ArgumentMatchers.<List<Object[]>>any());
+    verify(jdbc).batchUpdate(startsWith("update sessions set link_attempts"), argThat((List<Object[]> rows) -> rows.size() == 2));
+    for (int i = 0; i < 100; i++) {
+      var first = worker.backoff(0).toMillis(); var late = worker.backoff(20).toMillis();
+      assertTrue(first >= 2_500 && first <= 5_000, "first retry " + first);
+      assertTrue(late >= 300_000 && late <= 600_000, "capped retry " + late);
+    }
+  }
 
-create table sessions (
-  id uuid primary key default gen_random_uuid(),
-  user_id uuid not null,
-  expert_id uuid not null,
-  purchase_id uuid not null,
-  date date not null,
-  start_min integer not null,
-  end_min integer not null,
-  link text,
-  status session_status not null,
-  cancel_reason text,
-  cancelled_by uuid,
-  cancelled_at timestamptz,
-  created_at timestamptz
-);
+  private static MeetingProvider.Meeting meeting() {
+    return new MeetingProvider.Meeting(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), LocalDate.parse("2025-09-10"), 600, 630);
+  }
+}
+```
 
-create table feedback (
-  id uuid primary key default gen_random_uuid(),
-  user_id uuid not null,
-  expert_id uuid not null,
-  purchase_id uuid not null,
-  rating integer not null,
-  text text,
-  created_at timestamptz
-);
+## Test: reminder/TimingWheelTest.java
+```java
+package com.odx.experts.reminder;
+
+import org.junit.jupiter.api.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+  private static final long T0 = 1_757_491_200_000L; // 2025-09-10T08:00:00Z
+
+  @Test void firesEachItemOnItsTickAcrossLevelsAndOverflow(){
+    var wheel = new TimingWheel<Long>(1000, 8, 3, T0 + 250); // levels of 1s, 8s, 64s; beyond 512s overflows
+    long[] offsets = {1_000, 7_999, 8_000, 63_500, 64_000, 511_000, 512_000, 3_600_000, 1_500};
+    for (long o : offsets) assertTrue(wheel.add(T0 + o, o));
+    assertFalse(wheel.add(T0 + 999, 999L)); // due before the next tick: the caller sends it now
+    assertEquals(offsets.length, wheel.size());
+
+    var fired = new ArrayList<long[]>(); // {offset, wheel time when fired}
+    for (long t = T0; t <= T0 + 3_700_000; t += 700) wheel.advance(t, o -> fired.add(new long[]{o, wheel.now() - T0}));
+    assertEquals(offsets.length, fired.size()); assertEquals(0, wheel.size());
+    long last = 0;
+    for (var f : fired) {
+      assertEquals(f[0] - f[0] % 1000, f[1], "offset " + f[0] + " fired at " + f[1]); // on its own tick, never early or late
+      assertTrue(f[1] >= last); last = f[1];
+    }
+  }
 
-create table payouts (
-  id uuid primary key default gen_random_uuid(),
-  expert_id uuid not null,
-  amount integer not null,
-  created_at timestamptz,
-  note text
-);
+  @Test void advancingOverALongPauseCatchesUp(){
+    var wheel = new TimingWheel<Integer>(1000, 64, 4, T0);
+    var rnd = new Random(7); var due = new HashMap<Integer, Long>();
+    for (int i = 0; i < 10_000; i++) { long at = T0 + 1000 + rnd.nextInt(48 * 3_600_000); due.put(i, at); wheel.add(at, i); }
+    var fired = new ArrayList<Integer>();
+    wheel.advance(T0 + 24 * 3_600_000L, fired::add);
+    assertEquals(due.values().stream().filter(at -> at < T0 + 24 * 3_600_000L + 1000).count(), fired.size());
+    fired.forEach(i -> assertTrue(due.get(i) < wheel.now() + 1000));
+  }
 
-create table client_payments (
-  id uuid primary key default gen_random_uuid(),
-  user_id uuid not null,
-  amount integer not null,
-  created_at timestamptz,
-  note text
-);
+  // add/advance benchmark (mvn -Pbench test): a day of reminders for 1M sessions, one tick at a time; prints ns per timer
+  @Test @Tag("bench") void addAndFireTiming(){
+    var wheel = new TimingWheel<Integer>(1000, 64, 4, T0);
+    var rnd = new Random(1); int n = 1_000_000; int[] fired = {0};
+    long t0 = System.nanoTime();
+    for (int i = 0; i < n; i++) wheel.add(T0 + 1000 + rnd.nextInt(86_400_000), i);
+    for (long t = T0; t <= T0 + 86_401_000L; t += 1000) wheel.advance(t, i -> fired[0]++);
+    System.out.printf("timing wheel: %d ns per timer (add + cascade + fire)%n", (System.nanoTime() - t0) / n);
+    assertEquals(n, fired[0]);
+  }
+}
 ```
 
----
+## Test: expert/SlotFlightsTest.java
+```java
+package com.odx.experts.expert;
+
+import org.junit.jupiter.api.*; import java.time.*; import java.util.*; import java.util.concurrent.*; import java.util.concurrent.atomic.*;
+import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class SlotFlightsTest {
+  private static final int BURST = 300;
+  private final Expert ex = Expert.builder().id(UUID.randomUUID()).build();
+  private final LocalDate d = LocalDate.parse("2025-09-10");
+  private SlotService slow; private AtomicInteger computations;
+
+  @BeforeEach void setup(){
+    slow = mock(SlotService.class); computations = new AtomicInteger();
+    when(slow.slotsForDate(any(), any())).thenAnswer(inv -> { computations.incrementAndGet(); Thread.sleep(20); return List.of(new int[]{540,570}); });
+  }
+
+  @Test void burstSharesOneComputation() throws Exception {
+    var flights = new SlotFlights(slow);
+    burst(() -> flights.slotsForDate(ex, d, "1.7"));
+    assertTrue(computations.get() < 10, "expected a handful of flights, got " + computations.get());
+    assertEquals(0, flights.inFlightCount());
+  }
+
+  // burst benchmark (mvn -Pbench test): same 300 concurrent requests with and without coalescing; prints wall time
+  @Test @Tag("bench") void burstTiming() throws Exception {
+    long plain = burst(() -> slow.slotsForDate(ex, d));
+    int plainComputations = computations.getAndSet(0);
+    var flights = new SlotFlights(slow);
+    long coalesced = burst(() -> flights.slotsForDate(ex, d, "1.7"));
+    System.out.printf("burst of %d: uncoalesced %d computations in %d ms, coalesced %d computations in %d ms%n",
+      BURST, plainComputations, plain, computations.get(), coalesced);
+  }
+
+  @Test void newVersionDoesNotJoinOldFlight() throws Exception {
+    var flights = new SlotFlights(slow);
+    try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+      var before = pool.submit(() -> flights.slotsForDate(ex, d, "1.7"));
+      Thread.sleep(5); // in flight; a booking commits and bumps the version to 1.8
+      var after = pool.submit(() -> flights.slotsForDate(ex, d, "1.8"));
+      before.get(); after.get();
+    }
+    assertEquals(2, computations.get());
+  }
+
+  private static long burst(Runnable call) throws Exception {
+    var start = new CountDownLatch(1); long t0;
+    try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+      var futures = new ArrayList<Future<?>>();
+      for (int i = 0; i < BURST; i++) futures.add(pool.submit(() -> { start.await(); call.run(); return null; }));
+      t0 = System.nanoTime(); start.countDown();
+      for (var f : futures) f.get();
+    }
+    return (System.nanoTime() - t0) / 1_000_000;
+  }
+}
+```
 
 ## Test: session/BookingServiceTest.java
 ```java
@@ -1055,7 +7246,7 @@ class BookingServiceTest {
   @BeforeEach void setup(){
     purchases = mock(PurchaseRepository.class); experts = mock(ExpertRepository.class); sessions = mock(SessionRepository.class); slots = mock(SlotService.class);
     clock = Clock.fixed(Instant.parse("2025-09-06T08:00:00Z"), ZoneId.of("UTC"));
-    svc = new BookingService(purchases, experts, sessions, slots, clock);
+    svc = new BookingService(purchases, experts, sessions, slots, clock, mock(org.springframework.context.ApplicationEventPublisher.class));
   }
 
   @Test void booksValidSlotsAndDeductsHours(){
@@ -1099,14 +7290,14 @@ class SessionCancellationTest {
   @BeforeEach void setup(){
     purchases = mock(PurchaseRepository.class); experts = mock(ExpertRepository.class); sessions = mock(SessionRepository.class); slotService = mock(com.odx.experts.expert.SlotService.class);
     clock = Clock.fixed(Instant.parse("2025-09-01T08:00:00Z"), ZoneId.of("UTC"));
-    svc = new BookingService(purchases, experts, sessions, slotService, clock);
+    svc = new BookingService(purchases, experts, sessions, slotService, clock, mock(org.springframework.context.ApplicationEventPublisher.class));
   }
 
   @Test void cancelsAndRefundsWhenBefore24h(){
     var pId = UUID.randomUUID(); var sId = UUID.randomUUID(); var userId = UUID.randomUUID(); var exId = UUID.randomUUID();
     var p = Purchase.builder().id(pId).userId(userId).expertId(exId).packageHours(4).hoursRemaining(3).amount(0).createdAt(Instant.now()).build();
     var s = Session.builder().id(sId).userId(userId).expertId(exId).purchaseId(pId).date(LocalDate.parse("2025-09-03")).startMin(600).endMin(630).status(SessionStatus.UPCOMING).build();
-    when(sessions.findById(sId)).thenReturn(Optional.of(s)); when(purchases.findById(pId)).thenReturn(Optional.of(p));
+    when(sessions.findLockedById(sId)).thenReturn(Optional.of(s)); when(purchases.findById(pId)).thenReturn(Optional.of(p));
 
     svc.cancel(sId, userId, "reason");
     verify(purchases).save(argThat(pp -> Math.abs(pp.getHoursRemaining() - 3.5) < 1e-6));
@@ -1116,9 +7307,68 @@ class SessionCancellationTest {
     var pId = UUID.randomUUID(); var sId = UUID.randomUUID(); var userId = UUID.randomUUID(); var exId = UUID.randomUUID();
     var p = Purchase.builder().id(pId).userId(userId).expertId(exId).packageHours(1).hoursRemaining(0).amount(0).createdAt(Instant.now()).build();
     var s = Session.builder().id(sId).userId(userId).expertId(exId).purchaseId(pId).date(LocalDate.parse("2025-09-01")).startMin(600).endMin(630).status(SessionStatus.UPCOMING).build();
-    when(sessions.findById(sId)).thenReturn(Optional.of(s)); when(purchases.findById(pId)).thenReturn(Optional.of(p));
+    when(sessions.findLockedById(sId)).thenReturn(Optional.of(s)); when(purchases.findById(pId)).thenReturn(Optional.of(p));
     assertThrows(IllegalArgumentException.class, () -> svc.cancel(sId, userId, "late"));
   }
+
+  // single and bulk cancel of the same session, in both orders: whichever runs second refunds nothing
+  @Test void singleAndBulkCancelRefundOnce(){
+    for (boolean bulkFirst : new boolean[]{true, false}) {
+      setup();
+      var exId = UUID.randomUUID(); var pId = UUID.randomUUID(); var userId = UUID.randomUUID(); var d = LocalDate.parse("2025-09-05");
+      var p = Purchase.builder().id(pId).userId(userId).expertId(exId).packageHours(4).hoursRemaining(3).amount(0).createdAt(Instant.now()).build();
+      var s = Session.builder().id(UUID.randomUUID()).userId(userId).expertId(exId).purchaseId(pId).date(d).startMin(600).endMin(630).status(SessionStatus.UPCOMING).build();
+      // the repository as the locks make it look: each path reads the row as the other one left it
+      when(sessions.findLockedById(s.getId())).thenReturn(Optional.of(s)); when(purchases.findById(pId)).thenReturn(Optional.of(p));
+      when(sessions.findByExpertIdAndDateBetweenAndStatusOrderByDateAscStartMinAsc(exId, d, d, SessionStatus.UPCOMING))
+        .thenAnswer(i -> s.getStatus() == SessionStatus.UPCOMING ? List.of(s) : List.of());
+      when(sessions.cancelAll(any(), any(), any(), any())).thenAnswer(i -> {
+        if (s.getStatus() != SessionStatus.UPCOMING) return 0;
+        s.setStatus(SessionStatus.CANCELLED); return 1;
+      });
+      var bulk = new com.odx.experts.dto.BulkCancelReq(exId, d, d, exId, "unwell", false);
+
+      if (bulkFirst) { assertEquals(1, svc.cancelRange(bulk).cancelled()); svc.cancel(s.getId(), userId, "reason"); }
+      else { svc.cancel(s.getId(), userId, "reason"); assertEquals(0, svc.cancelRange(bulk).cancelled()); }
+      verify(purchases, times(bulkFirst ? 1 : 0)).refund(pId, 0.5);
+      verify(purchases, times(bulkFirst ? 0 : 1)).save(any());
+    }
+  }
+
+  @Test void bulkCancelRollsBackWhenARowDidNotFlip(){
+    var exId = UUID.randomUUID(); var d = LocalDate.parse("2025-09-05");
+    var a = Session.builder().id(UUID.randomUUID()).expertId(exId).purchaseId(UUID.randomUUID()).date(d).startMin(600).endMin(630).status(SessionStatus.UPCOMING).build();
+    when(sessions.findByExpertIdAndDateBetweenAndStatusOrderByDateAscStartMinAsc(exId, d, d, SessionStatus.UPCOMING)).thenReturn(List.of(a));
+    assertThrows(IllegalStateException.class, () -> svc.cancelRange(new com.odx.experts.dto.BulkCancelReq(exId, d, d, exId, "x", false)));
+    verify(purchases, never()).refund(any(), anyDouble());
+  }
+
+  @Test void bulkCancelAggregatesRefundsPerPurchase(){
+    var exId = UUID.randomUUID(); var p1 = UUID.randomUUID(); var p2 = UUID.randomUUID(); var d = LocalDate.parse("2025-09-05");
+    var a = Session.builder().id(UUID.randomUUID()).expertId(exId).purchaseId(p1).date(d).startMin(600).endMin(630).status(SessionStatus.UPCOMING).build();
+    var b = Session.builder().id(UUID.randomUUID()).expertId(exId).purchaseId(p1).date(d).startMin(630).endMin(660).status(SessionStatus.UPCOMING).build();
+    var c = Session.builder().id(UUID.randomUUID()).expertId(exId).purchaseId(p2).date(d).startMin(700).endMin(730).status(SessionStatus.UPCOMING).build();
+    when(sessions.findByExpertIdAndDateBetweenAndStatusOrderByDateAscStartMinAsc(exId, d, d, SessionStatus.UPCOMING)).thenReturn(List.of(a, b, c));
+    when(sessions.cancelAll(any(), any(), any(), any())).thenReturn(3);
+
+    var res = svc.cancelRange(new com.odx.experts.dto.BulkCancelReq(exId, d, d, exId, "unwell", false));
+    assertEquals(3, res.cancelled()); assertEquals(2, res.purchasesRefunded()); assertEquals(1.5, res.hoursRefunded(), 1e-9);
+    verify(sessions).cancelAll(eq(List.of(a.getId(), b.getId(), c.getId())), eq(exId), any(), eq("unwell"));
+    verify(purchases).refund(p1, 1.0); verify(purchases).refund(p2, 0.5);
+    verify(purchases, never()).findById(any());
+  }
+
+  @Test void bulkCancelInsideNoticeNeedsOverride(){
+    var exId = UUID.randomUUID(); var pId = UUID.randomUUID(); var d = LocalDate.ofInstant(clock.instant(), ZoneId.systemDefault()).plusDays(1);
+    var s = Session.builder().id(UUID.randomUUID()).expertId(exId).purchaseId(pId).date(d).startMin(0).endMin(30).status(SessionStatus.UPCOMING).build();
+    when(sessions.findByExpertIdAndDateBetweenAndStatusOrderByDateAscStartMinAsc(exId, d, d, SessionStatus.UPCOMING)).thenReturn(List.of(s));
+    when(sessions.cancelAll(any(), any(), any(), any())).thenReturn(1);
+
+    assertThrows(IllegalArgumentException.class, () -> svc.cancelRange(new com.odx.experts.dto.BulkCancelReq(exId, d, d, exId, "x", false)));
+    verify(sessions, never()).cancelAll(any(), any(), any(), any());
+    assertEquals(1, svc.cancelRange(new com.odx.experts.dto.BulkCancelReq(exId, d, d, exId, "x", true)).cancelled());
+    verify(purchases).refund(pId, 0.5);
+  }
 }
 ```
 
@@ -1126,13 +7376,13 @@ class SessionCancellationTest {
 ```java
 package com.odx.experts.feedback;
 
-import com.odx.experts.dto.FeedbackReq; import com.odx.experts.purchase.Purchase; import com.odx.experts.purchase.PurchaseRepository; import com.odx.experts.session.*;
+import com.odx.experts.dto.FeedbackReq; import com.odx.experts.purchase.Purchase; import com.odx.experts.purchase.PurchaseRepository; import com.odx.experts.session.*; import com.odx.experts.shard.ShardRouter;
 import org.junit.jupiter.api.*; import java.util.*; import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
 
 class FeedbackServiceTest {
   private FeedbackController controller; private FeedbackRepository repo; private PurchaseRepository purchases; private SessionRepository sessions;
 
-  @BeforeEach void setup(){ repo = mock(FeedbackRepository.class); purchases = mock(PurchaseRepository.class); sessions = mock(SessionRepository.class); controller = new FeedbackController(repo, purchases, sessions); }
+  @BeforeEach void setup(){ repo = mock(FeedbackRepository.class); purchases = mock(PurchaseRepository.class); sessions = mock(SessionRepository.class); controller = new FeedbackController(repo, purchases, sessions, ShardRouter.unsharded()); }
 
   @Test void rejectsIfHoursLeft(){
     var pid = UUID.randomUUID(); var uid = UUID.randomUUID(); var exid = UUID.randomUUID();
@@ -1157,10 +7407,661 @@ class SlotServiceTest {
     var ex = Expert.builder().id(UUID.randomUUID()).dayStart("09:00").dayEnd("10:00").build();
     when(win.findByExpertIdAndDateOrderByStartMin(any(), any())).thenReturn(List.of());
     when(ovr.findByExpertIdAndDate(any(), any())).thenReturn(List.of());
-    when(sess.findByExpertIdAndDateAndStatusNot(any(), any(), any())).thenReturn(List.of());
+    when(sess.findBusy(any(), any(), anyInt())).thenReturn(List.of());
     var slots = svc.slotsForDate(ex, LocalDate.parse("2025-09-10"));
     assertEquals(2, slots.size()); // 09:00-09:30, 09:30-10:00
   }
+
+  @Test void sessionsAndHoldsComeFromOneQuery(){
+    var ex = Expert.builder().id(UUID.randomUUID()).dayStart("09:00").dayEnd("11:00").build();
+    when(win.findByExpertIdAndDateOrderByStartMin(any(), any())).thenReturn(List.of());
+    when(ovr.findByExpertIdAndDate(any(), any())).thenReturn(List.of());
+    when(sess.findBusy(any(), any(), eq(30))).thenReturn(List.of(new Object[]{0, 540, 570}, new Object[]{1, 600, 630}));
+    var slots = svc.slotsForDate(ex, LocalDate.parse("2025-09-10"));
+    assertEquals(List.of(570, 630), slots.stream().map(s -> s[0]).toList()); // 09:00 booked, 10:00 held
+    verify(sess, times(1)).findBusy(any(), any(), anyInt());
+  }
+}
+```
+
+## Test: expert/NextSlotIndexTest.java
+```java
+package com.odx.experts.expert;
+
+import com.odx.experts.common.Constants; import com.odx.experts.feedback.FeedbackRepository; import com.odx.experts.shard.ShardRouter;
+import org.junit.jupiter.api.*; import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.*;
+import java.sql.*; import java.time.*; import java.util.*;
+import static org.junit.jupiter.api.Assertions.*; import static org.mockito.Mockito.*;
+
+class NextSlotIndexTest {
+  private static final Instant T0 = Instant.parse("2025-09-10T00:00:00Z");
+  private ExpertRepository experts; private FeedbackRepository feedbacks; private SlotService slots; private VersionCounters versions;
+  private JdbcTemplate jdbc; private Clock clock; private NextSlotIndex index;
+
+  @BeforeEach void setup(){
+    experts = mock(ExpertRepository.class); feedbacks = mock(FeedbackRepository.class); slots = mock(SlotService.class);
+    versions = mock(VersionCounters.class); jdbc = mock(JdbcTemplate.class); clock = mock(Clock.class);
+    when(clock.instant()).thenReturn(T0);
+    when(versions.catalogue()).thenReturn(1L);
+    index = new NextSlotIndex(experts, feedbacks, slots, versions, jdbc, ShardRouter.unsharded(), clock);
+  }
+
+  // the only free slot is on DAY, which is in the future in every time zone
+  private static final LocalDate DAY = LocalDate.parse("2025-09-12");
+
+  private Expert expert(String name, double rating, int slotStart){
+    var ex = Expert.builder().id(UUID.randomUUID()).name(name).domain(Domain.TAX).baseRating(rating).build();
+    when(slots.slotsForDate(eq(ex), eq(DAY))).thenReturn(List.of(new int[]{slotStart, slotStart + 30}));
+    return ex;
+  }
+
+  private static FeedbackRepository.ExpertRating rating(UUID expertId, double value){
+    var r = mock(FeedbackRepository.ExpertRating.class);
+    when(r.getExpertId()).thenReturn(expertId); when(r.getRating()).thenReturn(value);
+    return r;
+  }
+
+  private List<String> names(){ return index.soonest(Domain.TAX, 10).stream().map(NextSlotIndex.Entry::name).toList(); }
+
+  @Test void ranksByEarliestSlotThenRating(){
+    var late = expert("late", 5.0, 720); var lowRated = expert("low", 3.0, 600); var highRated = expert("high", 4.5, 600);
+    when(experts.findAll()).thenReturn(List.of(late, lowRated, highRated));
+    index.poll();
+    assertEquals(List.of("high", "low", "late"), names());
+    assertEquals(List.of("high"), index.soonest(Domain.TAX, 1).stream().map(NextSlotIndex.Entry::name).toList());
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Test void persistStampsTheResolveTimeNotTheFlushTime() throws Exception {
+    var ex = expert("a", 4.0, 600);
+    when(experts.findAll()).thenReturn(List.of(ex));
+    index.poll(); // resolved at T0
+    when(clock.instant()).thenReturn(T0.plusSeconds(300));
+    index.persist();
+    ArgumentCaptor<ParameterizedPreparedStatementSetter> setter = ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+    verify(jdbc).batchUpdate(contains("expert_next_slot"), eq(List.of(ex.getId())), eq(500), setter.capture());
+    var ps = mock(PreparedStatement.class);
+    setter.getValue().setValues(ps, ex.getId());
+    verify(ps).setTimestamp(5, Timestamp.from(T0));
+  }
+
+  @Test void restartReplaysAvailabilityFromTheOldestPersistedResolve() throws Exception {
+    var a = expert("a", 4.0, 600); var b = expert("b", 4.0, 660);
+    when(experts.findAll()).thenReturn(List.of(a, b));
+    var older = T0.minusSeconds(600); var newer = T0.minusSeconds(60);
+    doAnswer(inv -> {
+      RowCallbackHandler h = inv.getArgument(1);
+      h.processRow(persisted(a.getId(), older, 600)); h.processRow(persisted(b.getId(), newer, 660));
+      return null;
+    }).when(jdbc).query(contains("from expert_next_slot"), any(RowCallbackHandler.class));
+    index.poll(); // load: restores both, resolves neither
+    verify(slots, never()).slotsForDate(any(), any());
+    assertEquals(List.of("a", "b"), names());
+    index.poll();
+    verify(jdbc).query(contains("from availability_version"), any(RowCallbackHandler.class), eq(Timestamp.from(older.minus(Constants.POLL_OVERLAP))));
+  }
+
+  private static ResultSet persisted(UUID id, Instant updatedAt, int startMin) throws SQLException {
+    var rs = mock(ResultSet.class);
+    when(rs.getObject("expert_id", UUID.class)).thenReturn(id);
+    when(rs.getTimestamp("updated_at")).thenReturn(Timestamp.from(updatedAt));
+    when(rs.getObject("next_date", LocalDate.class)).thenReturn(DAY);
+    when(rs.getInt("next_start_min")).thenReturn(startMin);
+    when(rs.getTimestamp("next_at")).thenReturn(Timestamp.from(DAY.atStartOfDay(ZoneOffset.UTC).plusMinutes(startMin).toInstant()));
+    return rs;
+  }
+
+  @Test void expireTriesAnUnresolvableExpertOncePerPass(){
+    var ex = expert("a", 4.0, 600);
+    when(experts.findAll()).thenReturn(List.of(ex));
+    index.poll();
+    when(clock.instant()).thenReturn(DAY.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()); // its slot has started
+    var tries = new java.util.concurrent.atomic.AtomicInteger();
+    when(slots.slotsForDate(eq(ex), any())).thenAnswer(i -> { tries.incrementAndGet(); throw new com.odx.experts.shard.ShardUnavailableException("moving"); });
+    index.expire(); // returns: the entry stays as it was
+    assertEquals(1, tries.get());
+    assertEquals(List.of("a"), names());
+    index.expire(); // and is retried on the next pass
+    assertEquals(2, tries.get());
+  }
+
+  @Test void catalogueBumpReadsOnlyChangedExperts(){
+    var a = expert("a", 4.0, 600); var b = expert("b", 4.5, 600);
+    when(experts.findAll()).thenReturn(List.of(a, b));
+    index.poll();
+    assertEquals(List.of("b", "a"), names());
+    when(versions.catalogue()).thenReturn(2L);
+    when(experts.findByUpdatedAtAfter(any())).thenReturn(List.of(a));
+    when(feedbacks.averageRatings(anyCollection())).thenReturn(List.of(rating(a.getId(), 5.0)));
+    index.poll();
+    assertEquals(List.of("a", "b"), names()); // a re-ranked by its new average, b untouched
+    verify(experts, times(1)).findAll();
+    verify(feedbacks, times(1)).averageRatings();
+    verify(feedbacks).averageRatings(List.of(a.getId()));
+  }
+}
+```
+
+---
+
+## bench/uuid_v7_insert.sql
+```sql
+-- Insert throughput and PK index size, random v4 vs time-ordered v7 keys, on a sessions-shaped table.
+-- Run against a scratch database after V2 is applied:  psql -d experts -f bench/uuid_v7_insert.sql
+-- Compare the two "Time:" lines of the insert phases and the two index sizes printed at the end.
+\timing on
+
+drop table if exists bench_v4; drop table if exists bench_v7;
+create unlogged table bench_v4 (id uuid primary key default gen_random_uuid(), expert_id uuid not null, date date not null, start_min int not null);
+create unlogged table bench_v7 (id uuid primary key default uuid_generate_v7(), expert_id uuid not null, date date not null, start_min int not null);
+
+-- 200 batches of 10k rows, like many small booking transactions rather than one bulk load
+select 'v4 insert' as phase;
+do $$ begin for i in 1..200 loop
+  insert into bench_v4(expert_id, date, start_min) select gen_random_uuid(), current_date + (g % 90), (g % 48) * 30 from generate_series(1, 10000) g;
+end loop; end $$;
+
+select 'v7 insert' as phase;
+do $$ begin for i in 1..200 loop
+  insert into bench_v7(expert_id, date, start_min) select gen_random_uuid(), current_date + (g % 90), (g % 48) * 30 from generate_series(1, 10000) g;
+end loop; end $$;
+
+\timing off
+select 'v4' as keys, pg_size_pretty(pg_relation_size('bench_v4_pkey')) as pk_index, pg_size_pretty(pg_relation_size('bench_v4')) as heap
+union all
+select 'v7', pg_size_pretty(pg_relation_size('bench_v7_pkey')), pg_size_pretty(pg_relation_size('bench_v7'));
+
+drop table bench_v4; drop table bench_v7;
+```
+
+## bench/startup.sh
+```bash
+#!/usr/bin/env bash
+# Startup benchmark: wall time from JVM launch to the first 200 from GET /api/experts, repeated N times.
+#   bench/startup.sh 5                                                   # plain boot jar
+#   SPRING_PROFILES_ACTIVE=replica,lazy-admin bench/startup.sh 5         # replica + lazy admin beans
+#   JAR=target/app/experts-backend-1.0.0.jar bench/startup.sh 5 -XX:SharedArchiveFile=target/app/app.jsa -Dspring.aot.enabled=true \
+#     -Dspring.profiles.active=replica                                   # mvn -Pstartup output (built for replica)
+# Needs a migrated database at the configured URL. Output: one line per run, then min/median.
+set -euo pipefail
+RUNS=${1:-5}; shift || true
+JAR=${JAR:-target/experts-backend-1.0.0.jar}
+PORT=${PORT:-18080}
+times=()
+for i in $(seq 1 "$RUNS"); do
+  start=$(date +%s%N)
+  java "$@" -jar "$JAR" --server.port="$PORT" > "/tmp/odx-startup-$i.log" 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null "http://localhost:$PORT/api/experts"; do
+    kill -0 "$pid" 2>/dev/null || { echo "app exited, see /tmp/odx-startup-$i.log"; exit 1; }
+    sleep 0.02
+  done
+  ms=$(( ($(date +%s%N) - start) / 1000000 ))
+  times+=("$ms"); echo "run $i: ${ms} ms"
+  kill "$pid"; wait "$pid" 2>/dev/null || true
+done
+sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+echo "min ${sorted[0]} ms, median ${sorted[$(( ${#sorted[@]} / 2 ))]} ms"
+```
+
+---
+
+## loadtest/pom.xml
+```xml
+<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+  <modelVersion>4.0.0</modelVersion>
+  <groupId>com.odx</groupId>
+  <artifactId>experts-loadtest</artifactId>
+  <version>1.0.0</version>
+  <properties>
+    <maven.compiler.release>21</maven.compiler.release>
+    <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+  </properties>
+
+  <!-- JDK only (java.net.http + virtual threads), so the generator itself adds no noise or dependencies -->
+  <build>
+    <plugins>
+      <plugin>
+        <groupId>org.codehaus.mojo</groupId>
+        <artifactId>exec-maven-plugin</artifactId>
+        <version>3.4.1</version>
+        <configuration>
+          <mainClass>com.odx.loadtest.LoadTest</mainClass>
+        </configuration>
+      </plugin>
+    </plugins>
+  </build>
+</project>
+```
+
+## loadtest/docker-compose.yml
+```yaml
+# Local Postgres for load runs:  docker compose -f loadtest/docker-compose.yml up -d
+# then start the backend (mvn spring-boot:run migrates), then psql -h localhost -U postgres -d experts -f loadtest/seed.sql
+# Sharded: add --profile shards (two more databases on 5433/5434) and run the backend with SPRING_PROFILES_ACTIVE=sharded;
+# seed the primary as above, then POST /api/admin/shards/pin and POST /api/admin/shards/rebalance?limit=1000 to spread experts.
+services:
+  postgres:
+    image: postgres:16
+    environment:
+      POSTGRES_DB: experts
+      POSTGRES_USER: postgres
+      POSTGRES_PASSWORD: postgres
+    ports: ["5432:5432"]
+    command: ["postgres", "-c", "max_connections=200", "-c", "shared_buffers=512MB"]
+  postgres-shard1:
+    image: postgres:16
+    profiles: [shards]
+    environment: { POSTGRES_DB: experts, POSTGRES_USER: postgres, POSTGRES_PASSWORD: postgres }
+    ports: ["5433:5432"]
+    command: ["postgres", "-c", "max_connections=200"]
+  postgres-shard2:
+    image: postgres:16
+    profiles: [shards]
+    environment: { POSTGRES_DB: experts, POSTGRES_USER: postgres, POSTGRES_PASSWORD: postgres }
+    ports: ["5434:5432"]
+    command: ["postgres", "-c", "max_connections=200"]
+```
+
+## loadtest/seed.sql
+```sql
+-- Load-test fixtures: 200 experts (with expert logins), 2000 clients, one admin; every password is 'pw'.
+-- Passwords go in as legacy plaintext; each user's first login replaces theirs with a PBKDF2 hash.
+-- "Expert 1" is the hot expert that -Dodx.hotShare traffic converges on.
+insert into experts (name, domain, description, experience, hourly_rate, email, phone)
+select 'Expert ' || g, (array['CYBER','TAX','CORE','PROCURE','REG'])[1 + g % 5]::domain,
+       'Load-test expert ' || g, (g % 20) || ' years', 1000 + (g % 10) * 250, 'expert' || g || '@example.com', '+91-90000' || lpad(g::text, 5, '0')
+from generate_series(1, 200) g;
+
+insert into users (username, password, name, email, role, expert_id)
+select 'expert' || substr(e.name, 8), 'pw', e.name, e.email, 'EXPERT', e.id from experts e where e.name like 'Expert %';
+
+insert into users (username, password, name, email, role)
+select 'client' || g, 'pw', 'Client ' || g, 'client' || g || '@example.com', 'CLIENT' from generate_series(1, 2000) g;
+
+insert into users (username, password, name, email, role) values ('admin', 'pw', 'Admin', 'admin@example.com', 'ADMIN');
+```
+
+## loadtest/src/main/java/com/odx/loadtest/Config.java
+```java
+package com.odx.loadtest;
+
+/** All knobs are -Dodx.* system properties; rates are journey arrivals per second. */
+record Config(String baseUrl, int durationSec, double clientRate, double expertRate, double adminRate,
+              double hotShare, int clients, int experts, int daysAhead, String scenario, int concurrency) {
+  static Config fromSystemProperties() {
+    return new Config(
+      System.getProperty("odx.baseUrl", "http://localhost:8080"),
+      Integer.getInteger("odx.durationSec", 60),
+      Double.parseDouble(System.getProperty("odx.clientRate", "20")),
+      Double.parseDouble(System.getProperty("odx.expertRate", "2")),
+      Double.parseDouble(System.getProperty("odx.adminRate", "0.2")),
+      Double.parseDouble(System.getProperty("odx.hotShare", "0.0")), // share of client journeys aimed at the hot expert
+      Integer.getInteger("odx.clients", 2000),
+      Integer.getInteger("odx.experts", 200),
+      Integer.getInteger("odx.daysAhead", 14),
+      System.getProperty("odx.scenario", "journeys"), // or "auth": AuthBench
+      Integer.getInteger("odx.concurrency", 64));     // AuthBench workers
+  }
+}
+```
+
+## loadtest/src/main/java/com/odx/loadtest/LoadTest.java
+```java
+package com.odx.loadtest;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop scenario load test: client, expert and admin journeys arrive as independent Poisson processes at the
+ * configured rates, each journey on its own virtual thread, so a slow server does not lower the offered load.
+ *
+ *   cd loadtest && mvn -q compile exec:java -Dodx.durationSec=120 -Dodx.clientRate=50 -Dodx.hotShare=0.5
+ */
+public class LoadTest {
+  record Stream(String name, double rate, Runnable journey) {}
+
+  public static void main(String[] args) throws Exception {
+    var cfg = Config.fromSystemProperties();
+    if (cfg.scenario().equals("auth")) { AuthBench.run(cfg); return; }
+    var stats = new Stats();
+    var journeys = new Journeys(new Api(cfg.baseUrl(), stats), cfg);
+    journeys.prepare();
+
+    var streams = List.of(
+      new Stream("client", cfg.clientRate(), journeys::client),
+      new Stream("expert", cfg.expertRate(), journeys::expert),
+      new Stream("admin", cfg.adminRate(), journeys::admin));
+    long deadline = System.nanoTime() + cfg.durationSec() * 1_000_000_000L;
+    long started = System.nanoTime();
+    try (var workers = Executors.newVirtualThreadPerTaskExecutor()) {
+      var arrivals = streams.stream().filter(s -> s.rate() > 0).map(s -> Thread.ofPlatform().name("arrivals-" + s.name()).start(() -> {
+        var rnd = ThreadLocalRandom.current();
+        for (long next = System.nanoTime(); next < deadline; ) {
+          next += (long) (-Math.log(1 - rnd.nextDouble()) / s.rate() * 1e9); // exponential inter-arrival
+          LockSupport.parkNanos(next - System.nanoTime());
+          workers.submit(() -> { try { s.journey().run(); } catch (RuntimeException e) { stats.record(s.name() + ".journey", 0, e.getClass().getSimpleName()); } });
+        }
+      })).toList();
+      for (var t : arrivals) t.join();
+    } // close() waits for in-flight journeys
+    stats.print(System.out, (System.nanoTime() - started) / 1e9);
+  }
+}
+```
+
+## loadtest/src/main/java/com/odx/loadtest/Api.java
+```java
+package com.odx.loadtest;
+
+import java.net.URI;
+import java.net.http.*;
+import java.time.Duration;
+
+/** Thin HTTP client that times every call and files the outcome under a stable endpoint label. */
+final class Api {
+  private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+  private final String baseUrl; private final Stats stats;
+  Api(String baseUrl, Stats stats) { this.baseUrl = baseUrl; this.stats = stats; }
+
+  String get(String endpoint, String path) { return get(endpoint, path, null); }
+
+  String get(String endpoint, String path, String token) {
+    return send(endpoint, bearer(HttpRequest.newBuilder(URI.create(baseUrl + path)), token).GET());
+  }
+
+  String post(String endpoint, String path, String json) { return post(endpoint, path, json, null); }
+
+  String post(String endpoint, String path, String json, String token) {
+    return send(endpoint, bearer(HttpRequest.newBuilder(URI.create(baseUrl + path)), token)
+      .header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json)));
+  }
+
+  private static HttpRequest.Builder bearer(HttpRequest.Builder req, String token) {
+    return token == null ? req : req.header("Authorization", "Bearer " + token);
+  }
+
+  /** Body on 2xx, null otherwise (the failure is already recorded). */
+  private String send(String endpoint, HttpRequest.Builder req) {
+    long t0 = System.nanoTime();
+    try {
+      var res = http.send(req.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+      long took = System.nanoTime() - t0;
+      int code = res.statusCode();
+      if (code / 100 == 2) { stats.record(endpoint, took, "2xx"); return res.body(); }
+      var message = Json.str(res.body(), "message"); // ApiError from GlobalExceptionHandler
+      stats.record(endpoint, took, code + (message == null ? "" : " " + truncate(message)));
+      return null;
+    } catch (Exception e) {
+      stats.record(endpoint, System.nanoTime() - t0, e.getClass().getSimpleName());
+      if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private static String truncate(String s) { return s.length() <= 60 ? s : s.substring(0, 60) + "…"; }
+}
+```
+
+## loadtest/src/main/java/com/odx/loadtest/Json.java
+```java
+package com.odx.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/** Just enough field extraction for the backend's flat responses; keeps the generator dependency-free. */
+final class Json {
+  private Json() {}
+
+  static String str(String body, String key) { var all = strs(body, key); return all.isEmpty() ? null : all.get(0); }
+
+  static List<String> strs(String body, String key) {
+    var out = new ArrayList<String>();
+    if (body == null) return out;
+    var m = Pattern.compile("\"" + key + "\"\\s*:\\s*\"([^\"]*)\"").matcher(body);
+    while (m.find()) out.add(m.group(1));
+    return out;
+  }
+
+  static List<Integer> ints(String body, String key) {
+    var out = new ArrayList<Integer>();
+    if (body == null) return out;
+    var m = Pattern.compile("\"" + key + "\"\\s*:\\s*(-?\\d+)").matcher(body);
+    while (m.find()) out.add(Integer.parseInt(m.group(1)));
+    return out;
+  }
+}
+```
+
+## loadtest/src/main/java/com/odx/loadtest/Journeys.java
+```java
+package com.odx.loadtest;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** The request sequences the React app issues, against fixtures from seed.sql (usernames clientN / expertN, password pw). */
+final class Journeys {
+  private final Api api; private final Config cfg;
+  private final List<String> expertIds = new ArrayList<>(); private final Map<String,Integer> rates = new HashMap<>();
+  private final Map<String,String> logins = new ConcurrentHashMap<>(); // username -> login body (userId, expertId, token)
+  private String hotExpertId;
+
+  Journeys(Api api, Config cfg) { this.api = api; this.cfg = cfg; }
+
+  void prepare() {
+    var body = api.get("experts.list", "/api/experts");
+    if (body == null) throw new IllegalStateException("Backend not reachable at " + cfg.baseUrl());
+    var ids = Json.strs(body, "id"); var names = Json.strs(body, "name"); var rs = Json.ints(body, "rate");
+    for (int i = 0; i < ids.size(); i++) {
+      expertIds.add(ids.get(i)); rates.put(ids.get(i), rs.get(i));
+      if ("Expert 1".equals(names.get(i))) hotExpertId = ids.get(i);
+    }
+    if (expertIds.isEmpty()) throw new IllegalStateException("No experts; load loadtest/seed.sql first");
+    if (hotExpertId == null) hotExpertId = expertIds.get(0);
+  }
+
+  /** login (first journey per user) → list experts → view slots → purchase → batch-book two slots → cancel one → feedback. */
+  void client() {
+    var rnd = ThreadLocalRandom.current();
+    var login = login("client" + (1 + rnd.nextInt(cfg.clients())));
+    if (login == null) return;
+    var userId = Json.str(login, "userId"); var token = Json.str(login, "token");
+    if (api.get("experts.list", "/api/experts", token) == null) return;
+
+    var expertId = rnd.nextDouble() < cfg.hotShare() ? hotExpertId : expertIds.get(rnd.nextInt(expertIds.size()));
+    var date = LocalDate.now().plusDays(2 + rnd.nextInt(cfg.daysAhead())); // ≥ 2 days out so the cancel passes the 24h rule
+    var starts = Json.ints(api.get("experts.slots", "/api/experts/" + expertId + "/slots/" + date, token), "startMin");
+    int pick = -1;
+    for (int tries = 0; tries < 8 && starts.size() > 1 && pick < 0; tries++) {
+      int i = rnd.nextInt(starts.size() - 1);
+      if (starts.get(i + 1) == starts.get(i) + 30) pick = i;
+    }
+    if (pick < 0) return; // day full: the slots view already measured the contention
+
+    var buy = api.post("purchases.buy", "/api/purchases", "{\"userId\":\"" + userId + "\",\"expertId\":\"" + expertId
+      + "\",\"packageHours\":1,\"hourlyRate\":" + rates.get(expertId) + "}", token);
+    if (buy == null) return;
+    var purchaseId = Json.str(buy, "purchaseId");
+    int s0 = starts.get(pick), s1 = starts.get(pick + 1);
+    var booked = api.post("sessions.batchBook", "/api/sessions/batch-book/" + userId, "{\"purchaseId\":\"" + purchaseId
+      + "\",\"date\":\"" + date + "\",\"slots\":[{\"startMin\":" + s0 + ",\"endMin\":" + (s0 + 30) + "},{\"startMin\":" + s1
+      + ",\"endMin\":" + (s1 + 30) + "}]}", token);
+    if (booked == null) return;
+    var sessionIds = Json.strs(booked, "sessionId");
+    if (!sessionIds.isEmpty()) api.post("sessions.cancel", "/api/sessions/" + sessionIds.get(0) + "/cancel",
+      "{\"byUserId\":\"" + userId + "\",\"reason\":\"load test\"}", token);
+    // expected to be rejected (hours left / sessions upcoming): measures the validation path the UI hits
+    api.post("feedback.submit", "/api/feedback", "{\"purchaseId\":\"" + purchaseId + "\",\"rating\":5,\"text\":\"ok\",\"userId\":\"" + userId + "\"}", token);
+  }
+
+  /** Expert adds an availability window on a future day; hot-expert share applies here too. */
+  void expert() {
+    var rnd = ThreadLocalRandom.current();
+    int n = rnd.nextDouble() < cfg.hotShare() ? 1 : 1 + rnd.nextInt(cfg.experts());
+    var login = login("expert" + n);
+    if (login == null) return;
+    var expertId = Json.str(login, "expertId");
+    var date = LocalDate.now().plusDays(2 + rnd.nextInt(cfg.daysAhead()));
+    int start = 8 * 60 + 30 * rnd.nextInt(16);
+    api.post("experts.addWindow", "/api/experts/" + expertId + "/availability/" + date,
+      "{\"startHHmm\":\"" + hhmm(start) + "\",\"endHHmm\":\"" + hhmm(start + 120) + "\"}", Json.str(login, "token"));
+  }
+
+  /** Admin opens the earnings page. */
+  void admin() {
+    var login = login("admin");
+    if (login == null) return;
+    api.get("admin.expertEarnings", "/api/admin/expert-earnings", Json.str(login, "token"));
+  }
+
+  // the app keeps its token, so only a user's first journey pays for the password hash (AuthBench measures logins)
+  private String login(String username) {
+    var body = logins.get(username);
+    if (body == null && (body = api.post("auth.login", "/api/auth/login", credentials(username))) != null) logins.put(username, body);
+    return body;
+  }
+
+  static String credentials(String username) { return "{\"username\":\"" + username + "\",\"password\":\"pw\"}"; }
+  private static String hhmm(int m) { return String.format("%02d:%02d", m / 60, m % 60); }
+}
+```
+
+## loadtest/src/main/java/com/odx/loadtest/AuthBench.java
+```java
+package com.odx.loadtest;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop auth throughput, two phases of half the run each: -Dodx.concurrency workers log in as successive seeded
+ * clients (PBKDF2 on the server's hashing pool; 503s mean its queue was full), then call GET /api/auth/me with the
+ * tokens they got (signature check only, no DB). Run it twice after seeding: the first run's logins also rehash
+ * the plaintext seed passwords.
+ *
+ *   cd loadtest && mvn -q compile exec:java -Dodx.scenario=auth -Dodx.durationSec=60 -Dodx.concurrency=64
+ */
+final class AuthBench {
+  private AuthBench() {}
+
+  static void run(Config cfg) {
+    double phaseSec = cfg.durationSec() / 2.0;
+    var tokens = new ConcurrentLinkedQueue<String>();
+    var next = new AtomicInteger();
+    var loginStats = new Stats(); var logins = new Api(cfg.baseUrl(), loginStats);
+    closedLoop(cfg.concurrency(), phaseSec, () -> {
+      var body = logins.post("auth.login", "/api/auth/login", Journeys.credentials("client" + (1 + next.getAndIncrement() % cfg.clients())));
+      var token = Json.str(body, "token");
+      if (token != null) tokens.add(token);
+    });
+    loginStats.print(System.out, phaseSec);
+    if (tokens.isEmpty()) throw new IllegalStateException("No successful logins; load loadtest/seed.sql first");
+
+    var all = List.copyOf(tokens);
+    var meStats = new Stats(); var me = new Api(cfg.baseUrl(), meStats);
+    closedLoop(cfg.concurrency(), phaseSec, () -> me.get("auth.me", "/api/auth/me", all.get(ThreadLocalRandom.current().nextInt(all.size()))));
+    meStats.print(System.out, phaseSec);
+  }
+
+  private static void closedLoop(int workers, double seconds, Runnable call) {
+    long deadline = System.nanoTime() + (long) (seconds * 1e9);
+    try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < workers; i++) pool.submit(() -> { while (System.nanoTime() < deadline) call.run(); });
+    }
+  }
+}
+```
+
+## loadtest/src/main/java/com/odx/loadtest/Stats.java
+```java
+package com.odx.loadtest;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Per-endpoint latency histograms and outcome counts ("2xx", "400 <message>", "503", "HttpTimeoutException", ...). */
+final class Stats {
+  private record Endpoint(LatencyHistogram latency, Map<String, LongAdder> outcomes) {}
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+  void record(String endpoint, long nanos, String outcome) {
+    var e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint(new LatencyHistogram(), new ConcurrentHashMap<>()));
+    if (nanos > 0) e.latency().record(nanos / 1_000);
+    e.outcomes().computeIfAbsent(outcome, k -> new LongAdder()).increment();
+  }
+
+  void print(PrintStream out, double seconds) {
+    out.printf("%-22s %8s %8s %9s %9s %9s %9s  %s%n", "endpoint", "count", "rps", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+    new TreeMap<>(endpoints).forEach((name, e) -> {
+      var h = e.latency();
+      var errors = new StringBuilder();
+      new TreeMap<>(e.outcomes()).forEach((k, v) -> { if (!k.equals("2xx")) errors.append(errors.isEmpty() ? "" : "; ").append(k).append(" ×").append(v.sum()); });
+      out.printf("%-22s %8d %8.1f %9.2f %9.2f %9.2f %9.2f  %s%n", name, h.count(), h.count() / seconds,
+        h.percentile(0.50) / 1e3, h.percentile(0.99) / 1e3, h.percentile(0.999) / 1e3, h.max() / 1e3, errors);
+    });
+  }
+}
+```
+
+## loadtest/src/main/java/com/odx/loadtest/LatencyHistogram.java
+```java
+package com.odx.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of microsecond values: 32 linear sub-buckets per power of two (≤ ~3% error), so
+ * recording is one array increment and p999 stays meaningful without keeping every sample.
+ */
+final class LatencyHistogram {
+  private static final int SUB_BITS = 5, SUB = 1 << SUB_BITS;
+  private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB);
+  private final AtomicLong max = new AtomicLong();
+
+  void record(long micros) {
+    buckets.incrementAndGet(index(Math.max(0, micros)));
+    max.accumulateAndGet(micros, Math::max);
+  }
+
+  long count() { long n = 0; for (int i = 0; i < buckets.length(); i++) n += buckets.get(i); return n; }
+  long max() { return max.get(); }
+
+  /** Value (µs) at quantile q, reported as the middle of its bucket. */
+  long percentile(double q) {
+    long total = count(); if (total == 0) return 0;
+    long target = (long) Math.ceil(q * total), seen = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      seen += buckets.get(i);
+      if (seen >= target) return Math.min(mid(i), max.get());
+    }
+    return max.get();
+  }
+
+  static int index(long v) {
+    if (v < SUB) return (int) v;
+    int exp = 63 - Long.numberOfLeadingZeros(v);
+    return (exp - SUB_BITS + 1) * SUB + (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+  }
+
+  static long mid(int i) {
+    if (i < SUB) return i;
+    int exp = i / SUB + SUB_BITS - 1, sub = i % SUB, shift = exp - SUB_BITS;
+    return ((long) (SUB | sub) << shift) + ((1L << shift) >> 1);
+  }
 }
 ```
 
@@ -1170,13 +8071,31 @@ class SlotServiceTest {
 1) Start Postgres locally and create DB `experts`.
 2) `mvn spring-boot:run` (Flyway will create tables).
 3) Use the endpoints:
-   - `POST /api/auth/login` with `{ "username":"ravi", "password":"ravi123" }` (after you insert users).
+   - `POST /api/auth/login` with `{ "username":"ravi", "password":"ravi123" }` (after you insert users) returns a signed `token`; send it as `Authorization: Bearer <token>` on every other call (catalogue and slot GETs also work anonymously). Tokens are checked in memory; `POST /api/auth/logout` revokes one, `GET /api/auth/me` echoes it. Passwords are PBKDF2-hashed on a bounded pool (`odx.auth.*`); plaintext rows are upgraded on login. Benchmark with `-Dodx.scenario=auth` in `loadtest/`.
    - `GET /api/experts` list experts with current average rating.
+   - Catalogue and slot responses carry strong `ETag`s from cheap version counters; send `If-None-Match` to get `304` without recomputation. Bodies over 2 KB are gzip-compressed.
    - `POST /api/purchases` to buy hours.
-   - `GET /api/experts/{expertId}/slots/{YYYY-MM-DD}` to see open 30‑min slots.
-   - `POST /api/sessions/batch-book/{userId}` to book multiple slots at once.
+   - `PUT /api/experts/{expertId}/availability` to set a quarter of availability in one call (`from`, `to`, `weekdays`, `ranges` and/or explicit `windows`); overlapping windows are merged.
+   - `GET /api/experts/search?q=gst+audit&domain=TAX` full-text search (ranked, keyset-paged via `after=<next>`).
+   - `GET /api/experts/soonest?domain=CYBER&k=5` for the experts with the earliest free slot (ties by rating).
+   - `GET /api/experts/{expertId}/slots/{YYYY-MM-DD}` to see open 30‑min slots; `GET /api/experts/{expertId}/slots?from=YYYY-MM-DD&days=7` for a multi-day view. Add `?format=bitmap` (or `Accept: application/vnd.odx.slot-bitmap+json`) for the compact per-day bitmask form.
+   - `POST /api/sessions/batch-book/{userId}` to book multiple slots at once. Meeting links are created right after the booking commits (`link` is `null` in the response; read it from the schedule a moment later). Plug in a real provider by declaring a `MeetingProvider` bean; the default is a local stub.
+   - Reminders: client and expert are notified 24h and 15 minutes before each session (`odx.reminders.leads`), also after a restart or outage, never twice. Plug in email/SMS by declaring a `ReminderNotifier` bean; the default is a local stub.
    - `POST /api/sessions/{sessionId}/cancel` to cancel (≥24h, with reason; auto‑refunds hours).
+   - `POST /api/sessions/bulk-cancel` with `{ expertId, from, to, byUserId, reason, override }` cancels all of an expert's upcoming sessions in the range in one transaction, refunding each purchase once; `override: true` waives the 24h rule.
    - `POST /api/feedback` to submit rating+text **only after** package is exhausted and all sessions completed.
+   - `GET /api/schedule/users/{userId}?state=upcoming|package|completed|cancelled` a client's sessions or packages (with hours left); `GET /api/schedule/experts/{expertId}?from=YYYY-MM-DD&days=7` an expert's day or week. Both read a trigger-maintained projection, keyset-paged via `after=<next>`. With `odx.schedule.auto-complete: true` sessions turn `COMPLETED` automatically once they end, which makes them count towards settlements and earnings (off by default).
+   - Waitlist: `POST /api/waitlist` with `{ userId, purchaseId, date, fromHHmm?, toHHmm?, autoBook }` queues for a full day; when a session in range is cancelled the first entry (FIFO, admin-set `priority` first) is booked against its purchase (`autoBook`) or gets a 15-minute hold to take with `POST /api/waitlist/{id}/confirm`. `GET /api/waitlist/users/{userId}` lists entries, `POST /api/waitlist/{id}/leave` drops one.
+   - Load testing: `loadtest/` replays the client (login → experts → slots → purchase → batch-book → cancel → feedback), expert (add windows) and admin (earnings) journeys at configurable arrival rates and hot-expert contention (`-Dodx.hotShare`), and prints p50/p99/p999 and error breakdowns per endpoint.
+   - Retries: send `Idempotency-Key: <uuid>` on `POST /api/sessions/batch-book/{userId}`, `POST /api/purchases` or `POST /api/admin/payouts`; a repeat with the same key returns the first response (`Idempotent-Replayed: true`) without running again, a concurrent repeat waits for the original, and reusing a key for a different body is `422`. Keys are kept for `odx.idempotency.ttl`.
+   - Admission control: slot views and batch-book are guarded by per-user/per-expert token buckets and a global in-flight limit (`odx.admission.*`); refusals are `429` with `Retry-After`, counted at `GET /api/admin/admission`.
+   - Diagnostics: JFR events `com.odx.SlotComputation`, `com.odx.Booking` and `com.odx.AdminAggregation` (expert, date, slot/session/SQL counts, outcome), and `com.odx.BackgroundFailure` for failed background work (also counted per task at `GET /api/admin/jfr`). `POST /api/admin/jfr/start` starts a rolling recording (or `odx.jfr.start-on-boot: true`), `POST /api/admin/jfr/dump` downloads it.
+   - Benchmarks: `mvn -Pbench test` runs the `@Tag("bench")` timing tests (they print their numbers; nothing is asserted on time); a plain `mvn test` skips them.
+   - Scaling out: `mvn -Pstartup package` builds an AOT + CDS variant for replicas (profile and sharding are fixed at build time; migrate with the plain jar); run extra pods with `SPRING_PROFILES_ACTIVE=replica,lazy-admin` (no Flyway/Hibernate validation, admin beans created lazily). Track cold start with `bench/startup.sh`.
+   - `POST /api/admin/settlements/{YYYY-MM}` pays every expert with dues for a finished month in one batch (idempotent per period; returns the settlement report, also at `GET`).
+   - `GET /api/admin/client-statements?limit=50&after=<next>` per-client billed / paid / outstanding / hours left, served from trigger-maintained `client_balance` rows (`source=live` recomputes from purchases and payments).
+   - `GET /api/admin/rollups?grain=day|week|month&by=expert|domain&from=…&to=…` revenue, booked/cancelled hours, cancellation rate and utilization from rollup rows only. Session/purchase triggers keep them current; a nightly job reconciles recent days and compacts old ones. Backfill history with `POST /api/admin/rollups/rebuild?from=…&to=…`.
+   - Sharding: set `odx.shards.nodes` (or `SPRING_PROFILES_ACTIVE=sharded` for three local databases) to spread experts over several Postgres instances by consistent hash. Booking, slot and availability calls run on the expert's shard; catalogue, search and admin reports fan out in parallel. Before changing the node list, call `POST /api/admin/shards/pin`; afterwards, `POST /api/admin/shards/rebalance?limit=50` moves experts to their new shard (`GET /api/admin/shards/plan` previews).
    - `GET /api/admin/expert-earnings` to view earnings vs payouts; `POST /api/admin/payouts`, `POST /api/admin/client-payments` to record money movements.
 
-> This single Spring Boot app is **microservices‑ready**: each package (`auth`, `expert`, `session`, `purchase`, `feedback`, `billing`) is a clean bounded context. You can extract them into separate services later by sharing the schema or via events. For production, add JWT auth, proper password hashing, and request validation as needed.
+> This single Spring Boot app is **microservices‑ready**: each package (`auth`, `expert`, `session`, `purchase`, `feedback`, `billing`) is a clean bounded context. You can extract them into separate services later by sharing the schema or via events; tokens verify without a DB call, so any service holding `odx.auth.secret` can check them. For production, set your own `odx.auth.secret` and add request validation as needed.